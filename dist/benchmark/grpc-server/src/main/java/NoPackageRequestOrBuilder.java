@@ -0,0 +1,17 @@
+// Generated by the protocol buffer compiler.  DO NOT EDIT!
+// source: nopackages.proto
+
+public interface NoPackageRequestOrBuilder extends
+    // @@protoc_insertion_point(interface_extends:NoPackageRequest)
+    com.google.protobuf.MessageOrBuilder {
+
+  /**
+   * <code>optional string name = 1;</code>
+   */
+  java.lang.String getName();
+  /**
+   * <code>optional string name = 1;</code>
+   */
+  com.google.protobuf.ByteString
+      getNameBytes();
+}
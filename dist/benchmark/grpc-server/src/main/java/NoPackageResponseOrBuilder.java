@@ -0,0 +1,17 @@
+// Generated by the protocol buffer compiler.  DO NOT EDIT!
+// source: nopackages.proto
+
+public interface NoPackageResponseOrBuilder extends
+    // @@protoc_insertion_point(interface_extends:NoPackageResponse)
+    com.google.protobuf.MessageOrBuilder {
+
+  /**
+   * <code>optional string message = 1;</code>
+   */
+  java.lang.String getMessage();
+  /**
+   * <code>optional string message = 1;</code>
+   */
+  com.google.protobuf.ByteString
+      getMessageBytes();
+}
@@ -0,0 +1,305 @@
+import static io.grpc.MethodDescriptor.generateFullMethodName;
+import static io.grpc.stub.ClientCalls.asyncBidiStreamingCall;
+import static io.grpc.stub.ClientCalls.asyncClientStreamingCall;
+import static io.grpc.stub.ClientCalls.asyncServerStreamingCall;
+import static io.grpc.stub.ClientCalls.asyncUnaryCall;
+import static io.grpc.stub.ClientCalls.blockingServerStreamingCall;
+import static io.grpc.stub.ClientCalls.blockingUnaryCall;
+import static io.grpc.stub.ClientCalls.futureUnaryCall;
+import static io.grpc.stub.ServerCalls.asyncBidiStreamingCall;
+import static io.grpc.stub.ServerCalls.asyncClientStreamingCall;
+import static io.grpc.stub.ServerCalls.asyncServerStreamingCall;
+import static io.grpc.stub.ServerCalls.asyncUnaryCall;
+import static io.grpc.stub.ServerCalls.asyncUnimplementedStreamingCall;
+import static io.grpc.stub.ServerCalls.asyncUnimplementedUnaryCall;
+
+/**
+ * <pre>
+ * The service definition.
+ * </pre>
+ */
+@javax.annotation.Generated(
+    value = "by gRPC proto compiler (version 1.18.0)",
+    comments = "Source: nopackages.proto")
+public final class nopackageserviceGrpc {
+
+  private nopackageserviceGrpc() {}
+
+  public static final String SERVICE_NAME = "nopackageservice";
+
+  // Static method descriptors that strictly reflect the proto.
+  private static volatile io.grpc.MethodDescriptor<NoPackageRequest,
+      NoPackageResponse> getNoPackageMethodMethod;
+
+  @io.grpc.stub.annotations.RpcMethod(
+      fullMethodName = SERVICE_NAME + '/' + "NoPackageMethod",
+      requestType = NoPackageRequest.class,
+      responseType = NoPackageResponse.class,
+      methodType = io.grpc.MethodDescriptor.MethodType.UNARY)
+  public static io.grpc.MethodDescriptor<NoPackageRequest,
+      NoPackageResponse> getNoPackageMethodMethod() {
+    io.grpc.MethodDescriptor<NoPackageRequest, NoPackageResponse> getNoPackageMethodMethod;
+    if ((getNoPackageMethodMethod = nopackageserviceGrpc.getNoPackageMethodMethod) == null) {
+      synchronized (nopackageserviceGrpc.class) {
+        if ((getNoPackageMethodMethod = nopackageserviceGrpc.getNoPackageMethodMethod) == null) {
+          nopackageserviceGrpc.getNoPackageMethodMethod = getNoPackageMethodMethod = 
+              io.grpc.MethodDescriptor.<NoPackageRequest, NoPackageResponse>newBuilder()
+              .setType(io.grpc.MethodDescriptor.MethodType.UNARY)
+              .setFullMethodName(generateFullMethodName(
+                  "nopackageservice", "NoPackageMethod"))
+              .setSampledToLocalTracing(true)
+              .setRequestMarshaller(io.grpc.protobuf.ProtoUtils.marshaller(
+                  NoPackageRequest.getDefaultInstance()))
+              .setResponseMarshaller(io.grpc.protobuf.ProtoUtils.marshaller(
+                  NoPackageResponse.getDefaultInstance()))
+                  .setSchemaDescriptor(new nopackageserviceMethodDescriptorSupplier("NoPackageMethod"))
+                  .build();
+          }
+        }
+     }
+     return getNoPackageMethodMethod;
+  }
+
+  /**
+   * Creates a new async stub that supports all call types for the service
+   */
+  public static nopackageserviceStub newStub(io.grpc.Channel channel) {
+    return new nopackageserviceStub(channel);
+  }
+
+  /**
+   * Creates a new blocking-style stub that supports unary and streaming output calls on the service
+   */
+  public static nopackageserviceBlockingStub newBlockingStub(
+      io.grpc.Channel channel) {
+    return new nopackageserviceBlockingStub(channel);
+  }
+
+  /**
+   * Creates a new ListenableFuture-style stub that supports unary calls on the service
+   */
+  public static nopackageserviceFutureStub newFutureStub(
+      io.grpc.Channel channel) {
+    return new nopackageserviceFutureStub(channel);
+  }
+
+  /**
+   * <pre>
+   * The service definition.
+   * </pre>
+   */
+  public static abstract class nopackageserviceImplBase implements io.grpc.BindableService {
+
+    /**
+     * <pre>
+     * Method within the service
+     * </pre>
+     */
+    public void noPackageMethod(NoPackageRequest request,
+        io.grpc.stub.StreamObserver<NoPackageResponse> responseObserver) {
+      asyncUnimplementedUnaryCall(getNoPackageMethodMethod(), responseObserver);
+    }
+
+    @java.lang.Override public final io.grpc.ServerServiceDefinition bindService() {
+      return io.grpc.ServerServiceDefinition.builder(getServiceDescriptor())
+          .addMethod(
+            getNoPackageMethodMethod(),
+            asyncUnaryCall(
+              new MethodHandlers<
+                NoPackageRequest,
+                NoPackageResponse>(
+                  this, METHODID_NO_PACKAGE_METHOD)))
+          .build();
+    }
+  }
+
+  /**
+   * <pre>
+   * The service definition.
+   * </pre>
+   */
+  public static final class nopackageserviceStub extends io.grpc.stub.AbstractStub<nopackageserviceStub> {
+    private nopackageserviceStub(io.grpc.Channel channel) {
+      super(channel);
+    }
+
+    private nopackageserviceStub(io.grpc.Channel channel,
+        io.grpc.CallOptions callOptions) {
+      super(channel, callOptions);
+    }
+
+    @java.lang.Override
+    protected nopackageserviceStub build(io.grpc.Channel channel,
+        io.grpc.CallOptions callOptions) {
+      return new nopackageserviceStub(channel, callOptions);
+    }
+
+    /**
+     * <pre>
+     * Method within the service
+     * </pre>
+     */
+    public void noPackageMethod(NoPackageRequest request,
+        io.grpc.stub.StreamObserver<NoPackageResponse> responseObserver) {
+      asyncUnaryCall(
+          getChannel().newCall(getNoPackageMethodMethod(), getCallOptions()), request, responseObserver);
+    }
+  }
+
+  /**
+   * <pre>
+   * The service definition.
+   * </pre>
+   */
+  public static final class nopackageserviceBlockingStub extends io.grpc.stub.AbstractStub<nopackageserviceBlockingStub> {
+    private nopackageserviceBlockingStub(io.grpc.Channel channel) {
+      super(channel);
+    }
+
+    private nopackageserviceBlockingStub(io.grpc.Channel channel,
+        io.grpc.CallOptions callOptions) {
+      super(channel, callOptions);
+    }
+
+    @java.lang.Override
+    protected nopackageserviceBlockingStub build(io.grpc.Channel channel,
+        io.grpc.CallOptions callOptions) {
+      return new nopackageserviceBlockingStub(channel, callOptions);
+    }
+
+    /**
+     * <pre>
+     * Method within the service
+     * </pre>
+     */
+    public NoPackageResponse noPackageMethod(NoPackageRequest request) {
+      return blockingUnaryCall(
+          getChannel(), getNoPackageMethodMethod(), getCallOptions(), request);
+    }
+  }
+
+  /**
+   * <pre>
+   * The service definition.
+   * </pre>
+   */
+  public static final class nopackageserviceFutureStub extends io.grpc.stub.AbstractStub<nopackageserviceFutureStub> {
+    private nopackageserviceFutureStub(io.grpc.Channel channel) {
+      super(channel);
+    }
+
+    private nopackageserviceFutureStub(io.grpc.Channel channel,
+        io.grpc.CallOptions callOptions) {
+      super(channel, callOptions);
+    }
+
+    @java.lang.Override
+    protected nopackageserviceFutureStub build(io.grpc.Channel channel,
+        io.grpc.CallOptions callOptions) {
+      return new nopackageserviceFutureStub(channel, callOptions);
+    }
+
+    /**
+     * <pre>
+     * Method within the service
+     * </pre>
+     */
+    public com.google.common.util.concurrent.ListenableFuture<NoPackageResponse> noPackageMethod(
+        NoPackageRequest request) {
+      return futureUnaryCall(
+          getChannel().newCall(getNoPackageMethodMethod(), getCallOptions()), request);
+    }
+  }
+
+  private static final int METHODID_NO_PACKAGE_METHOD = 0;
+
+  private static final class MethodHandlers<Req, Resp> implements
+      io.grpc.stub.ServerCalls.UnaryMethod<Req, Resp>,
+      io.grpc.stub.ServerCalls.ServerStreamingMethod<Req, Resp>,
+      io.grpc.stub.ServerCalls.ClientStreamingMethod<Req, Resp>,
+      io.grpc.stub.ServerCalls.BidiStreamingMethod<Req, Resp> {
+    private final nopackageserviceImplBase serviceImpl;
+    private final int methodId;
+
+    MethodHandlers(nopackageserviceImplBase serviceImpl, int methodId) {
+      this.serviceImpl = serviceImpl;
+      this.methodId = methodId;
+    }
+
+    @java.lang.Override
+    @java.lang.SuppressWarnings("unchecked")
+    public void invoke(Req request, io.grpc.stub.StreamObserver<Resp> responseObserver) {
+      switch (methodId) {
+        case METHODID_NO_PACKAGE_METHOD:
+          serviceImpl.noPackageMethod((NoPackageRequest) request,
+              (io.grpc.stub.StreamObserver<NoPackageResponse>) responseObserver);
+          break;
+        default:
+          throw new AssertionError();
+      }
+    }
+
+    @java.lang.Override
+    @java.lang.SuppressWarnings("unchecked")
+    public io.grpc.stub.StreamObserver<Req> invoke(
+        io.grpc.stub.StreamObserver<Resp> responseObserver) {
+      switch (methodId) {
+        default:
+          throw new AssertionError();
+      }
+    }
+  }
+
+  private static abstract class nopackageserviceBaseDescriptorSupplier
+      implements io.grpc.protobuf.ProtoFileDescriptorSupplier, io.grpc.protobuf.ProtoServiceDescriptorSupplier {
+    nopackageserviceBaseDescriptorSupplier() {}
+
+    @java.lang.Override
+    public com.google.protobuf.Descriptors.FileDescriptor getFileDescriptor() {
+      return NoPackageProto.getDescriptor();
+    }
+
+    @java.lang.Override
+    public com.google.protobuf.Descriptors.ServiceDescriptor getServiceDescriptor() {
+      return getFileDescriptor().findServiceByName("nopackageservice");
+    }
+  }
+
+  private static final class nopackageserviceFileDescriptorSupplier
+      extends nopackageserviceBaseDescriptorSupplier {
+    nopackageserviceFileDescriptorSupplier() {}
+  }
+
+  private static final class nopackageserviceMethodDescriptorSupplier
+      extends nopackageserviceBaseDescriptorSupplier
+      implements io.grpc.protobuf.ProtoMethodDescriptorSupplier {
+    private final String methodName;
+
+    nopackageserviceMethodDescriptorSupplier(String methodName) {
+      this.methodName = methodName;
+    }
+
+    @java.lang.Override
+    public com.google.protobuf.Descriptors.MethodDescriptor getMethodDescriptor() {
+      return getServiceDescriptor().findMethodByName(methodName);
+    }
+  }
+
+  private static volatile io.grpc.ServiceDescriptor serviceDescriptor;
+
+  public static io.grpc.ServiceDescriptor getServiceDescriptor() {
+    io.grpc.ServiceDescriptor result = serviceDescriptor;
+    if (result == null) {
+      synchronized (nopackageserviceGrpc.class) {
+        result = serviceDescriptor;
+        if (result == null) {
+          serviceDescriptor = result = io.grpc.ServiceDescriptor.newBuilder(SERVICE_NAME)
+              .setSchemaDescriptor(new nopackageserviceFileDescriptorSupplier())
+              .addMethod(getNoPackageMethodMethod())
+              .build();
+        }
+      }
+    }
+    return result;
+  }
+}
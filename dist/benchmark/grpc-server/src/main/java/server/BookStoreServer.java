@@ -23,6 +23,7 @@ import generated.com.google.endpoints.examples.bookstore.ListShelvesResponse;
 import generated.com.google.endpoints.examples.bookstore.ShelfProto.Shelf;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import io.grpc.protobuf.services.ProtoReflectionService;
 import io.grpc.stub.StreamObserver;
 import java.io.IOException;
 import java.util.Random;
@@ -43,6 +44,7 @@ public class BookStoreServer {
     int port = 8005;
     server = ServerBuilder.forPort(port)
         .addService(new BookstoreServicesImpl())
+        .addService(ProtoReflectionService.newInstance())
         .build()
         .start();
     logger.info("Server started, listening on " + port);
@@ -1,31 +1,56 @@
 package vn.zalopay.benchmark;
 
+import io.grpc.MethodDescriptor.MethodType;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 
+import org.apache.jmeter.engine.util.CompoundVariable;
 import org.apache.jmeter.samplers.AbstractSampler;
 import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.Interruptible;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jmeter.testelement.ThreadListener;
+import org.apache.jmeter.testelement.property.FunctionProperty;
+import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
 import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.util.JsonFormat;
 
 import vn.zalopay.benchmark.constant.GrpcSamplerConstant;
+import vn.zalopay.benchmark.core.ArrivalRateScheduler;
 import vn.zalopay.benchmark.core.ClientCaller;
+import vn.zalopay.benchmark.core.ClientCallerRegistry;
+import vn.zalopay.benchmark.core.config.ChannelStrategy;
 import vn.zalopay.benchmark.core.config.GrpcRequestConfig;
+import vn.zalopay.benchmark.core.config.ResponseCaptureMode;
+import vn.zalopay.benchmark.core.config.SamplerDataMode;
+import vn.zalopay.benchmark.core.message.RequestTemplate;
 import vn.zalopay.benchmark.core.protobuf.ProtocInvoker;
+import vn.zalopay.benchmark.core.protobuf.ServerReflectionClient;
 import vn.zalopay.benchmark.core.specification.GrpcResponse;
+import vn.zalopay.benchmark.core.specification.GrpcSampleResult;
 import vn.zalopay.benchmark.util.ExceptionUtils;
 
-import java.nio.charset.StandardCharsets;
-//import java.util.concurrent.locks.ReentrantLock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
-public class GRPCSampler extends AbstractSampler implements ThreadListener, TestStateListener {
+public class GRPCSampler extends AbstractSampler
+        implements ThreadListener, TestStateListener, Interruptible {
 
     private static final Logger log = LoggerFactory.getLogger(GRPCSampler.class);
     private static final long serialVersionUID = 232L;
@@ -45,9 +70,41 @@ public class GRPCSampler extends AbstractSampler implements ThreadListener, Test
             "GRPCSampler" + ".maxInboundMessageSize";
     public static final String CHANNEL_MAX_INBOUND_METADATA_SIZE =
             "GRPCSampler.maxInboundMetadataSize";
-    private static transient ClientCaller clientCaller;
-    //private static transient ReentrantLock lock = new ReentrantLock();
-    //private GrpcRequestConfig grpcRequestConfig;
+    public static final String CHANNEL_STRATEGY = "GRPCSampler.channelStrategy";
+    public static final String CHANNEL_POOL_SIZE = "GRPCSampler.channelPoolSize";
+    public static final String CHANNEL_DIRECT_EXECUTOR = "GRPCSampler.directExecutor";
+    public static final String CHANNEL_FLOW_CONTROL_WINDOW = "GRPCSampler.flowControlWindow";
+    public static final String CHANNEL_FLOW_CONTROL_AUTO_TUNING_DISABLED =
+            "GRPCSampler.flowControlAutoTuningDisabled";
+    public static final String CHANNEL_KEEP_ALIVE_TIME = "GRPCSampler.keepAliveTime";
+    public static final String CHANNEL_KEEP_ALIVE_TIMEOUT = "GRPCSampler.keepAliveTimeout";
+    public static final String CHANNEL_KEEP_ALIVE_WITHOUT_CALLS =
+            "GRPCSampler.keepAliveWithoutCalls";
+    public static final String CHANNEL_IDLE_TIMEOUT = "GRPCSampler.idleTimeout";
+    public static final String REQUEST_TEMPLATE = "GRPCSampler.requestTemplate";
+    public static final String RESPONSE_CAPTURE_MODE = "GRPCSampler.responseCaptureMode";
+    public static final String SAMPLER_DATA_MODE = "GRPCSampler.samplerDataMode";
+    public static final String SAMPLER_DATA_SAMPLE_RATE = "GRPCSampler.samplerDataSampleRate";
+    private static final double DEFAULT_SAMPLER_DATA_SAMPLE_RATE = 0.01;
+    public static final String ASYNC_RATE = "GRPCSampler.asyncRate";
+    public static final String ASYNC_MAX_IN_FLIGHT = "GRPCSampler.asyncMaxInFlight";
+    public static final String PIPELINE_DEPTH = "GRPCSampler.pipelineDepth";
+    public static final String STREAM_MESSAGE_RESULTS = "GRPCSampler.streamMessageResults";
+    public static final String WARM_UP = "GRPCSampler.warmUp";
+    public static final String WARM_UP_TIMEOUT = "GRPCSampler.warmUpTimeout";
+    public static final String WARM_UP_CALLS = "GRPCSampler.warmUpCalls";
+    private static final long ASYNC_MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // Resolved lazily from ClientCallerRegistry, once per thread clone of this sampler.
+    private transient ClientCaller clientCaller;
+    // Compiled on the first sample of each thread clone when the request template is enabled.
+    private transient RequestTemplate requestTemplate;
+    private transient List<CompoundVariable> requestTemplateValues;
+    private transient boolean requestTemplateCompiled;
+    private transient JsonFormat.Printer requestPrinter;
+    private transient JsonFormat.TypeRegistry requestPrinterRegistry;
+    // Created on the first sample of each thread clone when an async rate is configured.
+    private transient ArrivalRateScheduler arrivalRateScheduler;
+    private transient volatile boolean interrupted;
 
     public GRPCSampler() {
         super();
@@ -90,20 +147,53 @@ public class GRPCSampler extends AbstractSampler implements ThreadListener, Test
 
     @Override
     public SampleResult sample(Entry ignored) {
-        SampleResult sampleResult = new SampleResult();
+        GrpcSampleResult sampleResult = new GrpcSampleResult();
         sampleResult.setSampleLabel(getName());
 
-        // if (!initGrpcRequestSampler(sampleResult)) {
-        //     return sampleResult;
-        // }
+        try {
+            getClientCaller();
+        } catch (Exception e) {
+            log.error("Unable to create gRPC client for {}", getName(), e);
+            generateErrorResultInInitGRPCRequest(sampleResult, e);
+            return sampleResult;
+        }
+        // Async, pipelined and template requests are only supported by unary methods
+        boolean unary = clientCaller.getMethodType() == MethodType.UNARY;
+        if (unary && getAsyncRate() > 0) {
+            return sampleAtArrivalRate();
+        }
+        if (unary && getPipelineDepth() > 1) {
+            return samplePipelined(sampleResult);
+        }
+        if (unary && isRequestTemplate() && getRequestTemplate() != null) {
+            ByteString grpcRequest = initTemplateRequestInCurrentThread(sampleResult);
+            sampleResult.sampleStart();
+            processGrpcResponse(sampleResult, clientCaller.call(getDeadline(), grpcRequest));
+            recordFailedSamplerData(
+                    sampleResult,
+                    () -> parseTemplateRequest(grpcRequest),
+                    getFailedSamplerDataPrinter());
+            return sampleResult;
+        }
+
         ImmutableList<DynamicMessage> grpcRequest = initGrpcInCurrentThread(sampleResult);
+        sampleResult.sampleStart();
 
         // Initiate a GRPC request
         processGrpcRequestSampler(sampleResult, grpcRequest);
+        recordFailedSamplerData(
+                sampleResult, () -> grpcRequest.get(0), getFailedSamplerDataPrinter());
 
         return sampleResult;
     }
 
+    /** Stops waiting for async completions when the test is stopped. */
+    @Override
+    public boolean interrupt() {
+        interrupted = true;
+        return arrivalRateScheduler != null;
+    }
+
     @Override
     public void clear() {
         super.clear();
@@ -112,19 +202,33 @@ public class GRPCSampler extends AbstractSampler implements ThreadListener, Test
     @Override
     public void threadStarted() {
         log.debug("\ttestStarted: {}", whoAmI());
+        if (isWarmUp() && getChannelStrategy() == ChannelStrategy.PER_THREAD) {
+            try {
+                getClientCaller();
+            } catch (Exception e) {
+                // Reported by the first sample of the thread
+                log.warn("Skipping warm-up of {}: {}", whoAmI(), e.getMessage());
+                return;
+            }
+            warmUp();
+        }
     }
 
     @Override
     public void threadFinished() {
         log.debug("\ttestEnded: {}", whoAmI());
-        // if (clientCaller != null) {
-        //     clientCaller.shutdownNettyChannel();
-        //     clientCaller = null;
-        // }
-        // clear state of grpc config for rerun with new config in GUI mode
-        // if (grpcRequestConfig != null) {
-        //     grpcRequestConfig = null;
-        // }
+        // The caller is owned by the registry and shut down in testEnded, but a per-thread channel
+        // is only used by this thread
+        if (clientCaller != null && getChannelStrategy() == ChannelStrategy.PER_THREAD) {
+            clientCaller.shutdownThreadChannel();
+        }
+        clientCaller = null;
+        if (arrivalRateScheduler != null && arrivalRateScheduler.getInFlight() > 0) {
+            log.info(
+                    "{} async calls still in flight were not reported",
+                    arrivalRateScheduler.getInFlight());
+        }
+        arrivalRateScheduler = null;
     }
 
     private String whoAmI() {
@@ -154,26 +258,119 @@ public class GRPCSampler extends AbstractSampler implements ThreadListener, Test
         sampleResult.setResponseData(ExceptionUtils.getPrintExceptionToStr(e, null), "UTF-8");
     }
 
-    private void processGrpcRequestSampler(SampleResult sampleResult, ImmutableList<DynamicMessage> requestMessages) {
-        GrpcResponse grpcResponse = clientCaller.call(getDeadline(), requestMessages);
+    private void processGrpcRequestSampler(
+            GrpcSampleResult sampleResult, ImmutableList<DynamicMessage> requestMessages) {
+        processGrpcResponse(sampleResult, callByMethodType(requestMessages));
+    }
+
+    private GrpcResponse callByMethodType(ImmutableList<DynamicMessage> requestMessages) {
+        String deadline = getDeadline();
+        try {
+            switch (clientCaller.getMethodType()) {
+                case SERVER_STREAMING:
+                    return clientCaller.callServerStreaming(deadline, requestMessages);
+                case CLIENT_STREAMING:
+                    return clientCaller.callClientStreaming(deadline, requestMessages);
+                case BIDI_STREAMING:
+                    return clientCaller.callBidiStreaming(deadline, requestMessages);
+                default:
+                    return clientCaller.call(deadline, requestMessages);
+            }
+        } catch (RuntimeException e) {
+            // Client and bidi streaming calls throw on errors instead of reporting them
+            GrpcResponse grpcResponse = new GrpcResponse();
+            grpcResponse.recordMessageArrivals();
+            grpcResponse.setSuccess(false);
+            grpcResponse.setThrowable(
+                    e.getCause() instanceof ExecutionException ? e.getCause().getCause() : e);
+            return grpcResponse;
+        }
+    }
+
+    private void processGrpcResponse(GrpcSampleResult sampleResult, GrpcResponse grpcResponse) {
         sampleResult.sampleEnd();
+        fillGrpcResponse(
+                sampleResult, grpcResponse, getResponseCaptureMode(), isStreamMessageResults());
+    }
+
+    /**
+     * Fills in the result of a call. Only reads the given options, not the sampler, so it may run
+     * on the thread completing an async call.
+     */
+    private static void fillGrpcResponse(
+            GrpcSampleResult sampleResult,
+            GrpcResponse grpcResponse,
+            ResponseCaptureMode captureMode,
+            boolean streamMessageResults) {
         sampleResult.setDataType(SampleResult.TEXT);
         if (grpcResponse.isSuccess()) {
-            generateSuccessResult(grpcResponse, sampleResult);
+            generateSuccessResult(grpcResponse, sampleResult, captureMode);
         } else {
             generateErrorResult(grpcResponse, sampleResult);
         }
+        if (grpcResponse.isMessageArrivalsRecorded()) {
+            generateStreamResult(grpcResponse, sampleResult, streamMessageResults);
+        }
     }
 
-    private void generateSuccessResult(GrpcResponse grpcResponse, SampleResult sampleResult) {
+    /**
+     * Reports the timing of a streamed response. The latency is the time to the first message, and
+     * each message can be stored as a sub-result timed from the arrival of the previous one.
+     */
+    private static void generateStreamResult(
+            GrpcResponse grpcResponse, SampleResult sampleResult, boolean streamMessageResults) {
+        long[] arrivalNanos = grpcResponse.getMessageArrivalNanos();
+        if (arrivalNanos.length > 0) {
+            sampleResult.setLatency(TimeUnit.NANOSECONDS.toMillis(arrivalNanos[0]));
+        }
+        sampleResult.setResponseMessage(
+                sampleResult.getResponseMessage() + ", " + arrivalNanos.length + " messages");
+        if (!streamMessageResults) {
+            return;
+        }
+        long previousNanos = 0;
+        for (int i = 0; i < arrivalNanos.length; i++) {
+            SampleResult messageResult = new SampleResult();
+            messageResult.setSampleLabel(sampleResult.getSampleLabel());
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(arrivalNanos[i] - previousNanos);
+            long startTime =
+                    sampleResult.getStartTime() + TimeUnit.NANOSECONDS.toMillis(previousNanos);
+            // The stamp is the end time unless JMeter is configured to stamp samples at their start
+            messageResult.setStampAndTime(
+                    messageResult.isStampedAtStart() ? startTime : startTime + elapsed, elapsed);
+            messageResult.setLatency(elapsed);
+            messageResult.setSuccessful(true);
+            messageResult.setResponseCodeOK();
+            messageResult.setBytes((long) grpcResponse.getGrpcMessageSize(i));
+            sampleResult.storeSubResult(messageResult);
+            previousNanos = arrivalNanos[i];
+        }
+    }
+
+    private static void generateSuccessResult(
+            GrpcResponse grpcResponse,
+            GrpcSampleResult sampleResult,
+            ResponseCaptureMode captureMode) {
         sampleResult.setSuccessful(true);
         sampleResult.setResponseCodeOK();
         sampleResult.setResponseMessage(" success");
-        sampleResult.setResponseData(
-                grpcResponse.getGrpcMessageString().getBytes(StandardCharsets.UTF_8));
+        switch (captureMode) {
+            case NONE:
+                return;
+            case SIZE_ONLY:
+                break;
+            case RAW_BYTES:
+                sampleResult.setDataType(SampleResult.BINARY);
+                sampleResult.setResponseData(grpcResponse.getGrpcMessageBytes());
+                break;
+            case JSON:
+            default:
+                sampleResult.setResponseDataLazily(grpcResponse);
+        }
+        sampleResult.setBytes((long) grpcResponse.getGrpcMessageSize());
     }
 
-    private void generateErrorResult(GrpcResponse grpcResponse, SampleResult sampleResult) {
+    private static void generateErrorResult(GrpcResponse grpcResponse, SampleResult sampleResult) {
         Throwable throwable = grpcResponse.getThrowable();
         sampleResult.setSuccessful(false);
         sampleResult.setResponseCode(" 500");
@@ -185,7 +382,7 @@ public class GRPCSampler extends AbstractSampler implements ThreadListener, Test
         }
     }
 
-    private void generateStatusRuntimeExceptionResponseData(
+    private static void generateStatusRuntimeExceptionResponseData(
             SampleResult sampleResult, Throwable throwable) {
         String responseMessage = " ";
         String responseData = "";
@@ -197,7 +394,7 @@ public class GRPCSampler extends AbstractSampler implements ThreadListener, Test
         sampleResult.setResponseData(responseData, "UTF-8");
     }
 
-    private void generateExceptionInInvokeSendGrpcResponseData(
+    private static void generateExceptionInInvokeSendGrpcResponseData(
             SampleResult sampleResult, Throwable throwable) {
         String responseMessage = " ";
         responseMessage += ExceptionUtils.getPrintExceptionToStr(throwable, 0);
@@ -209,18 +406,254 @@ public class GRPCSampler extends AbstractSampler implements ThreadListener, Test
         //initGrpcConfigRequest();
         //initGrpcClient();
         ImmutableList<DynamicMessage> grpcRequest = clientCaller.buildRequestAndMetadata(getRequestJson(), getMetadata());
+        if (isSamplerDataRecordedBeforeCall()) {
+            try {
+                sampleResult.setSamplerData(getRequestPrinter().print(grpcRequest.get(0)));
+            } catch (Exception e) {
+                generateErrorResultInInitGRPCRequest(sampleResult, e);
+            }
+        }
+        sampleResult.setRequestHeaders(clientCaller.getMetadataString());
+        return grpcRequest;
+    }
+
+    private ByteString initTemplateRequestInCurrentThread(SampleResult sampleResult) {
+        clientCaller.buildMetadata(getMetadata());
+        List<String> values = new ArrayList<>(requestTemplateValues.size());
+        for (CompoundVariable value : requestTemplateValues) {
+            values.add(value.execute());
+        }
+        ByteString grpcRequest = requestTemplate.render(values);
+        if (isSamplerDataRecordedBeforeCall()) {
+            try {
+                sampleResult.setSamplerData(
+                        getRequestPrinter().print(parseTemplateRequest(grpcRequest)));
+            } catch (Exception e) {
+                generateErrorResultInInitGRPCRequest(sampleResult, e);
+            }
+        }
+        sampleResult.setRequestHeaders(clientCaller.getMetadataString());
+        return grpcRequest;
+    }
+
+    /**
+     * Sends every call that is due at the configured arrival rate without waiting for responses,
+     * then returns the result of one completed call. Returns null if the thread is stopped before
+     * any call completes.
+     */
+    private SampleResult sampleAtArrivalRate() {
+        if (arrivalRateScheduler == null) {
+            arrivalRateScheduler = new ArrivalRateScheduler(getAsyncRate(), getAsyncMaxInFlight());
+        }
+        interrupted = false;
         try {
-            String reqStr = JsonFormat.printer()
-                        .includingDefaultValueFields()
-                        .usingTypeRegistry(clientCaller.getRegistry())
-                        .print(grpcRequest.get(0));
-            sampleResult.setSamplerData(reqStr);
+            while (!interrupted) {
+                long intendedNanos;
+                while ((intendedNanos = arrivalRateScheduler.nextDueSend()) >= 0) {
+                    sendAsync(intendedNanos);
+                }
+                SampleResult sampleResult =
+                        arrivalRateScheduler.awaitCompletion(ASYNC_MAX_WAIT_NANOS);
+                if (sampleResult != null) {
+                    return sampleResult;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private void sendAsync(long intendedNanos) {
+        // Calls may complete after threadFinished has dropped the scheduler
+        ArrivalRateScheduler scheduler = arrivalRateScheduler;
+        GrpcSampleResult sampleResult = new GrpcSampleResult();
+        sampleResult.setSampleLabel(getName());
+        startAsyncCall(sampleResult, false)
+                .addListener(
+                        () -> scheduler.complete(sampleResult, intendedNanos),
+                        MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Sends {@link #getPipelineDepth()} unary calls at once and waits for all of them. Each call is
+     * reported as a sub-result of the returned result, which only succeeds if every call does.
+     */
+    private SampleResult samplePipelined(GrpcSampleResult sampleResult) {
+        int depth = getPipelineDepth();
+        List<GrpcSampleResult> callResults = new ArrayList<>(depth);
+        List<ListenableFuture<GrpcSampleResult>> callFutures = new ArrayList<>(depth);
+        sampleResult.sampleStart();
+        for (int i = 0; i < depth; i++) {
+            GrpcSampleResult callResult = new GrpcSampleResult();
+            callResult.setSampleLabel(getName());
+            callResults.add(callResult);
+            callFutures.add(startAsyncCall(callResult, true));
+        }
+        try {
+            Futures.successfulAsList(callFutures).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Never thrown, failed calls are reported through their results
+        }
+        sampleResult.sampleEnd();
+
+        int failed = 0;
+        for (GrpcSampleResult callResult : callResults) {
+            if (!callResult.isSuccessful()) {
+                failed++;
+            }
+            sampleResult.addSubResult(callResult);
+        }
+        sampleResult.setDataType(SampleResult.TEXT);
+        sampleResult.setSuccessful(failed == 0);
+        if (failed == 0) {
+            sampleResult.setResponseCodeOK();
+            sampleResult.setResponseMessage(" success");
+        } else {
+            sampleResult.setResponseCode(" 500");
+            sampleResult.setResponseMessage(" " + failed + " of " + depth + " calls failed");
+        }
+        return sampleResult;
+    }
+
+    /**
+     * Builds the request and starts a unary call without waiting for it. The returned future
+     * completes with the result once it has been filled in, and never fails. Untimed results are
+     * left for the caller to stamp.
+     */
+    private ListenableFuture<GrpcSampleResult> startAsyncCall(
+            GrpcSampleResult sampleResult, boolean timed) {
+        // The callback may run on an event loop, so it only uses what is read here
+        ResponseCaptureMode captureMode = getResponseCaptureMode();
+        boolean streamMessageResults = isStreamMessageResults();
+        JsonFormat.Printer failedSamplerDataPrinter;
+        ListenableFuture<GrpcResponse> responseFuture;
+        Callable<? extends Message> request;
+        try {
+            if (isRequestTemplate() && getRequestTemplate() != null) {
+                ByteString grpcRequest = initTemplateRequestInCurrentThread(sampleResult);
+                Descriptors.Descriptor descriptor = requestTemplate.getDescriptor();
+                request = () -> DynamicMessage.parseFrom(descriptor, grpcRequest);
+                failedSamplerDataPrinter = getFailedSamplerDataPrinter();
+                if (timed) {
+                    sampleResult.sampleStart();
+                }
+                responseFuture = clientCaller.callAsync(getDeadline(), grpcRequest);
+            } else {
+                ImmutableList<DynamicMessage> grpcRequest = initGrpcInCurrentThread(sampleResult);
+                request = () -> grpcRequest.get(0);
+                // Built once the request is parsed, so the printer knows its "Any" types
+                failedSamplerDataPrinter = getFailedSamplerDataPrinter();
+                if (timed) {
+                    sampleResult.sampleStart();
+                }
+                responseFuture = clientCaller.callAsync(getDeadline(), grpcRequest);
+            }
         } catch (Exception e) {
             generateErrorResultInInitGRPCRequest(sampleResult, e);
+            return Futures.immediateFuture(sampleResult);
         }
-        sampleResult.setRequestHeaders(clientCaller.getMetadataString());
-        sampleResult.sampleStart();
-        return grpcRequest;
+        return Futures.transform(
+                responseFuture,
+                grpcResponse -> {
+                    if (timed) {
+                        sampleResult.sampleEnd();
+                    }
+                    fillGrpcResponse(
+                            sampleResult, grpcResponse, captureMode, streamMessageResults);
+                    recordFailedSamplerData(sampleResult, request, failedSamplerDataPrinter);
+                    return sampleResult;
+                },
+                MoreExecutors.directExecutor());
+    }
+
+    private DynamicMessage parseTemplateRequest(ByteString grpcRequest)
+            throws InvalidProtocolBufferException {
+        return DynamicMessage.parseFrom(requestTemplate.getDescriptor(), grpcRequest);
+    }
+
+    private boolean isSamplerDataRecordedBeforeCall() {
+        switch (getSamplerDataMode()) {
+            case ALWAYS:
+                return true;
+            case SAMPLED:
+                return ThreadLocalRandom.current().nextDouble() < getSamplerDataSampleRate();
+            default:
+                return false;
+        }
+    }
+
+    /** Returns the printer for requests of failed samples, or null if they aren't recorded. */
+    private JsonFormat.Printer getFailedSamplerDataPrinter() {
+        return getSamplerDataMode() == SamplerDataMode.FAILED_ONLY ? getRequestPrinter() : null;
+    }
+
+    /**
+     * Prints the request of a failed sample once the call is over, so it isn't timed. Does nothing
+     * without a printer.
+     */
+    private static void recordFailedSamplerData(
+            SampleResult sampleResult,
+            Callable<? extends Message> request,
+            JsonFormat.Printer printer) {
+        if (sampleResult.isSuccessful() || printer == null) {
+            return;
+        }
+        try {
+            sampleResult.setSamplerData(printer.print(request.call()));
+        } catch (Exception e) {
+            log.warn(
+                    "Unable to print request of failed sample {}",
+                    sampleResult.getSampleLabel(),
+                    e);
+        }
+    }
+
+    private JsonFormat.Printer getRequestPrinter() {
+        // The registry grows as requests with new "Any" values are parsed
+        JsonFormat.TypeRegistry registry = clientCaller.getRegistry();
+        if (requestPrinter == null || requestPrinterRegistry != registry) {
+            requestPrinter =
+                    JsonFormat.printer().includingDefaultValueFields().usingTypeRegistry(registry);
+            requestPrinterRegistry = registry;
+        }
+        return requestPrinter;
+    }
+
+    /**
+     * Compiles the request template on first use, returning null if the request JSON can't be used
+     * as one. Samples then fall back to evaluating and parsing the JSON each time.
+     */
+    private RequestTemplate getRequestTemplate() {
+        if (!requestTemplateCompiled) {
+            requestTemplateCompiled = true;
+            try {
+                RequestTemplate template = clientCaller.compileRequestTemplate(getRawRequestJson());
+                List<CompoundVariable> values = new ArrayList<>();
+                for (String expression : template.getExpressions()) {
+                    values.add(new CompoundVariable(expression));
+                }
+                requestTemplateValues = values;
+                requestTemplate = template;
+            } catch (IllegalArgumentException e) {
+                log.warn(
+                        "Request template disabled for {}, parsing the request JSON instead: {}",
+                        getName(),
+                        e.getMessage());
+            }
+        }
+        return requestTemplate;
+    }
+
+    /** Returns the request JSON as entered, before JMeter evaluates its expressions. */
+    private String getRawRequestJson() {
+        JMeterProperty property = getProperty(REQUEST_JSON);
+        if (property instanceof FunctionProperty) {
+            return ((CompoundVariable) property.getObjectValue()).getRawParameters();
+        }
+        return property.getStringValue();
     }
 
     /** GETTER AND SETTER */
@@ -328,6 +761,173 @@ public class GRPCSampler extends AbstractSampler implements ThreadListener, Test
         setProperty(CHANNEL_MAX_INBOUND_METADATA_SIZE, channelMaxInboundMetadataSize);
     }
 
+    public ChannelStrategy getChannelStrategy() {
+        return ChannelStrategy.fromString(getPropertyAsString(CHANNEL_STRATEGY));
+    }
+
+    public void setChannelStrategy(String channelStrategy) {
+        setProperty(CHANNEL_STRATEGY, channelStrategy);
+    }
+
+    public int getChannelPoolSize() {
+        return getPropertyAsInt(CHANNEL_POOL_SIZE, 1);
+    }
+
+    public void setChannelPoolSize(String channelPoolSize) {
+        setProperty(CHANNEL_POOL_SIZE, channelPoolSize);
+    }
+
+    public boolean isChannelDirectExecutor() {
+        return getPropertyAsBoolean(CHANNEL_DIRECT_EXECUTOR);
+    }
+
+    public void setChannelDirectExecutor(boolean directExecutor) {
+        setProperty(CHANNEL_DIRECT_EXECUTOR, directExecutor);
+    }
+
+    public int getChannelFlowControlWindow() {
+        return getPropertyAsInt(CHANNEL_FLOW_CONTROL_WINDOW, 0);
+    }
+
+    public void setChannelFlowControlWindow(String channelFlowControlWindow) {
+        setProperty(CHANNEL_FLOW_CONTROL_WINDOW, channelFlowControlWindow);
+    }
+
+    public boolean isChannelFlowControlAutoTuningDisabled() {
+        return getPropertyAsBoolean(CHANNEL_FLOW_CONTROL_AUTO_TUNING_DISABLED);
+    }
+
+    public void setChannelFlowControlAutoTuningDisabled(boolean autoTuningDisabled) {
+        setProperty(CHANNEL_FLOW_CONTROL_AUTO_TUNING_DISABLED, autoTuningDisabled);
+    }
+
+    public int getChannelKeepAliveTime() {
+        return getPropertyAsInt(CHANNEL_KEEP_ALIVE_TIME, 0);
+    }
+
+    public void setChannelKeepAliveTime(String channelKeepAliveTime) {
+        setProperty(CHANNEL_KEEP_ALIVE_TIME, channelKeepAliveTime);
+    }
+
+    public int getChannelKeepAliveTimeout() {
+        return getPropertyAsInt(CHANNEL_KEEP_ALIVE_TIMEOUT, 0);
+    }
+
+    public void setChannelKeepAliveTimeout(String channelKeepAliveTimeout) {
+        setProperty(CHANNEL_KEEP_ALIVE_TIMEOUT, channelKeepAliveTimeout);
+    }
+
+    public boolean isChannelKeepAliveWithoutCalls() {
+        return getPropertyAsBoolean(CHANNEL_KEEP_ALIVE_WITHOUT_CALLS);
+    }
+
+    public void setChannelKeepAliveWithoutCalls(boolean keepAliveWithoutCalls) {
+        setProperty(CHANNEL_KEEP_ALIVE_WITHOUT_CALLS, keepAliveWithoutCalls);
+    }
+
+    public int getChannelIdleTimeout() {
+        return getPropertyAsInt(CHANNEL_IDLE_TIMEOUT, 0);
+    }
+
+    public void setChannelIdleTimeout(String channelIdleTimeout) {
+        setProperty(CHANNEL_IDLE_TIMEOUT, channelIdleTimeout);
+    }
+
+    public boolean isStreamMessageResults() {
+        return getPropertyAsBoolean(STREAM_MESSAGE_RESULTS);
+    }
+
+    public void setStreamMessageResults(boolean streamMessageResults) {
+        setProperty(STREAM_MESSAGE_RESULTS, streamMessageResults);
+    }
+
+    public boolean isRequestTemplate() {
+        return getPropertyAsBoolean(REQUEST_TEMPLATE);
+    }
+
+    public void setRequestTemplate(boolean requestTemplate) {
+        setProperty(REQUEST_TEMPLATE, requestTemplate);
+    }
+
+    public ResponseCaptureMode getResponseCaptureMode() {
+        return ResponseCaptureMode.fromString(getPropertyAsString(RESPONSE_CAPTURE_MODE));
+    }
+
+    public void setResponseCaptureMode(String responseCaptureMode) {
+        setProperty(RESPONSE_CAPTURE_MODE, responseCaptureMode);
+    }
+
+    public SamplerDataMode getSamplerDataMode() {
+        return SamplerDataMode.fromString(getPropertyAsString(SAMPLER_DATA_MODE));
+    }
+
+    public void setSamplerDataMode(String samplerDataMode) {
+        setProperty(SAMPLER_DATA_MODE, samplerDataMode);
+    }
+
+    public double getSamplerDataSampleRate() {
+        try {
+            return Double.parseDouble(
+                    getPropertyAsString(
+                            SAMPLER_DATA_SAMPLE_RATE,
+                            Double.toString(DEFAULT_SAMPLER_DATA_SAMPLE_RATE)));
+        } catch (NumberFormatException e) {
+            return DEFAULT_SAMPLER_DATA_SAMPLE_RATE;
+        }
+    }
+
+    public void setSamplerDataSampleRate(String samplerDataSampleRate) {
+        setProperty(SAMPLER_DATA_SAMPLE_RATE, samplerDataSampleRate);
+    }
+
+    public double getAsyncRate() {
+        return getPropertyAsDouble(ASYNC_RATE);
+    }
+
+    public void setAsyncRate(String asyncRate) {
+        setProperty(ASYNC_RATE, asyncRate);
+    }
+
+    public int getAsyncMaxInFlight() {
+        return getPropertyAsInt(ASYNC_MAX_IN_FLIGHT, 1000);
+    }
+
+    public void setAsyncMaxInFlight(String asyncMaxInFlight) {
+        setProperty(ASYNC_MAX_IN_FLIGHT, asyncMaxInFlight);
+    }
+
+    public int getPipelineDepth() {
+        return getPropertyAsInt(PIPELINE_DEPTH, 1);
+    }
+
+    public void setPipelineDepth(String pipelineDepth) {
+        setProperty(PIPELINE_DEPTH, pipelineDepth);
+    }
+
+    public boolean isWarmUp() {
+        return getPropertyAsBoolean(WARM_UP);
+    }
+
+    public void setWarmUp(boolean warmUp) {
+        setProperty(WARM_UP, warmUp);
+    }
+
+    public int getWarmUpTimeout() {
+        return getPropertyAsInt(WARM_UP_TIMEOUT, 5000);
+    }
+
+    public void setWarmUpTimeout(String warmUpTimeout) {
+        setProperty(WARM_UP_TIMEOUT, warmUpTimeout);
+    }
+
+    public int getWarmUpCalls() {
+        return getPropertyAsInt(WARM_UP_CALLS, 0);
+    }
+
+    public void setWarmUpCalls(String warmUpCalls) {
+        setProperty(WARM_UP_CALLS, warmUpCalls);
+    }
+
     private String getHostPort() {
         return getHost() + ":" + getPort();
     }
@@ -342,21 +942,76 @@ public class GRPCSampler extends AbstractSampler implements ThreadListener, Test
     @Override
     public void testStarted(String s) {
         log.info("testStarted {}", s);
-        if (clientCaller != null) {
-            clientCaller.shutdownNettyChannel();
-        }
-        GrpcRequestConfig grpcCallerConf = GrpcRequestConfig.builder()
-                            .hostPort(getHostPort())
-                            .protoFolder(getProtoFolder())
-                            .libFolder(getLibFolder())
-                            .fullMethod(getFullMethod())
-                            .tls(isTls())
-                            .tlsDisableVerification(isTlsDisableVerification())
-                            .awaitTerminationTimeout(getChannelShutdownAwaitTime())
-                            .maxInboundMessageSize(getChannelMaxInboundMessageSize())
-                            .maxInboundMetadataSize(getChannelMaxInboundMetadataSize())
-                            .build();
-        clientCaller = new ClientCaller(grpcCallerConf);
+        // Build (or reuse) the caller for this sampler's target up front so protoc runs once
+        // per distinct config before any sample is taken.
+        clientCaller = ClientCallerRegistry.getClientCaller(buildGrpcRequestConfig());
+        // Per-thread channels are warmed up by their own thread, in threadStarted
+        if (isWarmUp() && getChannelStrategy() != ChannelStrategy.PER_THREAD) {
+            warmUp();
+        }
+    }
+
+    /**
+     * Connects the channels the current thread calls through and sends the configured number of
+     * calls, none of them recorded, so that the first samples neither wait for the connections nor
+     * run on cold code.
+     */
+    private void warmUp() {
+        long startNanos = System.nanoTime();
+        int ready = clientCaller.awaitChannelsReady(getWarmUpTimeout());
+        log.info(
+                "{} channels of {} ready after {} ms",
+                ready,
+                getName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        int calls = getWarmUpCalls();
+        if (calls <= 0) {
+            return;
+        }
+        ImmutableList<DynamicMessage> requestMessages;
+        try {
+            requestMessages = clientCaller.buildRequestAndMetadata(getRequestJson(), getMetadata());
+        } catch (RuntimeException e) {
+            log.warn("Skipping warm-up calls of {}: {}", getName(), e.getMessage());
+            return;
+        }
+        int failed = 0;
+        for (int i = 0; i < calls; i++) {
+            if (!callByMethodType(requestMessages).isSuccess()) {
+                failed++;
+            }
+        }
+        log.info("{} warm-up calls of {} sent, {} failed", calls, getName(), failed);
+    }
+
+    private ClientCaller getClientCaller() {
+        if (clientCaller == null) {
+            clientCaller = ClientCallerRegistry.getClientCaller(buildGrpcRequestConfig());
+        }
+        return clientCaller;
+    }
+
+    private GrpcRequestConfig buildGrpcRequestConfig() {
+        return GrpcRequestConfig.builder()
+                .hostPort(getHostPort())
+                .protoFolder(getProtoFolder())
+                .libFolder(getLibFolder())
+                .fullMethod(getFullMethod())
+                .tls(isTls())
+                .tlsDisableVerification(isTlsDisableVerification())
+                .awaitTerminationTimeout(getChannelShutdownAwaitTime())
+                .maxInboundMessageSize(getChannelMaxInboundMessageSize())
+                .maxInboundMetadataSize(getChannelMaxInboundMetadataSize())
+                .channelStrategy(getChannelStrategy())
+                .channelPoolSize(getChannelPoolSize())
+                .directExecutor(isChannelDirectExecutor())
+                .flowControlWindow(getChannelFlowControlWindow())
+                .flowControlAutoTuningDisabled(isChannelFlowControlAutoTuningDisabled())
+                .keepAliveTime(getChannelKeepAliveTime())
+                .keepAliveTimeout(getChannelKeepAliveTimeout())
+                .keepAliveWithoutCalls(isChannelKeepAliveWithoutCalls())
+                .idleTimeout(getChannelIdleTimeout())
+                .build();
     }
 
     @Override
@@ -367,10 +1022,10 @@ public class GRPCSampler extends AbstractSampler implements ThreadListener, Test
     @Override
     public void testEnded(String s) {
         log.info("testEnded {}", s);
-        if (clientCaller != null) {
-            clientCaller.shutdownNettyChannel();
-            clientCaller = null;
-        }
+        clientCaller = null;
+        ClientCallerRegistry.shutdownAll();
+        // The next test may run against redeployed servers, whose services may have changed
+        ServerReflectionClient.clearCache();
         ProtocInvoker.cleanTempFolderForGeneratingProtoc();
     }
 }
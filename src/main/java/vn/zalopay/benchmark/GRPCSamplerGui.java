@@ -22,6 +22,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import vn.zalopay.benchmark.core.ClientList;
+import vn.zalopay.benchmark.core.config.ChannelStrategy;
+import vn.zalopay.benchmark.core.config.ResponseCaptureMode;
+import vn.zalopay.benchmark.core.config.SamplerDataMode;
 import vn.zalopay.benchmark.core.protobuf.ProtoMethodName;
 import vn.zalopay.benchmark.core.protobuf.ServiceResolver;
 import vn.zalopay.benchmark.util.JMeterVariableUtils;
@@ -63,9 +66,29 @@ public class GRPCSamplerGui extends AbstractSamplerGui {
     private JLabeledTextField channelFactoryShutdownTimeField;
     private JLabeledTextField maxInboundMessageSize;
     private JLabeledTextField maxInboundMetadataSize;
+    private JComboBox<ChannelStrategy> channelStrategyField;
+    private JLabeledTextField channelPoolSizeField;
+    private JLabeledTextField flowControlWindowField;
+    private JLabeledTextField keepAliveTimeField;
+    private JLabeledTextField keepAliveTimeoutField;
+    private JLabeledTextField idleTimeoutField;
+    private JComboBox<ResponseCaptureMode> responseCaptureModeField;
+    private JComboBox<SamplerDataMode> samplerDataModeField;
+    private JLabeledTextField samplerDataSampleRateField;
+    private JLabeledTextField asyncRateField;
+    private JLabeledTextField asyncMaxInFlightField;
+    private JLabeledTextField pipelineDepthField;
+    private JLabeledTextField warmUpTimeoutField;
+    private JLabeledTextField warmUpCallsField;
 
     private JCheckBox isTLSCheckBox;
     private JCheckBox isTLSDisableVerificationCheckBox;
+    private JCheckBox isRequestTemplateCheckBox;
+    private JCheckBox isStreamMessageResultsCheckBox;
+    private JCheckBox isDirectExecutorCheckBox;
+    private JCheckBox isFlowControlAutoTuningDisabledCheckBox;
+    private JCheckBox isKeepAliveWithoutCallsCheckBox;
+    private JCheckBox isWarmUpCheckBox;
 
     private JSyntaxTextArea requestJsonArea;
 
@@ -111,6 +134,29 @@ public class GRPCSamplerGui extends AbstractSamplerGui {
         grpcSampler.setChannelShutdownAwaitTime(this.channelFactoryShutdownTimeField.getText());
         grpcSampler.setChannelMaxInboundMessageSize(this.maxInboundMessageSize.getText());
         grpcSampler.setChannelMaxInboundMetadataSize(this.maxInboundMetadataSize.getText());
+        grpcSampler.setChannelStrategy(this.channelStrategyField.getSelectedItem().toString());
+        grpcSampler.setChannelPoolSize(this.channelPoolSizeField.getText());
+        grpcSampler.setChannelDirectExecutor(this.isDirectExecutorCheckBox.isSelected());
+        grpcSampler.setChannelFlowControlWindow(this.flowControlWindowField.getText());
+        grpcSampler.setChannelFlowControlAutoTuningDisabled(
+                this.isFlowControlAutoTuningDisabledCheckBox.isSelected());
+        grpcSampler.setChannelKeepAliveTime(this.keepAliveTimeField.getText());
+        grpcSampler.setChannelKeepAliveTimeout(this.keepAliveTimeoutField.getText());
+        grpcSampler.setChannelKeepAliveWithoutCalls(
+                this.isKeepAliveWithoutCallsCheckBox.isSelected());
+        grpcSampler.setChannelIdleTimeout(this.idleTimeoutField.getText());
+        grpcSampler.setWarmUp(this.isWarmUpCheckBox.isSelected());
+        grpcSampler.setWarmUpTimeout(this.warmUpTimeoutField.getText());
+        grpcSampler.setWarmUpCalls(this.warmUpCallsField.getText());
+        grpcSampler.setRequestTemplate(this.isRequestTemplateCheckBox.isSelected());
+        grpcSampler.setStreamMessageResults(this.isStreamMessageResultsCheckBox.isSelected());
+        grpcSampler.setResponseCaptureMode(
+                this.responseCaptureModeField.getSelectedItem().toString());
+        grpcSampler.setSamplerDataMode(this.samplerDataModeField.getSelectedItem().toString());
+        grpcSampler.setSamplerDataSampleRate(this.samplerDataSampleRateField.getText());
+        grpcSampler.setAsyncRate(this.asyncRateField.getText());
+        grpcSampler.setAsyncMaxInFlight(this.asyncMaxInFlightField.getText());
+        grpcSampler.setPipelineDepth(this.pipelineDepthField.getText());
         grpcSampler.setRequestJson(this.requestJsonArea.getText());
     }
 
@@ -136,6 +182,27 @@ public class GRPCSamplerGui extends AbstractSamplerGui {
                 Integer.toString(grpcSampler.getChannelMaxInboundMessageSize()));
         maxInboundMetadataSize.setText(
                 Integer.toString(grpcSampler.getChannelMaxInboundMetadataSize()));
+        channelStrategyField.setSelectedItem(grpcSampler.getChannelStrategy());
+        channelPoolSizeField.setText(Integer.toString(grpcSampler.getChannelPoolSize()));
+        isDirectExecutorCheckBox.setSelected(grpcSampler.isChannelDirectExecutor());
+        flowControlWindowField.setText(Integer.toString(grpcSampler.getChannelFlowControlWindow()));
+        isFlowControlAutoTuningDisabledCheckBox.setSelected(
+                grpcSampler.isChannelFlowControlAutoTuningDisabled());
+        keepAliveTimeField.setText(Integer.toString(grpcSampler.getChannelKeepAliveTime()));
+        keepAliveTimeoutField.setText(Integer.toString(grpcSampler.getChannelKeepAliveTimeout()));
+        isKeepAliveWithoutCallsCheckBox.setSelected(grpcSampler.isChannelKeepAliveWithoutCalls());
+        idleTimeoutField.setText(Integer.toString(grpcSampler.getChannelIdleTimeout()));
+        isWarmUpCheckBox.setSelected(grpcSampler.isWarmUp());
+        warmUpTimeoutField.setText(Integer.toString(grpcSampler.getWarmUpTimeout()));
+        warmUpCallsField.setText(Integer.toString(grpcSampler.getWarmUpCalls()));
+        isRequestTemplateCheckBox.setSelected(grpcSampler.isRequestTemplate());
+        isStreamMessageResultsCheckBox.setSelected(grpcSampler.isStreamMessageResults());
+        responseCaptureModeField.setSelectedItem(grpcSampler.getResponseCaptureMode());
+        samplerDataModeField.setSelectedItem(grpcSampler.getSamplerDataMode());
+        samplerDataSampleRateField.setText(Double.toString(grpcSampler.getSamplerDataSampleRate()));
+        asyncRateField.setText(Double.toString(grpcSampler.getAsyncRate()));
+        asyncMaxInFlightField.setText(Integer.toString(grpcSampler.getAsyncMaxInFlight()));
+        pipelineDepthField.setText(Integer.toString(grpcSampler.getPipelineDepth()));
         requestJsonArea.setText(grpcSampler.getRequestJson());
     }
 
@@ -158,6 +225,26 @@ public class GRPCSamplerGui extends AbstractSamplerGui {
         channelFactoryShutdownTimeField.setText("1000");
         maxInboundMessageSize.setText("4194304");
         maxInboundMetadataSize.setText("8192");
+        channelStrategyField.setSelectedItem(ChannelStrategy.SHARED);
+        channelPoolSizeField.setText("1");
+        isDirectExecutorCheckBox.setSelected(false);
+        flowControlWindowField.setText("0");
+        isFlowControlAutoTuningDisabledCheckBox.setSelected(false);
+        keepAliveTimeField.setText("0");
+        keepAliveTimeoutField.setText("0");
+        isKeepAliveWithoutCallsCheckBox.setSelected(false);
+        idleTimeoutField.setText("0");
+        isWarmUpCheckBox.setSelected(false);
+        warmUpTimeoutField.setText("5000");
+        warmUpCallsField.setText("0");
+        isRequestTemplateCheckBox.setSelected(false);
+        isStreamMessageResultsCheckBox.setSelected(false);
+        responseCaptureModeField.setSelectedItem(ResponseCaptureMode.JSON);
+        samplerDataModeField.setSelectedItem(SamplerDataMode.ALWAYS);
+        samplerDataSampleRateField.setText("0.01");
+        asyncRateField.setText("0");
+        asyncMaxInFlightField.setText("1000");
+        pipelineDepthField.setText("1");
         requestJsonArea.setText("");
     }
 
@@ -245,6 +332,31 @@ public class GRPCSamplerGui extends AbstractSamplerGui {
                 new JLabeledTextField("Maximum message size allowed for a single gRPC frame");
         maxInboundMetadataSize =
                 new JLabeledTextField("Maximum size of metadata allowed to be received:");
+        channelStrategyField = new JComboBox<>(ChannelStrategy.values());
+        channelPoolSizeField = new JLabeledTextField("Channel Pool Size:", 5);
+        isDirectExecutorCheckBox = new JCheckBox("Run Callbacks On Event Loops");
+        flowControlWindowField =
+                new JLabeledTextField("Flow Control Window In Bytes (0 = default):", 8);
+        isFlowControlAutoTuningDisabledCheckBox =
+                new JCheckBox("Disable Flow Control Window Auto-Tuning");
+        keepAliveTimeField = new JLabeledTextField("Keepalive Time In Millisecond (0 = off):", 7);
+        keepAliveTimeoutField =
+                new JLabeledTextField("Keepalive Timeout In Millisecond (0 = default):", 7);
+        isKeepAliveWithoutCallsCheckBox = new JCheckBox("Keepalive Without Calls");
+        idleTimeoutField = new JLabeledTextField("Idle Timeout In Millisecond (0 = default):", 8);
+        isWarmUpCheckBox = new JCheckBox("Warm Up Channels Before Test");
+        warmUpTimeoutField = new JLabeledTextField("Warm-Up Timeout In Millisecond:", 7);
+        warmUpCallsField = new JLabeledTextField("Unrecorded Warm-Up Calls:", 5);
+        isRequestTemplateCheckBox =
+                new JCheckBox("Pre-serialize Request JSON (only ${} values change per sample)");
+        isStreamMessageResultsCheckBox = new JCheckBox("Stream Messages As Sub-Results");
+        responseCaptureModeField = new JComboBox<>(ResponseCaptureMode.values());
+        samplerDataModeField = new JComboBox<>(SamplerDataMode.values());
+        samplerDataSampleRateField = new JLabeledTextField("Sample Fraction:", 5);
+        asyncRateField =
+                new JLabeledTextField("Async Calls Per Second Per Thread (0 = blocking):", 7);
+        asyncMaxInFlightField = new JLabeledTextField("Max In-Flight Calls Per Thread:", 5);
+        pipelineDepthField = new JLabeledTextField("Calls Per Sample:", 3);
         JPanel metadataServerPanel = new HorizontalPanel();
 
         metadataServerPanel.add(metadataLabel);
@@ -254,10 +366,51 @@ public class GRPCSamplerGui extends AbstractSamplerGui {
         timeOutOptionServerPanel.add(deadlineField);
         timeOutOptionServerPanel.add(channelFactoryShutdownTimeField);
 
+        JPanel channelOptionServerPanel = new HorizontalPanel();
+        channelOptionServerPanel.add(new JLabel("Channel Strategy:"));
+        channelOptionServerPanel.add(channelStrategyField);
+        channelOptionServerPanel.add(channelPoolSizeField);
+        channelOptionServerPanel.add(isDirectExecutorCheckBox);
+
+        JPanel flowControlOptionServerPanel = new HorizontalPanel();
+        flowControlOptionServerPanel.add(flowControlWindowField);
+        flowControlOptionServerPanel.add(isFlowControlAutoTuningDisabledCheckBox);
+        flowControlOptionServerPanel.add(idleTimeoutField);
+
+        JPanel keepAliveOptionServerPanel = new HorizontalPanel();
+        keepAliveOptionServerPanel.add(keepAliveTimeField);
+        keepAliveOptionServerPanel.add(keepAliveTimeoutField);
+        keepAliveOptionServerPanel.add(isKeepAliveWithoutCallsCheckBox);
+
+        JPanel warmUpOptionServerPanel = new HorizontalPanel();
+        warmUpOptionServerPanel.add(isWarmUpCheckBox);
+        warmUpOptionServerPanel.add(warmUpTimeoutField);
+        warmUpOptionServerPanel.add(warmUpCallsField);
+
+        JPanel captureOptionServerPanel = new HorizontalPanel();
+        captureOptionServerPanel.add(isRequestTemplateCheckBox);
+        captureOptionServerPanel.add(new JLabel("Response Capture:"));
+        captureOptionServerPanel.add(responseCaptureModeField);
+        captureOptionServerPanel.add(new JLabel("Request In Sampler Data:"));
+        captureOptionServerPanel.add(samplerDataModeField);
+        captureOptionServerPanel.add(samplerDataSampleRateField);
+        captureOptionServerPanel.add(isStreamMessageResultsCheckBox);
+
+        JPanel asyncOptionServerPanel = new HorizontalPanel();
+        asyncOptionServerPanel.add(asyncRateField);
+        asyncOptionServerPanel.add(asyncMaxInFlightField);
+        asyncOptionServerPanel.add(pipelineDepthField);
+
         optionalPanel.add(metadataServerPanel);
         optionalPanel.add(timeOutOptionServerPanel);
         optionalPanel.add(maxInboundMessageSize);
         optionalPanel.add(maxInboundMetadataSize);
+        optionalPanel.add(channelOptionServerPanel);
+        optionalPanel.add(flowControlOptionServerPanel);
+        optionalPanel.add(keepAliveOptionServerPanel);
+        optionalPanel.add(warmUpOptionServerPanel);
+        optionalPanel.add(captureOptionServerPanel);
+        optionalPanel.add(asyncOptionServerPanel);
         return optionalPanel;
     }
 
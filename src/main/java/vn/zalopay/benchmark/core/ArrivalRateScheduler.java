@@ -0,0 +1,87 @@
+package vn.zalopay.benchmark.core;
+
+import org.apache.jmeter.samplers.SampleResult;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Paces asynchronous calls at a fixed arrival rate and collects their results.
+ *
+ * <p>Each call has an intended send time on a fixed schedule, independent of how long earlier calls
+ * take. When the caller falls behind, or the in-flight limit is reached, calls are sent late but
+ * keep their intended time, so the reported elapsed time includes the delay instead of hiding it
+ * (coordinated omission). Times are nanoseconds relative to the creation of the scheduler.
+ *
+ * <p>{@link #nextDueSend()} and {@link #awaitCompletion} are meant to be called by a single thread,
+ * {@link #complete} by any thread.
+ */
+public class ArrivalRateScheduler {
+    private final long intervalNanos;
+    private final int maxInFlight;
+    private final long startNanos = System.nanoTime();
+    private final long startMillis = System.currentTimeMillis();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final BlockingQueue<SampleResult> completed = new LinkedBlockingQueue<>();
+    private long nextSendNanos;
+
+    public ArrivalRateScheduler(double ratePerSecond, int maxInFlight) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Arrival rate must be positive: " + ratePerSecond);
+        }
+        this.intervalNanos = Math.max((long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond), 1);
+        this.maxInFlight = Math.max(maxInFlight, 1);
+    }
+
+    /**
+     * Returns the intended send time of the next call if it is due and the in-flight limit allows
+     * it, or -1 otherwise. Every returned call must be passed to {@link #complete} once done.
+     */
+    public long nextDueSend() {
+        if (nextSendNanos > elapsedNanos() || inFlight.get() >= maxInFlight) {
+            return -1;
+        }
+        inFlight.incrementAndGet();
+        long intendedNanos = nextSendNanos;
+        nextSendNanos += intervalNanos;
+        return intendedNanos;
+    }
+
+    /** Records a finished call, stamping the result from its intended send time to now. */
+    public void complete(SampleResult sampleResult, long intendedNanos) {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos() - intendedNanos);
+        long intendedMillis = startMillis + TimeUnit.NANOSECONDS.toMillis(intendedNanos);
+        // The stamp is the end time unless JMeter is configured to stamp samples at their start
+        sampleResult.setStampAndTime(
+                sampleResult.isStampedAtStart() ? intendedMillis : intendedMillis + elapsedMillis,
+                elapsedMillis);
+        inFlight.decrementAndGet();
+        completed.add(sampleResult);
+    }
+
+    /**
+     * Waits for a finished call until the next call is due, or at most {@code maxWaitNanos}.
+     * Returns null if none finished in time.
+     */
+    public SampleResult awaitCompletion(long maxWaitNanos) throws InterruptedException {
+        long waitNanos = maxWaitNanos;
+        if (inFlight.get() < maxInFlight) {
+            waitNanos = Math.min(waitNanos, nextSendNanos - elapsedNanos());
+        }
+        if (waitNanos <= 0) {
+            return completed.poll();
+        }
+        return completed.poll(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Returns the number of calls sent but not completed yet. */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+}
@@ -3,25 +3,39 @@ package vn.zalopay.benchmark.core;
 import com.alibaba.fastjson.JSONObject;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.net.HostAndPort;
-import com.google.protobuf.DescriptorProtos;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.DynamicMessage;
 import com.google.protobuf.util.JsonFormat;
 
 import io.grpc.CallOptions;
+import io.grpc.ConnectivityState;
 import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor.MethodType;
 import io.grpc.stub.StreamObserver;
 
+import org.apache.jmeter.util.JMeterUtils;
+
 import vn.zalopay.benchmark.core.channel.ComponentObserver;
+import vn.zalopay.benchmark.core.config.ChannelStrategy;
 import vn.zalopay.benchmark.core.config.GrpcRequestConfig;
 import vn.zalopay.benchmark.core.grpc.ChannelFactory;
+import vn.zalopay.benchmark.core.grpc.CompiledMetadata;
 import vn.zalopay.benchmark.core.grpc.DynamicGrpcClient;
+import vn.zalopay.benchmark.core.message.MethodTypeRegistry;
 import vn.zalopay.benchmark.core.message.Reader;
+import vn.zalopay.benchmark.core.message.RequestTemplate;
 import vn.zalopay.benchmark.core.message.Writer;
 import vn.zalopay.benchmark.core.protobuf.ProtoMethodName;
-import vn.zalopay.benchmark.core.protobuf.ProtocInvoker;
+import vn.zalopay.benchmark.core.protobuf.ServerReflectionClient;
 import vn.zalopay.benchmark.core.protobuf.ServiceResolver;
 import vn.zalopay.benchmark.core.specification.GrpcResponse;
 
@@ -29,21 +43,29 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ClientCaller {
+    private static final String REQUEST_CACHE_SIZE_PROPERTY = "grpc.request.cache.size";
+    private static final int DEFAULT_REQUEST_CACHE_SIZE = 1000;
     private Descriptors.MethodDescriptor methodDescriptor;
-    private JsonFormat.TypeRegistry registry;
-    private DynamicGrpcClient dynamicClient;
+    private MethodTypeRegistry typeRegistry;
+    private Cache<String, ImmutableList<DynamicMessage>> requestCache;
     //private ImmutableList<DynamicMessage> requestMessages;
-    private ManagedChannel channel;
+    private final List<ManagedChannel> channels = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextClientIndex = new AtomicInteger();
+    private ImmutableList<DynamicGrpcClient> pooledClients = ImmutableList.of();
+    private ThreadLocal<DynamicGrpcClient> threadClient;
     private HostAndPort hostAndPort;
-    private Map<String, String> metadataMap;
-    private boolean tls;
-    private boolean disableTtlVerification;
+    // Each sampler thread sends its own metadata, passed to its calls through their options
+    private final ThreadLocal<CompiledMetadata> threadMetadata =
+            ThreadLocal.withInitial(() -> CompiledMetadata.EMPTY);
     private int awaitTerminationTimeout;
     private final GrpcRequestConfig requestConfig;
     ChannelFactory channelFactory;
@@ -55,8 +77,6 @@ public class ClientCaller {
                 requestConfig.getProtoFolder(),
                 requestConfig.getLibFolder(),
                 requestConfig.getFullMethod(),
-                requestConfig.isTls(),
-                requestConfig.isTlsDisableVerification(),
                 requestConfig.getAwaitTerminationTimeout());
     }
 
@@ -65,41 +85,60 @@ public class ClientCaller {
             String testProtoFiles,
             String libFolder,
             String fullMethod,
-            boolean tls,
-            boolean tlsDisableVerification,
             int awaitTerminationTimeout) {
         try {
             this.awaitTerminationTimeout = awaitTerminationTimeout;
-            this.tls = tls;
-            disableTtlVerification = tlsDisableVerification;
             hostAndPort = HostAndPort.fromString(hostPort);
-            metadataMap = new LinkedHashMap<>();
             channelFactory = ChannelFactory.create();
             ProtoMethodName grpcMethodName = ProtoMethodName.parseFullGrpcMethodName(fullMethod);
 
             // Fetch the appropriate file descriptors for the service.
-            final DescriptorProtos.FileDescriptorSet fileDescriptorSet;
+            final ServiceResolver serviceResolver;
 
-            try {
-                fileDescriptorSet = ProtocInvoker.forConfig(testProtoFiles, libFolder).invoke();
-            } catch (Exception e) {
-                //shutdownNettyChannel();
-                throw new RuntimeException(
-                        "Unable to resolve service by invoking protoc: \n" + e.getMessage(), e);
+            if (Strings.isNullOrEmpty(testProtoFiles)) {
+                // Without proto files, the server has to describe its service itself
+                try {
+                    serviceResolver =
+                            ServiceResolver.fromFileDescriptorSet(
+                                    ServerReflectionClient.fetchServiceFiles(
+                                            hostAndPort.toString(),
+                                            this::newChannel,
+                                            grpcMethodName));
+                } catch (Exception e) {
+                    throw new RuntimeException(
+                            "Unable to resolve service by server reflection: \n" + e.getMessage(),
+                            e);
+                }
+            } else {
+                try {
+                    // Shared with the GUI and the other samplers using the same proto folder
+                    serviceResolver =
+                            ClientList.getServiceResolver(
+                                    testProtoFiles, libFolder, grpcMethodName);
+                } catch (Exception e) {
+                    //shutdownNettyChannel();
+                    Throwable cause = e.getCause() == null ? e : e.getCause();
+                    throw new RuntimeException(
+                            "Unable to resolve service by invoking protoc: \n" + cause.getMessage(),
+                            cause);
+                }
             }
 
             // Set up the dynamic client and make the call.
-            ServiceResolver serviceResolver =
-                    ServiceResolver.fromFileDescriptorSet(fileDescriptorSet);
             methodDescriptor = serviceResolver.resolveServiceMethod(grpcMethodName);
 
             createDynamicClient();
 
-            // This collects all known types into a registry for resolution of potential "Any"
-            // types.
-            registry =
-                    JsonFormat.TypeRegistry.newBuilder()
-                            .add(serviceResolver.listMessageTypes())
+            // The types of the method, along with the targets of the "Any" values met later on.
+            typeRegistry = new MethodTypeRegistry(serviceResolver, methodDescriptor);
+
+            // Parsed requests are immutable, so samples sending the same JSON share one parse.
+            requestCache =
+                    CacheBuilder.newBuilder()
+                            .maximumSize(
+                                    JMeterUtils.getPropDefault(
+                                            REQUEST_CACHE_SIZE_PROPERTY,
+                                            DEFAULT_REQUEST_CACHE_SIZE))
                             .build();
         } catch (Throwable t) {
             //shutdownNettyChannel();
@@ -149,35 +188,151 @@ public class ClientCaller {
         return metadataHash;
     }
 
+    /**
+     * Creates the dynamic clients according to the configured {@link ChannelStrategy}. Shared and
+     * pooled channels are opened eagerly, per-thread channels on the first call of each thread.
+     */
     public void createDynamicClient() {
-        channel =
-                channelFactory.createChannel(
-                        hostAndPort,
-                        tls,
-                        disableTtlVerification,
-                        metadataMap,
-                        requestConfig.getMaxInboundMessageSize(),
-                        requestConfig.getMaxInboundMetadataSize());
-        dynamicClient = DynamicGrpcClient.create(methodDescriptor, channel);
+        switch (requestConfig.getChannelStrategy()) {
+            case PER_THREAD:
+                threadClient = new ThreadLocal<>();
+                break;
+            case POOL:
+                ImmutableList.Builder<DynamicGrpcClient> clients = ImmutableList.builder();
+                for (int i = 0; i < requestConfig.getChannelPoolSize(); i++) {
+                    clients.add(newDynamicClient());
+                }
+                pooledClients = clients.build();
+                break;
+            case SHARED:
+            default:
+                pooledClients = ImmutableList.of(newDynamicClient());
+        }
+    }
+
+    private DynamicGrpcClient newDynamicClient() {
+        ManagedChannel channel = newChannel();
+        channels.add(channel);
+        return DynamicGrpcClient.create(methodDescriptor, channel);
+    }
+
+    private ManagedChannel newChannel() {
+        return channelFactory.createChannel(hostAndPort, requestConfig);
+    }
+
+    /** Returns the type of the called method, which decides how it has to be called. */
+    public MethodType getMethodType() {
+        return DynamicGrpcClient.methodTypeOf(methodDescriptor);
+    }
+
+    /** Picks the client (and therefore the channel) the next call should go through. */
+    private DynamicGrpcClient getDynamicClient() {
+        if (threadClient != null) {
+            return getThreadClient();
+        }
+        if (pooledClients.size() == 1) {
+            return pooledClients.get(0);
+        }
+        int index = Math.floorMod(nextClientIndex.getAndIncrement(), pooledClients.size());
+        return pooledClients.get(index);
+    }
+
+    /** Returns the calling thread's own client, opening its channel on the first call. */
+    private DynamicGrpcClient getThreadClient() {
+        DynamicGrpcClient client = threadClient.get();
+        if (client == null) {
+            client = newDynamicClient();
+            threadClient.set(client);
+        }
+        return client;
+    }
+
+    /**
+     * Shuts down the channel the calling thread opened with the per-thread strategy, waiting for
+     * its calls to finish, so that it doesn't outlive the thread. A later call of the thread opens
+     * a new channel. Does nothing with the other strategies, whose channels are shared.
+     */
+    public void shutdownThreadChannel() {
+        DynamicGrpcClient client = threadClient == null ? null : threadClient.get();
+        if (client == null) {
+            return;
+        }
+        threadClient.remove();
+        ManagedChannel channel = client.getChannel();
+        channels.remove(channel);
+        try {
+            channel.shutdown().awaitTermination(awaitTerminationTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Caught exception while shutting down channel", e);
+        }
     }
 
     public boolean isShutdown() {
-        return channel.isShutdown();
+        return !channels.isEmpty() && channels.stream().allMatch(ManagedChannel::isShutdown);
     }
 
     public boolean isTerminated() {
-        return channel.isTerminated();
+        return !channels.isEmpty() && channels.stream().allMatch(ManagedChannel::isTerminated);
+    }
+
+    /**
+     * Connects the channels the calling thread sends its calls through and waits for them to be
+     * ready, for at most {@code timeoutMs} in total. That is every shared or pooled channel, or the
+     * thread's own channel, opened by this call, with the per-thread strategy.
+     *
+     * @return the number of channels that are ready
+     */
+    public int awaitChannelsReady(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<ManagedChannel> callChannels =
+                threadClient != null ? ImmutableList.of(getThreadClient().getChannel()) : channels;
+        int ready = 0;
+        for (ManagedChannel channel : callChannels) {
+            if (awaitReady(channel, deadline)) {
+                ready++;
+            }
+        }
+        return ready;
+    }
+
+    private static boolean awaitReady(ManagedChannel channel, long deadline) {
+        ConnectivityState state = channel.getState(true);
+        while (state != ConnectivityState.READY) {
+            if (state == ConnectivityState.SHUTDOWN) {
+                return false;
+            }
+            CountDownLatch changed = new CountDownLatch(1);
+            channel.notifyWhenStateChanged(state, changed::countDown);
+            try {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !changed.await(remaining, TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            // Channels going back to idle only connect again when asked to
+            state = channel.getState(true);
+        }
+        return true;
     }
 
     public ImmutableList<DynamicMessage> buildRequestAndMetadata(String jsonData, String metadata) {
         try {
-            metadataMap.clear();
-            metadataMap.putAll(buildHashMetadata(metadata));
-            return Reader.create(methodDescriptor.getInputType(), jsonData, registry).read();
-            // return JsonFormat.printer()
-            //         .includingDefaultValueFields()
-            //         .usingTypeRegistry(registry)
-            //         .print(requestMessages.get(0));
+            buildMetadata(metadata);
+            String payload = Strings.nullToEmpty(jsonData);
+            return requestCache.get(
+                    payload,
+                    () ->
+                            Reader.create(
+                                            methodDescriptor.getInputType(),
+                                            payload,
+                                            typeRegistry.registerTypesOf(payload))
+                                    .read());
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new RuntimeException(
+                    "Caught exception while parsing request for rpc", e.getCause());
         } catch (IllegalArgumentException e) {
             //shutdownNettyChannel();
             throw e;
@@ -187,41 +342,127 @@ public class ClientCaller {
         }
     }
 
+    /**
+     * Compiles the metadata sent with the next calls of the current thread, unless it is the same
+     * as last time.
+     */
+    public void buildMetadata(String metadata) {
+        String source = Strings.nullToEmpty(metadata);
+        CompiledMetadata compiled = threadMetadata.get();
+        if (!compiled.isCompiledFrom(source)) {
+            threadMetadata.set(
+                    CompiledMetadata.compile(source, buildHashMetadata(source), compiled));
+        }
+    }
+
+    /**
+     * Compiles the request JSON, with its {@code ${...}} expressions left unevaluated, into a
+     * template for the method's input type.
+     *
+     * @throws IllegalArgumentException if the request can't be used as a template
+     */
+    public RequestTemplate compileRequestTemplate(String rawJsonData) {
+        return RequestTemplate.compile(
+                methodDescriptor.getInputType(),
+                rawJsonData,
+                typeRegistry.registerTypesOf(rawJsonData));
+    }
+
     public GrpcResponse call(String deadlineMs, ImmutableList<DynamicMessage> requestMessages) {
         long deadline = parsingDeadlineTime(deadlineMs);
         GrpcResponse grpcResponse = new GrpcResponse();
         StreamObserver<DynamicMessage> streamObserver =
-                ComponentObserver.of(Writer.create(grpcResponse, registry));
+                ComponentObserver.of(Writer.create(grpcResponse, typeRegistry));
         try {
-            dynamicClient
-                    .blockingUnaryCall(requestMessages, streamObserver, callOptions(deadline))
-                    .get();
+            getDynamicClient().unaryCall(requestMessages, streamObserver, callOptions(deadline));
         } catch (Exception e) {
-            grpcResponse.setSuccess(false);
-            Throwable ex;
-            if (e instanceof ExecutionException) {
-                ex = e.getCause();
-            } else {
-                ex = e;
-            }
-            grpcResponse.setThrowable(ex);
-            //shutdownNettyChannel();
+            handleCallException(grpcResponse, e);
         }
 
         return grpcResponse;
     }
 
+    /** Sends a unary request that was already serialized from a {@link RequestTemplate}. */
+    public GrpcResponse call(String deadlineMs, ByteString serializedRequest) {
+        long deadline = parsingDeadlineTime(deadlineMs);
+        GrpcResponse grpcResponse = new GrpcResponse();
+        StreamObserver<DynamicMessage> streamObserver =
+                ComponentObserver.of(Writer.create(grpcResponse, typeRegistry));
+        try {
+            getDynamicClient().unaryCall(serializedRequest, streamObserver, callOptions(deadline));
+        } catch (Exception e) {
+            handleCallException(grpcResponse, e);
+        }
+
+        return grpcResponse;
+    }
+
+    /**
+     * Starts a unary call without waiting for it. The returned future never fails; call errors are
+     * reported through the response like in {@link #call(String, ImmutableList)}.
+     */
+    public ListenableFuture<GrpcResponse> callAsync(
+            String deadlineMs, ImmutableList<DynamicMessage> requestMessages) {
+        long deadline = parsingDeadlineTime(deadlineMs);
+        GrpcResponse grpcResponse = new GrpcResponse();
+        StreamObserver<DynamicMessage> streamObserver =
+                ComponentObserver.of(Writer.create(grpcResponse, typeRegistry));
+        return toResponseFuture(
+                grpcResponse,
+                getDynamicClient()
+                        .asyncUnaryCall(requestMessages, streamObserver, callOptions(deadline)));
+    }
+
+    /** Starts a unary call with a request serialized from a {@link RequestTemplate}. */
+    public ListenableFuture<GrpcResponse> callAsync(
+            String deadlineMs, ByteString serializedRequest) {
+        long deadline = parsingDeadlineTime(deadlineMs);
+        GrpcResponse grpcResponse = new GrpcResponse();
+        StreamObserver<DynamicMessage> streamObserver =
+                ComponentObserver.of(Writer.create(grpcResponse, typeRegistry));
+        return toResponseFuture(
+                grpcResponse,
+                getDynamicClient()
+                        .asyncUnaryCall(serializedRequest, streamObserver, callOptions(deadline)));
+    }
+
+    private static ListenableFuture<GrpcResponse> toResponseFuture(
+            GrpcResponse grpcResponse, ListenableFuture<Void> completionFuture) {
+        return Futures.catching(
+                Futures.transform(
+                        completionFuture, ignored -> grpcResponse, MoreExecutors.directExecutor()),
+                Throwable.class,
+                t -> {
+                    grpcResponse.setSuccess(false);
+                    grpcResponse.setThrowable(t);
+                    return grpcResponse;
+                },
+                MoreExecutors.directExecutor());
+    }
+
+    private static void handleCallException(GrpcResponse grpcResponse, Exception e) {
+        grpcResponse.setSuccess(false);
+        Throwable ex;
+        if (e instanceof ExecutionException) {
+            ex = e.getCause();
+        } else {
+            ex = e;
+        }
+        grpcResponse.setThrowable(ex);
+    }
+
     public GrpcResponse callServerStreaming(String deadlineMs, ImmutableList<DynamicMessage> requestMessages) {
         long deadline = parsingDeadlineTime(deadlineMs);
         GrpcResponse grpcResponse = new GrpcResponse();
         StreamObserver<DynamicMessage> streamObserver =
-                ComponentObserver.of(Writer.create(grpcResponse, registry));
+                ComponentObserver.of(Writer.create(grpcResponse, typeRegistry));
+        grpcResponse.recordMessageArrivals();
         try {
-            dynamicClient
+            getDynamicClient()
                     .callServerStreaming(requestMessages, streamObserver, callOptions(deadline))
                     .get();
         } catch (Exception e) {
-            //shutdownNettyChannel();
+            handleCallException(grpcResponse, e);
         }
 
         return grpcResponse;
@@ -231,9 +472,10 @@ public class ClientCaller {
         long deadline = parsingDeadlineTime(deadlineMs);
         GrpcResponse output = new GrpcResponse();
         StreamObserver<DynamicMessage> streamObserver =
-                ComponentObserver.of(Writer.create(output, registry));
+                ComponentObserver.of(Writer.create(output, typeRegistry));
+        output.recordMessageArrivals();
         try {
-            dynamicClient
+            getDynamicClient()
                     .callClientStreaming(requestMessages, streamObserver, callOptions(deadline))
                     .get();
         } catch (Exception e) {
@@ -251,9 +493,10 @@ public class ClientCaller {
         long deadline = parsingDeadlineTime(deadlineMs);
         GrpcResponse output = new GrpcResponse();
         StreamObserver<DynamicMessage> streamObserver =
-                ComponentObserver.of(Writer.create(output, registry));
+                ComponentObserver.of(Writer.create(output, typeRegistry));
+        output.recordMessageArrivals();
         try {
-            dynamicClient
+            getDynamicClient()
                     .callBidiStreaming(requestMessages, streamObserver, callOptions(deadline))
                     .get();
         } catch (Exception e) {
@@ -267,8 +510,9 @@ public class ClientCaller {
         return output;
     }
 
-    private static CallOptions callOptions(long deadlineMs) {
-        CallOptions result = CallOptions.DEFAULT;
+    private CallOptions callOptions(long deadlineMs) {
+        CallOptions result =
+                CallOptions.DEFAULT.withOption(CompiledMetadata.CALL_OPTION, threadMetadata.get());
         if (deadlineMs > 0) {
             result = result.withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS);
         }
@@ -277,9 +521,12 @@ public class ClientCaller {
 
     public void shutdownNettyChannel() {
         try {
-            if (channel != null) {
-                channel.shutdown();
-                channel.awaitTermination(awaitTerminationTimeout, TimeUnit.MILLISECONDS);
+            channels.forEach(ManagedChannel::shutdown);
+            long deadline =
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(awaitTerminationTimeout);
+            for (ManagedChannel channel : channels) {
+                channel.awaitTermination(
+                        Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
             }
         } catch (InterruptedException e) {
             throw new RuntimeException("Caught exception while shutting down channel", e);
@@ -295,9 +542,7 @@ public class ClientCaller {
     }
 
     public String getMetadataString() {
-        return metadataMap.entrySet().stream()
-                .map(e -> e.getKey() + ": " + e.getValue())
-                .collect(Collectors.joining("\n"));
+        return threadMetadata.get().getHeadersString();
     }
 
     private String getDetailedErrorSendGRPC(Exception e) {
@@ -312,7 +557,8 @@ public class ClientCaller {
         return sb.toString();
     }
 
+    /** Returns the types registered so far, which grows as "Any" values are met. */
     public JsonFormat.TypeRegistry getRegistry() {
-        return this.registry;
+        return this.typeRegistry.get();
     }
 }
@@ -0,0 +1,93 @@
+package vn.zalopay.benchmark.core;
+
+import com.google.common.base.Throwables;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import vn.zalopay.benchmark.core.config.GrpcRequestConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one {@link ClientCaller} per distinct {@link GrpcRequestConfig}, so samplers that target
+ * the same endpoint and method share a caller while samplers with different targets each get their
+ * own.
+ */
+public class ClientCallerRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClientCallerRegistry.class);
+
+    // A failed build stays here until the test ends, so a broken config doesn't run protoc or
+    // reflection again on each sample
+    private static final ConcurrentMap<GrpcRequestConfig, CompletableFuture<ClientCaller>>
+            clientCallers = new ConcurrentHashMap<>();
+
+    private ClientCallerRegistry() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Returns the caller registered for the supplied config, building it on first use. Concurrent
+     * requests for the same config wait for a single build. The config must not be modified after
+     * it has been passed in.
+     *
+     * @throws RuntimeException the failure of the first build, until {@link #shutdownAll()}
+     */
+    public static ClientCaller getClientCaller(GrpcRequestConfig requestConfig) {
+        CompletableFuture<ClientCaller> clientCaller = clientCallers.get(requestConfig);
+        if (clientCaller == null) {
+            CompletableFuture<ClientCaller> created = new CompletableFuture<>();
+            clientCaller = clientCallers.putIfAbsent(requestConfig, created);
+            if (clientCaller == null) {
+                // Built outside of the map, so other configs are not held up by protoc or reflection
+                clientCaller = created;
+                try {
+                    created.complete(new ClientCaller(requestConfig));
+                } catch (Throwable t) {
+                    created.completeExceptionally(t);
+                }
+            }
+        }
+        try {
+            return clientCaller.join();
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    /** Returns the number of callers currently registered. */
+    public static int size() {
+        return (int) clientCallers.values().stream().filter(ClientCallerRegistry::isBuilt).count();
+    }
+
+    /** Removes every registered caller and shuts down its channels. Failed builds are forgotten. */
+    public static void shutdownAll() {
+        List<CompletableFuture<ClientCaller>> removed = new ArrayList<>();
+        clientCallers.keySet().forEach(key -> removed.add(clientCallers.remove(key)));
+        for (CompletableFuture<ClientCaller> clientCaller : removed) {
+            if (clientCaller == null) {
+                continue;
+            }
+            // A caller still being built is shut down once it is
+            clientCaller.thenAccept(ClientCallerRegistry::shutdown);
+        }
+    }
+
+    private static boolean isBuilt(CompletableFuture<ClientCaller> clientCaller) {
+        return clientCaller.isDone() && !clientCaller.isCompletedExceptionally();
+    }
+
+    private static void shutdown(ClientCaller clientCaller) {
+        try {
+            clientCaller.shutdownNettyChannel();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to shutdown channels of client caller", e);
+        }
+    }
+}
@@ -1,22 +1,48 @@
 package vn.zalopay.benchmark.core;
 
-import com.google.protobuf.DescriptorProtos;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.protobuf.Descriptors.MethodDescriptor;
 import com.google.protobuf.Descriptors.ServiceDescriptor;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.util.JMeterUtils;
 
+import vn.zalopay.benchmark.core.protobuf.ProtoMethodName;
 import vn.zalopay.benchmark.core.protobuf.ProtocInvoker;
 import vn.zalopay.benchmark.core.protobuf.ServiceResolver;
 
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
+/**
+ * Resolves the services of proto trees. Resolvers are shared by the GUI and every sampler, so a
+ * proto tree is compiled once however many samplers use it. The cache is bounded by the number of
+ * message types the resolvers hold, set by the grpc.request.resolver.cache.weight property.
+ */
 public class ClientList {
+    private static final String RESOLVER_CACHE_WEIGHT_PROPERTY =
+            "grpc.request.resolver.cache.weight";
+    private static final long DEFAULT_RESOLVER_CACHE_WEIGHT = 1000000;
 
-    private static final Map<String, ServiceResolver> serviceResolverMap = new HashMap<>();
+    // Keyed by proto folder, lib folder and the target service if only its file is compiled
+    private static final Cache<List<String>, ServiceResolver> serviceResolverCache =
+            CacheBuilder.newBuilder()
+                    // Guava splits the weight between segments, so a single segment lets one
+                    // resolver use the whole weight instead of a quarter of it
+                    .concurrencyLevel(1)
+                    .maximumWeight(
+                            JMeterUtils.getPropDefault(
+                                    RESOLVER_CACHE_WEIGHT_PROPERTY, DEFAULT_RESOLVER_CACHE_WEIGHT))
+                    .weigher(
+                            (List<String> key, ServiceResolver serviceResolver) ->
+                                    Math.max(serviceResolver.listMessageTypes().size(), 1))
+                    .build();
 
     public static ServiceResolver getServiceResolver(String protoFile, String libFolder) {
         return getServiceResolver(protoFile, libFolder, false);
@@ -32,31 +58,58 @@ public class ClientList {
      */
     public static ServiceResolver getServiceResolver(
             String protoFile, String libFolder, boolean reload) {
-        try {
-            String serviceResolverKey = protoFile + libFolder;
-            if (!reload) {
-                ServiceResolver serviceResolver = serviceResolverMap.get(serviceResolverKey);
-                if (serviceResolver != null) {
-                    return serviceResolver;
-                }
-            }
+        return getServiceResolver(protoFile, libFolder, null, reload);
+    }
+
+    /**
+     * Get the ServiceResolver a sampler needs to call the target method, which is the one of the
+     * whole proto tree unless protoc only compiles the file declaring the service.
+     *
+     * @param protoFile proto file root path
+     * @param libFolder lib file path
+     * @param targetMethod method to call
+     * @return proto file resolver
+     */
+    public static ServiceResolver getServiceResolver(
+            String protoFile, String libFolder, ProtoMethodName targetMethod) {
+        return getServiceResolver(protoFile, libFolder, targetMethod, false);
+    }
 
-            if (StringUtils.isNotBlank(protoFile)) {
-                final DescriptorProtos.FileDescriptorSet fileDescriptorSet;
-                ProtocInvoker invoker = ProtocInvoker.forConfig(protoFile, libFolder);
-                fileDescriptorSet = invoker.invoke();
+    /** Forgets every resolver, so the next lookups compile their proto tree again. */
+    public static void clearCache() {
+        serviceResolverCache.invalidateAll();
+    }
 
-                ServiceResolver serviceResolver =
-                        ServiceResolver.fromFileDescriptorSet(fileDescriptorSet);
-                serviceResolverMap.put(serviceResolverKey, serviceResolver);
-                return serviceResolver;
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Unable to resolve service by invoking protoc", e);
+    private static ServiceResolver getServiceResolver(
+            String protoFile, String libFolder, ProtoMethodName targetMethod, boolean reload) {
+        if (StringUtils.isBlank(protoFile)) {
+            throw new RuntimeException(
+                    "Unable to resolve service by invoking protoc. The proto folder path is empty");
+        }
+        ProtoMethodName scope = ProtocInvoker.isServiceClosureEnabled() ? targetMethod : null;
+        List<String> serviceResolverKey =
+                ImmutableList.of(
+                        protoFile,
+                        Strings.nullToEmpty(libFolder),
+                        scope == null
+                                ? ""
+                                : Strings.nullToEmpty(scope.getPackageName())
+                                        + "."
+                                        + scope.getServiceName());
+        if (reload) {
+            serviceResolverCache.invalidate(serviceResolverKey);
+        }
+        try {
+            // Concurrent lookups of the same key wait for a single compilation
+            return serviceResolverCache.get(
+                    serviceResolverKey,
+                    () ->
+                            ServiceResolver.fromFileDescriptorSet(
+                                    ProtocInvoker.forConfig(protoFile, libFolder, scope).invoke()));
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            throw new RuntimeException(
+                    "Unable to resolve service by invoking protoc", e.getCause());
         }
-
-        throw new RuntimeException(
-                "Unable to resolve service by invoking protoc. The proto folder path is empty");
     }
 
     public static List<String> listServices(ServiceResolver serviceResolver) {
@@ -0,0 +1,24 @@
+package vn.zalopay.benchmark.core.config;
+
+/** How a {@link vn.zalopay.benchmark.core.ClientCaller} spreads calls over grpc channels. */
+public enum ChannelStrategy {
+    /** A single channel (and HTTP/2 connection) shared by every thread. */
+    SHARED,
+    /** One channel per JMeter thread, created on the first call made by that thread. */
+    PER_THREAD,
+    /** A fixed pool of channels, picked round-robin for each call. */
+    POOL;
+
+    /** Parses a strategy name, falling back to {@link #SHARED} for blank or unknown values. */
+    public static ChannelStrategy fromString(String name) {
+        if (name == null) {
+            return SHARED;
+        }
+        for (ChannelStrategy strategy : values()) {
+            if (strategy.name().equalsIgnoreCase(name.trim())) {
+                return strategy;
+            }
+        }
+        return SHARED;
+    }
+}
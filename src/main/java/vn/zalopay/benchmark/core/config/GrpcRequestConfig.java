@@ -17,6 +17,17 @@ public class GrpcRequestConfig {
     private boolean tls;
     private boolean tlsDisableVerification;
     private int awaitTerminationTimeout = 5000;
+    private ChannelStrategy channelStrategy;
+    private int channelPoolSize;
+    // Runs call callbacks on the event loops instead of handing them to another thread
+    private boolean directExecutor;
+    // HTTP/2 transport settings, in bytes and milliseconds; zero keeps gRPC's defaults
+    private int flowControlWindow;
+    private boolean flowControlAutoTuningDisabled;
+    private int keepAliveTime;
+    private int keepAliveTimeout;
+    private boolean keepAliveWithoutCalls;
+    private int idleTimeout;
 
     public GrpcRequestConfig() {}
 
@@ -73,6 +84,14 @@ public class GrpcRequestConfig {
         return maxInboundMetadataSize;
     }
 
+    public ChannelStrategy getChannelStrategy() {
+        return channelStrategy == null ? ChannelStrategy.SHARED : channelStrategy;
+    }
+
+    public int getChannelPoolSize() {
+        return Math.max(channelPoolSize, 1);
+    }
+
     @Override
     public String toString() {
         return "GrpcRequestConfig{"
@@ -98,6 +117,24 @@ public class GrpcRequestConfig {
                 + tlsDisableVerification
                 + ", awaitTerminationTimeout="
                 + awaitTerminationTimeout
+                + ", channelStrategy="
+                + getChannelStrategy()
+                + ", channelPoolSize="
+                + getChannelPoolSize()
+                + ", directExecutor="
+                + directExecutor
+                + ", flowControlWindow="
+                + flowControlWindow
+                + ", flowControlAutoTuningDisabled="
+                + flowControlAutoTuningDisabled
+                + ", keepAliveTime="
+                + keepAliveTime
+                + ", keepAliveTimeout="
+                + keepAliveTimeout
+                + ", keepAliveWithoutCalls="
+                + keepAliveWithoutCalls
+                + ", idleTimeout="
+                + idleTimeout
                 + '}';
     }
 }
@@ -0,0 +1,26 @@
+package vn.zalopay.benchmark.core.config;
+
+/** How much of a successful response a sampler keeps in its result. */
+public enum ResponseCaptureMode {
+    /** The response as JSON, rendered only when the response data is read. */
+    JSON,
+    /** The response messages in protobuf wire format. */
+    RAW_BYTES,
+    /** No response data, only the received size. */
+    SIZE_ONLY,
+    /** Nothing from the response body. */
+    NONE;
+
+    /** Parses a capture mode name, falling back to {@link #JSON} for blank or unknown values. */
+    public static ResponseCaptureMode fromString(String name) {
+        if (name == null) {
+            return JSON;
+        }
+        for (ResponseCaptureMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name.trim())) {
+                return mode;
+            }
+        }
+        return JSON;
+    }
+}
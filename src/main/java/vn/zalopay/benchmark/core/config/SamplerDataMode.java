@@ -0,0 +1,26 @@
+package vn.zalopay.benchmark.core.config;
+
+/** When a sampler prints the request as JSON into the sampler data of its result. */
+public enum SamplerDataMode {
+    /** For every sample. */
+    ALWAYS,
+    /** Only for failed samples, after the call has completed. */
+    FAILED_ONLY,
+    /** For a random fraction of the samples. */
+    SAMPLED,
+    /** Never. */
+    NONE;
+
+    /** Parses a mode name, falling back to {@link #ALWAYS} for blank or unknown values. */
+    public static SamplerDataMode fromString(String name) {
+        if (name == null) {
+            return ALWAYS;
+        }
+        for (SamplerDataMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name.trim())) {
+                return mode;
+            }
+        }
+        return ALWAYS;
+    }
+}
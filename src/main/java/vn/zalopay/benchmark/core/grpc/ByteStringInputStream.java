@@ -0,0 +1,69 @@
+package vn.zalopay.benchmark.core.grpc;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.ByteString;
+
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Streams already serialized bytes. gRPC knows their size and drains them straight into the
+ * outbound buffers; they are only read through a plain stream if gRPC asks for one.
+ */
+class ByteStringInputStream extends InputStream implements Drainable, KnownLength {
+    // Null once drained or opened for reading
+    private ByteString value;
+    private InputStream input;
+
+    ByteStringInputStream(ByteString value) {
+        this.value = value;
+    }
+
+    @Override
+    public int drainTo(OutputStream target) throws IOException {
+        if (value != null) {
+            int size = value.size();
+            value.writeTo(target);
+            value = null;
+            return size;
+        }
+        if (input != null) {
+            int size = (int) ByteStreams.copy(input, target);
+            input = null;
+            return size;
+        }
+        return 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        InputStream stream = input();
+        return stream == null ? -1 : stream.read();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        InputStream stream = input();
+        return stream == null ? -1 : stream.read(buffer, offset, length);
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (value != null) {
+            return value.size();
+        }
+        return input == null ? 0 : input.available();
+    }
+
+    private InputStream input() {
+        if (value != null) {
+            input = value.newInput();
+            value = null;
+        }
+        return input;
+    }
+}
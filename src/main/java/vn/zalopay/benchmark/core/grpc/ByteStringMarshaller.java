@@ -0,0 +1,26 @@
+package vn.zalopay.benchmark.core.grpc;
+
+import com.google.protobuf.ByteString;
+
+import io.grpc.MethodDescriptor.Marshaller;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/** A {@link Marshaller} for messages that are already serialized to protobuf wire bytes. */
+public class ByteStringMarshaller implements Marshaller<ByteString> {
+
+    @Override
+    public ByteString parse(InputStream inputStream) {
+        try {
+            return ByteString.readFrom(inputStream);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read from the supplied input stream", e);
+        }
+    }
+
+    @Override
+    public InputStream stream(ByteString value) {
+        return new ByteStringInputStream(value);
+    }
+}
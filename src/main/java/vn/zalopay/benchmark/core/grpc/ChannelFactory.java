@@ -14,7 +14,9 @@ import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Map;
+import vn.zalopay.benchmark.core.config.GrpcRequestConfig;
+
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLException;
 
@@ -28,41 +30,65 @@ public class ChannelFactory {
 
     private ChannelFactory() {}
 
-    public ManagedChannel createChannel(
-            HostAndPort endpoint,
-            boolean tls,
-            boolean disableTlsVerification,
-            Map<String, String> metadataHash,
-            int maxInboundMessageSize,
-            int maxInboundMetadataSize) {
+    public ManagedChannel createChannel(HostAndPort endpoint, GrpcRequestConfig requestConfig) {
         NettyChannelBuilder managedChannelBuilder =
-                createChannelBuilder(endpoint, tls, disableTlsVerification, metadataHash);
-        managedChannelBuilder.maxInboundMessageSize(maxInboundMessageSize);
-        managedChannelBuilder.maxInboundMetadataSize(maxInboundMetadataSize);
+                createChannelBuilder(
+                        endpoint, requestConfig.isTls(), requestConfig.isTlsDisableVerification());
+        managedChannelBuilder.maxInboundMessageSize(requestConfig.getMaxInboundMessageSize());
+        managedChannelBuilder.maxInboundMetadataSize(requestConfig.getMaxInboundMetadataSize());
+        configureTransport(managedChannelBuilder, requestConfig);
+        if (requestConfig.isDirectExecutor()) {
+            // The observers of the calls never block, so they can run on the event loops
+            managedChannelBuilder.directExecutor();
+        }
+        EventLoops eventLoops = EventLoops.configured();
+        if (eventLoops != null) {
+            eventLoops.configure(managedChannelBuilder);
+        }
         return managedChannelBuilder.build();
     }
 
+    /**
+     * Applies the HTTP/2 flow control, keepalive and idle settings of the config. Settings left at
+     * zero keep gRPC's defaults.
+     */
+    private void configureTransport(NettyChannelBuilder builder, GrpcRequestConfig requestConfig) {
+        int window = requestConfig.getFlowControlWindow();
+        if (requestConfig.isFlowControlAutoTuningDisabled()) {
+            builder.flowControlWindow(
+                    window > 0 ? window : NettyChannelBuilder.DEFAULT_FLOW_CONTROL_WINDOW);
+        } else if (window > 0) {
+            // Auto-tuning grows the window from there as the bandwidth-delay product is measured
+            builder.initialFlowControlWindow(window);
+        }
+        if (requestConfig.getKeepAliveTime() > 0) {
+            builder.keepAliveTime(requestConfig.getKeepAliveTime(), TimeUnit.MILLISECONDS);
+            builder.keepAliveWithoutCalls(requestConfig.isKeepAliveWithoutCalls());
+        }
+        if (requestConfig.getKeepAliveTimeout() > 0) {
+            builder.keepAliveTimeout(requestConfig.getKeepAliveTimeout(), TimeUnit.MILLISECONDS);
+        }
+        if (requestConfig.getIdleTimeout() > 0) {
+            builder.idleTimeout(requestConfig.getIdleTimeout(), TimeUnit.MILLISECONDS);
+        }
+    }
+
     private NettyChannelBuilder createChannelBuilder(
-            HostAndPort endpoint,
-            boolean tls,
-            boolean disableTlsVerification,
-            Map<String, String> metadataHash) {
+            HostAndPort endpoint, boolean tls, boolean disableTlsVerification) {
         if (!tls) {
             return NettyChannelBuilder.forAddress(endpoint.getHost(), endpoint.getPort())
                     .negotiationType(NegotiationType.PLAINTEXT)
-                    .intercept(metadataInterceptor(metadataHash));
+                    .intercept(metadataInterceptor());
         }
-        return createSSLMessageChannel(endpoint, disableTlsVerification, metadataHash);
+        return createSSLMessageChannel(endpoint, disableTlsVerification);
     }
 
     private NettyChannelBuilder createSSLMessageChannel(
-            HostAndPort endpoint,
-            boolean disableTlsVerification,
-            Map<String, String> metadataHash) {
+            HostAndPort endpoint, boolean disableTlsVerification) {
         return NettyChannelBuilder.forAddress(endpoint.getHost(), endpoint.getPort())
                 .negotiationType(NegotiationType.TLS)
                 .sslContext(createSslContext(disableTlsVerification))
-                .intercept(metadataInterceptor(metadataHash));
+                .intercept(metadataInterceptor());
     }
 
     private SslContext createSslContext(boolean disableTlsVerification) {
@@ -105,23 +131,23 @@ public class ChannelFactory {
         }
     }
 
-    private ClientInterceptor metadataInterceptor(Map<String, String> metadataHash) {
+    private ClientInterceptor metadataInterceptor() {
         return new ClientInterceptor() {
             @Override
             public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
                     final io.grpc.MethodDescriptor<ReqT, RespT> method,
-                    CallOptions callOptions,
+                    final CallOptions callOptions,
                     final Channel next) {
                 return new ClientInterceptors.CheckedForwardingClientCall<ReqT, RespT>(
                         next.newCall(method, callOptions)) {
                     @Override
                     protected void checkedStart(
                             Listener<RespT> responseListener, Metadata headers) {
-                        for (Map.Entry<String, String> entry : metadataHash.entrySet()) {
-                            Metadata.Key<String> key =
-                                    Metadata.Key.of(
-                                            entry.getKey(), Metadata.ASCII_STRING_MARSHALLER);
-                            headers.put(key, entry.getValue());
+                        // Carried by each call, so concurrent calls never share mutable headers
+                        CompiledMetadata compiled =
+                                callOptions.getOption(CompiledMetadata.CALL_OPTION);
+                        if (!compiled.getEntries().isEmpty()) {
+                            headers.merge(compiled.getHeaders());
                         }
                         delegate().start(responseListener, headers);
                     }
@@ -0,0 +1,80 @@
+package vn.zalopay.benchmark.core.grpc;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.grpc.CallOptions;
+import io.grpc.Metadata;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Headers compiled once from the metadata of a sampler and merged into every call, instead of being
+ * validated and converted on each call. Samples keep the compiled headers for as long as their
+ * metadata, with its JMeter variables evaluated, stays the same.
+ */
+public final class CompiledMetadata {
+    public static final CompiledMetadata EMPTY = new CompiledMetadata("", ImmutableMap.of(), null);
+
+    /** The call option carrying the headers of a call to the metadata interceptor. */
+    public static final CallOptions.Key<CompiledMetadata> CALL_OPTION =
+            CallOptions.Key.createWithDefault("jmeter-grpc-metadata", EMPTY);
+
+    private final String source;
+    private final ImmutableMap<String, String> entries;
+    private final ImmutableMap<String, Metadata.Key<String>> keys;
+    private final Metadata headers;
+    private final String headersString;
+
+    private CompiledMetadata(
+            String source, Map<String, String> entries, CompiledMetadata previous) {
+        this.source = source;
+        this.entries = ImmutableMap.copyOf(entries);
+        ImmutableMap.Builder<String, Metadata.Key<String>> keys = ImmutableMap.builder();
+        Metadata headers = new Metadata();
+        for (Map.Entry<String, String> entry : this.entries.entrySet()) {
+            // Only the names not seen in the previous headers are validated again
+            Metadata.Key<String> key = previous == null ? null : previous.keys.get(entry.getKey());
+            if (key == null) {
+                key = Metadata.Key.of(entry.getKey(), Metadata.ASCII_STRING_MARSHALLER);
+            }
+            keys.put(entry.getKey(), key);
+            headers.put(key, entry.getValue());
+        }
+        this.keys = keys.build();
+        this.headers = headers;
+        this.headersString =
+                this.entries.entrySet().stream()
+                        .map(e -> e.getKey() + ": " + e.getValue())
+                        .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Compiles the headers parsed from {@code source}, reusing the keys of {@code previous}.
+     *
+     * @throws IllegalArgumentException if a header name is not a valid ASCII metadata key
+     */
+    public static CompiledMetadata compile(
+            String source, Map<String, String> entries, CompiledMetadata previous) {
+        return new CompiledMetadata(source, entries, previous);
+    }
+
+    /** Returns whether these headers were compiled from the given metadata. */
+    public boolean isCompiledFrom(String metadata) {
+        return source.equals(metadata);
+    }
+
+    public ImmutableMap<String, String> getEntries() {
+        return entries;
+    }
+
+    /** Returns the compiled headers, which must only be merged into other headers. */
+    public Metadata getHeaders() {
+        return headers;
+    }
+
+    /** Returns the headers as recorded in sample results, one {@code name: value} per line. */
+    public String getHeadersString() {
+        return headersString;
+    }
+}
@@ -3,6 +3,7 @@ package vn.zalopay.benchmark.core.grpc;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.Descriptors.MethodDescriptor;
 import com.google.protobuf.DynamicMessage;
 
@@ -18,6 +19,10 @@ import vn.zalopay.benchmark.core.channel.DoneObserver;
 public class DynamicGrpcClient {
     private final MethodDescriptor protoMethodDescriptor;
     private final ManagedChannel channel;
+    // Immutable for a given method, so built once instead of on every call.
+    private final io.grpc.MethodDescriptor<DynamicMessage, DynamicMessage> grpcMethodDescriptor;
+    private final io.grpc.MethodDescriptor<ByteString, DynamicMessage>
+            serializedRequestMethodDescriptor;
 
     public static DynamicGrpcClient create(MethodDescriptor protoMethod, ManagedChannel channel) {
         return new DynamicGrpcClient(protoMethod, channel);
@@ -27,27 +32,86 @@ public class DynamicGrpcClient {
     DynamicGrpcClient(MethodDescriptor protoMethodDescriptor, ManagedChannel channel) {
         this.protoMethodDescriptor = protoMethodDescriptor;
         this.channel = channel;
+        this.grpcMethodDescriptor = createGrpcMethodDescriptor();
+        this.serializedRequestMethodDescriptor = createSerializedRequestMethodDescriptor();
     }
 
-    public ListenableFuture<Void> blockingUnaryCall(
+    public ManagedChannel getChannel() {
+        return channel;
+    }
+
+    public ListenableFuture<Void> asyncUnaryCall(
             ImmutableList<DynamicMessage> requests,
             StreamObserver<DynamicMessage> responseObserver,
             CallOptions callOptions) {
         DoneObserver<DynamicMessage> doneObserver = new DoneObserver<>();
         ClientCalls.asyncUnaryCall(
-                this.channel.newCall(createGrpcMethodDescriptor(), callOptions),
+                this.channel.newCall(grpcMethodDescriptor, callOptions),
                 requests.get(0),
                 ComponentObserver.of(responseObserver, doneObserver));
         return doneObserver.getCompletionFuture();
     }
 
+    /** Sends a unary request that is already serialized, e.g. rendered from a request template. */
+    public ListenableFuture<Void> asyncUnaryCall(
+            ByteString request,
+            StreamObserver<DynamicMessage> responseObserver,
+            CallOptions callOptions) {
+        DoneObserver<DynamicMessage> doneObserver = new DoneObserver<>();
+        ClientCalls.asyncUnaryCall(
+                this.channel.newCall(serializedRequestMethodDescriptor, callOptions),
+                request,
+                ComponentObserver.of(responseObserver, doneObserver));
+        return doneObserver.getCompletionFuture();
+    }
+
+    /**
+     * Sends a unary request and waits for its response. The calling thread runs the response
+     * callbacks itself, like gRPC's blocking stubs, instead of being woken up by another thread
+     * once they ran.
+     *
+     * @throws io.grpc.StatusRuntimeException if the rpc fails, after passing it to the observer
+     */
+    public void unaryCall(
+            ImmutableList<DynamicMessage> requests,
+            StreamObserver<DynamicMessage> responseObserver,
+            CallOptions callOptions) {
+        unaryCall(grpcMethodDescriptor, requests.get(0), responseObserver, callOptions);
+    }
+
+    /** Sends a unary request that is already serialized and waits for its response. */
+    public void unaryCall(
+            ByteString request,
+            StreamObserver<DynamicMessage> responseObserver,
+            CallOptions callOptions) {
+        unaryCall(serializedRequestMethodDescriptor, request, responseObserver, callOptions);
+    }
+
+    private <ReqT> void unaryCall(
+            io.grpc.MethodDescriptor<ReqT, DynamicMessage> methodDescriptor,
+            ReqT request,
+            StreamObserver<DynamicMessage> responseObserver,
+            CallOptions callOptions) {
+        DynamicMessage response;
+        try {
+            response =
+                    ClientCalls.blockingUnaryCall(
+                            this.channel, methodDescriptor, callOptions, request);
+        } catch (RuntimeException e) {
+            responseObserver.onError(e);
+            throw e;
+        }
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
     public ListenableFuture<Void> callServerStreaming(
             ImmutableList<DynamicMessage> requests,
             StreamObserver<DynamicMessage> responseObserver,
             CallOptions callOptions) {
         DoneObserver<DynamicMessage> doneObserver = new DoneObserver<>();
         ClientCalls.asyncServerStreamingCall(
-                this.channel.newCall(createGrpcMethodDescriptor(), callOptions),
+                this.channel.newCall(grpcMethodDescriptor, callOptions),
                 requests.get(0),
                 ComponentObserver.of(responseObserver, doneObserver));
         return doneObserver.getCompletionFuture();
@@ -60,7 +124,7 @@ public class DynamicGrpcClient {
         DoneObserver<DynamicMessage> doneObserver = new DoneObserver<>();
         StreamObserver<DynamicMessage> requestObserver =
                 ClientCalls.asyncClientStreamingCall(
-                        this.channel.newCall(createGrpcMethodDescriptor(), callOptions),
+                        this.channel.newCall(grpcMethodDescriptor, callOptions),
                         ComponentObserver.of(responseObserver, doneObserver));
         requests.forEach(requestObserver::onNext);
         requestObserver.onCompleted();
@@ -74,17 +138,22 @@ public class DynamicGrpcClient {
         DoneObserver<DynamicMessage> doneObserver = new DoneObserver<>();
         StreamObserver<DynamicMessage> requestObserver =
                 ClientCalls.asyncBidiStreamingCall(
-                        this.channel.newCall(createGrpcMethodDescriptor(), callOptions),
+                        this.channel.newCall(grpcMethodDescriptor, callOptions),
                         ComponentObserver.of(responseObserver, doneObserver));
         requests.forEach(requestObserver::onNext);
         requestObserver.onCompleted();
         return doneObserver.getCompletionFuture();
     }
 
+    @VisibleForTesting
+    io.grpc.MethodDescriptor<DynamicMessage, DynamicMessage> getGrpcMethodDescriptor() {
+        return grpcMethodDescriptor;
+    }
+
     private io.grpc.MethodDescriptor<DynamicMessage, DynamicMessage> createGrpcMethodDescriptor() {
         return io.grpc.MethodDescriptor.<DynamicMessage, DynamicMessage>newBuilder()
                 .setFullMethodName(getFullMethodName())
-                .setType(getMethodType())
+                .setType(methodTypeOf(protoMethodDescriptor))
                 .setResponseMarshaller(
                         new DynamicMessageMarshaller(protoMethodDescriptor.getOutputType()))
                 .setRequestMarshaller(
@@ -92,15 +161,23 @@ public class DynamicGrpcClient {
                 .build();
     }
 
+    private io.grpc.MethodDescriptor<ByteString, DynamicMessage>
+            createSerializedRequestMethodDescriptor() {
+        return grpcMethodDescriptor.toBuilder(
+                        new ByteStringMarshaller(), grpcMethodDescriptor.getResponseMarshaller())
+                .build();
+    }
+
     private String getFullMethodName() {
         String serviceName = protoMethodDescriptor.getService().getFullName();
         String methodName = protoMethodDescriptor.getName();
         return io.grpc.MethodDescriptor.generateFullMethodName(serviceName, methodName);
     }
 
-    private MethodType getMethodType() {
-        boolean clientStreaming = protoMethodDescriptor.toProto().getClientStreaming();
-        boolean serverStreaming = protoMethodDescriptor.toProto().getServerStreaming();
+    /** Maps a protobuf method to the gRPC type of call it needs. */
+    public static MethodType methodTypeOf(MethodDescriptor protoMethodDescriptor) {
+        boolean clientStreaming = protoMethodDescriptor.isClientStreaming();
+        boolean serverStreaming = protoMethodDescriptor.isServerStreaming();
 
         if (!clientStreaming && !serverStreaming) {
             return MethodType.UNARY;
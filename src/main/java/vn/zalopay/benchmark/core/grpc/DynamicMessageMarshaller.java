@@ -1,15 +1,23 @@
 package vn.zalopay.benchmark.core.grpc;
 
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.Descriptors.Descriptor;
 import com.google.protobuf.DynamicMessage;
 import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.UnsafeByteOperations;
 
+import io.grpc.KnownLength;
 import io.grpc.MethodDescriptor.Marshaller;
 
 import java.io.IOException;
 import java.io.InputStream;
 
-/** A {@link Marshaller} for dynamic messages. */
+/**
+ * A {@link Marshaller} for dynamic messages. Requests are serialized straight into gRPC's outbound
+ * buffers. Responses are copied once out of the inbound buffers, into an array of their exact size
+ * which their bytes fields then share.
+ */
 public class DynamicMessageMarshaller implements Marshaller<DynamicMessage> {
     private final Descriptor messageDescriptor;
 
@@ -20,8 +28,20 @@ public class DynamicMessageMarshaller implements Marshaller<DynamicMessage> {
     @Override
     public DynamicMessage parse(InputStream inputStream) {
         try {
+            CodedInputStream input;
+            if (inputStream instanceof KnownLength) {
+                byte[] buffer = new byte[inputStream.available()];
+                ByteStreams.readFully(inputStream, buffer);
+                // The buffer is never written again, so bytes fields may share it
+                input = UnsafeByteOperations.unsafeWrap(buffer).newCodedInput();
+                input.enableAliasing(true);
+            } else {
+                input = CodedInputStream.newInstance(inputStream);
+            }
+            // gRPC already enforces the maximum inbound message size
+            input.setSizeLimit(Integer.MAX_VALUE);
             return DynamicMessage.newBuilder(messageDescriptor)
-                    .mergeFrom(inputStream, ExtensionRegistryLite.getEmptyRegistry())
+                    .mergeFrom(input, ExtensionRegistryLite.getEmptyRegistry())
                     .build();
         } catch (IOException e) {
             throw new RuntimeException("Unable to merge from the supplied input stream", e);
@@ -30,6 +50,6 @@ public class DynamicMessageMarshaller implements Marshaller<DynamicMessage> {
 
     @Override
     public InputStream stream(DynamicMessage abstractMessage) {
-        return abstractMessage.toByteString().newInput();
+        return new MessageInputStream(abstractMessage);
     }
 }
@@ -0,0 +1,97 @@
+package vn.zalopay.benchmark.core.grpc;
+
+import com.google.common.collect.ImmutableList;
+
+import io.grpc.netty.NettyChannelBuilder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The event loops running the I/O of the channels. By default channels use the group gRPC shares
+ * between all its channels. When the native epoll transport or a number of threads is configured,
+ * every channel of every caller uses one group built for that configuration instead.
+ */
+final class EventLoops {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventLoops.class);
+    private static final String EPOLL_ENABLED_PROPERTY = "grpc.request.epoll.enabled";
+    private static final String THREADS_PROPERTY = "grpc.request.eventloop.threads";
+    // Groups outlive the callers using them, so there is one per configuration at most
+    private static final Map<List<Object>, EventLoops> SHARED = new ConcurrentHashMap<>();
+
+    private final boolean epoll;
+    private final int threads;
+    private volatile EventLoopGroup group;
+
+    private EventLoops(boolean epoll, int threads) {
+        this.epoll = epoll;
+        this.threads = threads;
+    }
+
+    /** Returns the event loops configured by the JMeter properties, or null for gRPC's own. */
+    static EventLoops configured() {
+        boolean epollEnabled = JMeterUtils.getPropDefault(EPOLL_ENABLED_PROPERTY, false);
+        int threads = Math.max(JMeterUtils.getPropDefault(THREADS_PROPERTY, 0), 0);
+        if (!epollEnabled && threads == 0) {
+            return null;
+        }
+        boolean epoll = epollEnabled && Epoll.isAvailable();
+        return SHARED.computeIfAbsent(
+                ImmutableList.of(epoll, threads),
+                k -> {
+                    if (epollEnabled && !epoll) {
+                        LOGGER.warn(
+                                "Native epoll transport unavailable, using NIO instead: {}",
+                                Epoll.unavailabilityCause().toString());
+                    }
+                    return new EventLoops(epoll, threads);
+                });
+    }
+
+    /** Makes the channel built by {@code builder} run on these event loops. */
+    void configure(NettyChannelBuilder builder) {
+        builder.eventLoopGroup(getGroup()).channelType(getChannelType());
+    }
+
+    boolean isEpoll() {
+        return epoll;
+    }
+
+    Class<? extends SocketChannel> getChannelType() {
+        return epoll ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    EventLoopGroup getGroup() {
+        EventLoopGroup result = group;
+        if (result == null) {
+            synchronized (this) {
+                result = group;
+                if (result == null) {
+                    // Zero threads lets Netty pick twice the number of cores
+                    DefaultThreadFactory threadFactory =
+                            new DefaultThreadFactory(
+                                    epoll ? "grpc-request-epoll" : "grpc-request-nio", true);
+                    result =
+                            epoll
+                                    ? new EpollEventLoopGroup(threads, threadFactory)
+                                    : new NioEventLoopGroup(threads, threadFactory);
+                    group = result;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,70 @@
+package vn.zalopay.benchmark.core.grpc;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.Message;
+
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Streams a message without serializing it up front. gRPC knows its size and drains it straight
+ * into the outbound buffers; it is only serialized to an array if it is read as a plain stream.
+ */
+class MessageInputStream extends InputStream implements Drainable, KnownLength {
+    // Null once drained or serialized for reading
+    private Message message;
+    private ByteArrayInputStream serialized;
+
+    MessageInputStream(Message message) {
+        this.message = message;
+    }
+
+    @Override
+    public int drainTo(OutputStream target) throws IOException {
+        if (message != null) {
+            int size = message.getSerializedSize();
+            message.writeTo(target);
+            message = null;
+            return size;
+        }
+        if (serialized != null) {
+            int size = (int) ByteStreams.copy(serialized, target);
+            serialized = null;
+            return size;
+        }
+        return 0;
+    }
+
+    @Override
+    public int read() {
+        ByteArrayInputStream stream = serialized();
+        return stream == null ? -1 : stream.read();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        ByteArrayInputStream stream = serialized();
+        return stream == null ? -1 : stream.read(buffer, offset, length);
+    }
+
+    @Override
+    public int available() {
+        if (message != null) {
+            return message.getSerializedSize();
+        }
+        return serialized == null ? 0 : serialized.available();
+    }
+
+    private ByteArrayInputStream serialized() {
+        if (message != null) {
+            serialized = new ByteArrayInputStream(message.toByteArray());
+            message = null;
+        }
+        return serialized;
+    }
+}
@@ -0,0 +1,169 @@
+package vn.zalopay.benchmark.core.message;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.MethodDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+
+import vn.zalopay.benchmark.core.protobuf.ServiceResolver;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The JSON type registry of a method. It starts with the files declaring the input and output types
+ * and their imports, instead of every file of the proto tree, and grows with the targets of {@code
+ * Any} values as requests and responses holding them are seen.
+ */
+public class MethodTypeRegistry {
+    private static final String ANY_TYPE_NAME = Any.getDescriptor().getFullName();
+    private static final Pattern TYPE_URL_PATTERN =
+            Pattern.compile("\"@type\"\\s*:\\s*\"([^\"]*)\"");
+
+    private final ServiceResolver serviceResolver;
+    // Adding a type adds the whole file declaring it, along with the files it imports
+    private final Set<Descriptor> registeredTypes = new LinkedHashSet<>();
+    // Whether each seen message type can hold an Any value, directly or in nested messages
+    private final Map<Descriptor, Boolean> holdsAny = new HashMap<>();
+    private final boolean responseHoldsAny;
+    private volatile JsonFormat.TypeRegistry registry;
+
+    public MethodTypeRegistry(ServiceResolver serviceResolver, MethodDescriptor methodDescriptor) {
+        this.serviceResolver = serviceResolver;
+        registeredTypes.add(methodDescriptor.getInputType());
+        registeredTypes.add(methodDescriptor.getOutputType());
+        this.registry = JsonFormat.TypeRegistry.newBuilder().add(registeredTypes).build();
+        this.responseHoldsAny = holdsAny(methodDescriptor.getOutputType());
+    }
+
+    /** Returns the registry holding every type registered so far. */
+    public JsonFormat.TypeRegistry get() {
+        return registry;
+    }
+
+    /** Returns whether responses need to be passed to {@link #registerTypesOf(Message)}. */
+    public boolean isResponseScanned() {
+        return responseHoldsAny;
+    }
+
+    /** Registers the types named by the {@code @type} keys of a JSON request. */
+    public JsonFormat.TypeRegistry registerTypesOf(String json) {
+        if (json == null || !json.contains("@type")) {
+            return registry;
+        }
+        Set<Descriptor> types = new HashSet<>();
+        Matcher matcher = TYPE_URL_PATTERN.matcher(json);
+        while (matcher.find()) {
+            Descriptor type = findType(matcher.group(1));
+            if (type != null) {
+                types.add(type);
+            }
+        }
+        return register(types);
+    }
+
+    /** Registers the target types of the {@code Any} values held by a message. */
+    public JsonFormat.TypeRegistry registerTypesOf(Message message) {
+        Set<Descriptor> types = new HashSet<>();
+        collectAnyTypes(message, types);
+        return register(types);
+    }
+
+    private synchronized JsonFormat.TypeRegistry register(Set<Descriptor> types) {
+        boolean added = false;
+        for (Descriptor type : types) {
+            if (registry.find(type.getFullName()) == null) {
+                added |= registeredTypes.add(type);
+            }
+        }
+        if (added) {
+            // Builders can only build once
+            registry = JsonFormat.TypeRegistry.newBuilder().add(registeredTypes).build();
+        }
+        return registry;
+    }
+
+    private void collectAnyTypes(Message message, Set<Descriptor> types) {
+        Descriptor descriptor = message.getDescriptorForType();
+        if (descriptor.getFullName().equals(ANY_TYPE_NAME)) {
+            collectAnyTarget(message, types);
+            return;
+        }
+        if (!holdsAny(descriptor)) {
+            return;
+        }
+        for (Map.Entry<FieldDescriptor, Object> field : message.getAllFields().entrySet()) {
+            if (field.getKey().getJavaType() != FieldDescriptor.JavaType.MESSAGE) {
+                continue;
+            }
+            if (field.getKey().isRepeated()) {
+                for (Object value : (List<?>) field.getValue()) {
+                    collectAnyTypes((Message) value, types);
+                }
+            } else {
+                collectAnyTypes((Message) field.getValue(), types);
+            }
+        }
+    }
+
+    private void collectAnyTarget(Message any, Set<Descriptor> types) {
+        Descriptor anyDescriptor = any.getDescriptorForType();
+        Descriptor type =
+                findType((String) any.getField(anyDescriptor.findFieldByName("type_url")));
+        if (type == null || !types.add(type) || !holdsAny(type)) {
+            return;
+        }
+        // The target may hold Any values of its own
+        try {
+            collectAnyTypes(
+                    DynamicMessage.parseFrom(
+                            type,
+                            (ByteString) any.getField(anyDescriptor.findFieldByName("value"))),
+                    types);
+        } catch (InvalidProtocolBufferException e) {
+            // Left to the JSON printer, which reports the broken value
+        }
+    }
+
+    private Descriptor findType(String typeUrl) {
+        return serviceResolver.findMessageType(typeUrl.substring(typeUrl.lastIndexOf('/') + 1));
+    }
+
+    private synchronized boolean holdsAny(Descriptor descriptor) {
+        return holdsAny.computeIfAbsent(descriptor, MethodTypeRegistry::reachesAny);
+    }
+
+    private static boolean reachesAny(Descriptor descriptor) {
+        Set<Descriptor> visited = new HashSet<>();
+        Deque<Descriptor> pending = new ArrayDeque<>();
+        pending.add(descriptor);
+        while (!pending.isEmpty()) {
+            Descriptor type = pending.poll();
+            if (type.getFullName().equals(ANY_TYPE_NAME)) {
+                return true;
+            }
+            if (!visited.add(type)) {
+                continue;
+            }
+            for (FieldDescriptor field : type.getFields()) {
+                if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+                    pending.add(field.getMessageType());
+                }
+            }
+        }
+        return false;
+    }
+}
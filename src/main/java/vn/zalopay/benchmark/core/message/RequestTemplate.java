@@ -0,0 +1,406 @@
+package vn.zalopay.benchmark.core.message;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.BaseEncoding;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.util.JsonFormat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A request compiled once into protobuf wire bytes, with a slot for every {@code ${...}} JMeter
+ * expression found in the request JSON.
+ *
+ * <p>The static part of the request is serialized up front. Rendering only encodes the slot values
+ * and appends them to the static bytes, relying on protobuf merge semantics: the last occurrence of
+ * a singular field wins and embedded messages are merged. Expressions must stand for a whole scalar
+ * field value, either bare ({@code "id": ${id}}) or as a whole JSON string ({@code "id": "${id}"});
+ * anything else (expressions inside repeated fields, maps, well-known types or in the middle of a
+ * string) makes the template unusable and {@link #compile} fails.
+ */
+public class RequestTemplate {
+    private static final String SLOT_MARKER = "__grpc_request_template_slot_";
+
+    private final Descriptors.Descriptor descriptor;
+    private final ByteString staticBytes;
+    private final ImmutableList<Slot> slots;
+
+    private RequestTemplate(
+            Descriptors.Descriptor descriptor, ByteString staticBytes, ImmutableList<Slot> slots) {
+        this.descriptor = descriptor;
+        this.staticBytes = staticBytes;
+        this.slots = slots;
+    }
+
+    /**
+     * Compiles a request JSON that may contain {@code ${...}} expressions.
+     *
+     * @throws IllegalArgumentException if the JSON is invalid or an expression is placed where it
+     *     can't be spliced into the wire bytes
+     */
+    public static RequestTemplate compile(
+            Descriptors.Descriptor descriptor, String template, JsonFormat.TypeRegistry registry) {
+        List<String> expressions = new ArrayList<>();
+        List<Boolean> quoted = new ArrayList<>();
+        String json = markSlots(template == null ? "" : template, expressions, quoted);
+
+        ImmutableList.Builder<Slot> slots = ImmutableList.builder();
+        DynamicMessage.Builder builder = DynamicMessage.newBuilder(descriptor);
+        if (!json.trim().isEmpty()) {
+            JsonElement root;
+            try {
+                root = JsonParser.parseString(json);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Request template is not valid JSON", e);
+            }
+            if (!root.isJsonObject()) {
+                throw new IllegalArgumentException("Request template must be a JSON object");
+            }
+            extractSlots(
+                    descriptor,
+                    root.getAsJsonObject(),
+                    ImmutableList.of(),
+                    expressions,
+                    quoted,
+                    slots);
+            try {
+                JsonFormat.parser()
+                        .usingTypeRegistry(registry)
+                        .ignoringUnknownFields()
+                        .merge(root.toString(), builder);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(
+                        "Unable to parse the static part of the request template", e);
+            }
+        }
+        return new RequestTemplate(descriptor, builder.build().toByteString(), slots.build());
+    }
+
+    /** Returns the message type the rendered bytes encode. */
+    public Descriptors.Descriptor getDescriptor() {
+        return descriptor;
+    }
+
+    /** Returns the JMeter expression of every slot, in the order {@link #render} expects values. */
+    public ImmutableList<String> getExpressions() {
+        ImmutableList.Builder<String> expressions = ImmutableList.builder();
+        slots.forEach(slot -> expressions.add(slot.expression));
+        return expressions.build();
+    }
+
+    /**
+     * Renders the request by splicing the evaluated value of each slot into the static bytes.
+     *
+     * @throws IllegalArgumentException if a value can't be converted to its field type
+     */
+    public ByteString render(List<String> values) {
+        if (values.size() != slots.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + slots.size() + " template values but got " + values.size());
+        }
+        if (slots.isEmpty()) {
+            return staticBytes;
+        }
+        try {
+            ByteString.Output output = ByteString.newOutput(staticBytes.size() + 16 * slots.size());
+            staticBytes.writeTo(output);
+            CodedOutputStream codedOutput = CodedOutputStream.newInstance(output);
+            for (int i = 0; i < slots.size(); i++) {
+                slots.get(i).writeTo(codedOutput, values.get(i));
+            }
+            codedOutput.flush();
+            return output.toByteString();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to render request template", e);
+        }
+    }
+
+    /**
+     * Replaces each expression with a quoted marker string, so the result can be parsed as JSON.
+     */
+    private static String markSlots(
+            String template, List<String> expressions, List<Boolean> quoted) {
+        StringBuilder json = new StringBuilder(template.length());
+        boolean inString = false;
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c == '$' && i + 1 < template.length() && template.charAt(i + 1) == '{') {
+                int end = findExpressionEnd(template, i + 2);
+                String marker = SLOT_MARKER + expressions.size();
+                expressions.add(template.substring(i, end));
+                if (!inString) {
+                    json.append('"').append(marker).append('"');
+                    quoted.add(false);
+                } else if (template.charAt(i - 1) == '"'
+                        && end < template.length()
+                        && template.charAt(end) == '"') {
+                    json.append(marker);
+                    quoted.add(true);
+                } else {
+                    throw new IllegalArgumentException(
+                            "Expression "
+                                    + template.substring(i, end)
+                                    + " must be the whole value of a JSON string");
+                }
+                i = end;
+                continue;
+            }
+            if (inString && c == '\\' && i + 1 < template.length()) {
+                json.append(c).append(template.charAt(i + 1));
+                i += 2;
+                continue;
+            }
+            if (c == '"') {
+                inString = !inString;
+            }
+            json.append(c);
+            i++;
+        }
+        return json.toString();
+    }
+
+    private static int findExpressionEnd(String template, int start) {
+        int depth = 1;
+        for (int i = start; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException(
+                "Unterminated expression in request template: " + template.substring(start - 2));
+    }
+
+    /** Moves every marker of the object (recursively) out of the JSON and into a slot. */
+    private static void extractSlots(
+            Descriptors.Descriptor descriptor,
+            JsonObject object,
+            ImmutableList<Descriptors.FieldDescriptor> parentPath,
+            List<String> expressions,
+            List<Boolean> quoted,
+            ImmutableList.Builder<Slot> slots) {
+        Iterator<Map.Entry<String, JsonElement>> entries = object.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, JsonElement> entry = entries.next();
+            Descriptors.FieldDescriptor field = findField(descriptor, entry.getKey());
+            JsonElement value = entry.getValue();
+            if (field == null || !containsMarker(value)) {
+                // Unknown fields are ignored when parsing, just like in a plain request.
+                continue;
+            }
+            ImmutableList<Descriptors.FieldDescriptor> path =
+                    ImmutableList.<Descriptors.FieldDescriptor>builder()
+                            .addAll(parentPath)
+                            .add(field)
+                            .build();
+            int index = markerIndex(value);
+            if (index >= 0 && isSplicableScalar(field)) {
+                slots.add(new Slot(path, expressions.get(index), quoted.get(index)));
+                entries.remove();
+            } else if (value.isJsonObject() && isSplicableMessage(field)) {
+                extractSlots(
+                        field.getMessageType(),
+                        value.getAsJsonObject(),
+                        path,
+                        expressions,
+                        quoted,
+                        slots);
+            } else {
+                throw new IllegalArgumentException(
+                        "Field " + field.getFullName() + " can't hold a template expression");
+            }
+        }
+    }
+
+    private static Descriptors.FieldDescriptor findField(
+            Descriptors.Descriptor descriptor, String name) {
+        for (Descriptors.FieldDescriptor field : descriptor.getFields()) {
+            if (field.getName().equals(name) || field.getJsonName().equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsMarker(JsonElement value) {
+        return value.toString().contains(SLOT_MARKER);
+    }
+
+    private static int markerIndex(JsonElement value) {
+        if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()) {
+            String text = value.getAsString();
+            if (text.startsWith(SLOT_MARKER)) {
+                return Integer.parseInt(text.substring(SLOT_MARKER.length()));
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isSplicableScalar(Descriptors.FieldDescriptor field) {
+        return !field.isRepeated()
+                && field.getJavaType() != Descriptors.FieldDescriptor.JavaType.MESSAGE;
+    }
+
+    private static boolean isSplicableMessage(Descriptors.FieldDescriptor field) {
+        // Well-known types have their own JSON mapping, so their fields can't be addressed by name.
+        return !field.isRepeated()
+                && field.getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE
+                && !field.getMessageType().getFile().getPackage().equals("google.protobuf");
+    }
+
+    /** A scalar field, possibly nested in singular message fields, filled in at render time. */
+    private static final class Slot {
+        private final ImmutableList<Descriptors.FieldDescriptor> path;
+        private final String expression;
+        private final boolean quoted;
+
+        private Slot(
+                ImmutableList<Descriptors.FieldDescriptor> path,
+                String expression,
+                boolean quoted) {
+            this.path = path;
+            this.expression = expression;
+            this.quoted = quoted;
+        }
+
+        private void writeTo(CodedOutputStream output, String value) throws IOException {
+            Descriptors.FieldDescriptor leaf = path.get(path.size() - 1);
+            if (quoted && value.indexOf('\\') >= 0) {
+                // Match the plain request, where the value is unescaped as part of a JSON string.
+                value = JsonParser.parseString('"' + value + '"').getAsString();
+            }
+            if (path.size() == 1) {
+                writeScalar(output, leaf, value);
+                return;
+            }
+            ByteString.Output nested = ByteString.newOutput();
+            CodedOutputStream nestedOutput = CodedOutputStream.newInstance(nested);
+            writeScalar(nestedOutput, leaf, value);
+            nestedOutput.flush();
+            ByteString bytes = nested.toByteString();
+            for (int i = path.size() - 2; i > 0; i--) {
+                bytes = wrap(path.get(i), bytes);
+            }
+            output.writeBytes(path.get(0).getNumber(), bytes);
+        }
+
+        private static ByteString wrap(Descriptors.FieldDescriptor field, ByteString bytes)
+                throws IOException {
+            ByteString.Output wrapped = ByteString.newOutput(bytes.size() + 8);
+            CodedOutputStream wrappedOutput = CodedOutputStream.newInstance(wrapped);
+            wrappedOutput.writeBytes(field.getNumber(), bytes);
+            wrappedOutput.flush();
+            return wrapped.toByteString();
+        }
+
+        private void writeScalar(
+                CodedOutputStream output, Descriptors.FieldDescriptor field, String value)
+                throws IOException {
+            int number = field.getNumber();
+            String trimmed = value.trim();
+            try {
+                switch (field.getType()) {
+                    case INT32:
+                        output.writeInt32(number, Integer.parseInt(trimmed));
+                        break;
+                    case SINT32:
+                        output.writeSInt32(number, Integer.parseInt(trimmed));
+                        break;
+                    case SFIXED32:
+                        output.writeSFixed32(number, Integer.parseInt(trimmed));
+                        break;
+                    case UINT32:
+                        output.writeUInt32(number, Integer.parseUnsignedInt(trimmed));
+                        break;
+                    case FIXED32:
+                        output.writeFixed32(number, Integer.parseUnsignedInt(trimmed));
+                        break;
+                    case INT64:
+                        output.writeInt64(number, Long.parseLong(trimmed));
+                        break;
+                    case SINT64:
+                        output.writeSInt64(number, Long.parseLong(trimmed));
+                        break;
+                    case SFIXED64:
+                        output.writeSFixed64(number, Long.parseLong(trimmed));
+                        break;
+                    case UINT64:
+                        output.writeUInt64(number, Long.parseUnsignedLong(trimmed));
+                        break;
+                    case FIXED64:
+                        output.writeFixed64(number, Long.parseUnsignedLong(trimmed));
+                        break;
+                    case FLOAT:
+                        output.writeFloat(number, Float.parseFloat(trimmed));
+                        break;
+                    case DOUBLE:
+                        output.writeDouble(number, Double.parseDouble(trimmed));
+                        break;
+                    case BOOL:
+                        output.writeBool(number, parseBoolean(trimmed));
+                        break;
+                    case STRING:
+                        output.writeString(number, value);
+                        break;
+                    case BYTES:
+                        output.writeBytes(number, ByteString.copyFrom(decodeBase64(trimmed)));
+                        break;
+                    case ENUM:
+                        output.writeEnum(number, parseEnum(field, trimmed));
+                        break;
+                    default:
+                        throw new IllegalArgumentException(
+                                "Unsupported field type " + field.getType());
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(
+                        "Unable to set field "
+                                + field.getFullName()
+                                + " from "
+                                + expression
+                                + " = "
+                                + value,
+                        e);
+            }
+        }
+
+        private static boolean parseBoolean(String value) {
+            if ("true".equals(value)) {
+                return true;
+            }
+            if ("false".equals(value)) {
+                return false;
+            }
+            throw new NumberFormatException("Invalid bool value: " + value);
+        }
+
+        private static byte[] decodeBase64(String value) {
+            try {
+                return BaseEncoding.base64().decode(value);
+            } catch (IllegalArgumentException e) {
+                return BaseEncoding.base64Url().decode(value);
+            }
+        }
+
+        private static int parseEnum(Descriptors.FieldDescriptor field, String value) {
+            Descriptors.EnumValueDescriptor enumValue = field.getEnumType().findValueByName(value);
+            if (enumValue != null) {
+                return enumValue.getNumber();
+            }
+            return Integer.parseInt(value);
+        }
+    }
+}
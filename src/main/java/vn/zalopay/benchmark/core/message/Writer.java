@@ -1,6 +1,5 @@
 package vn.zalopay.benchmark.core.message;
 
-import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
 import com.google.protobuf.util.JsonFormat;
 
@@ -15,12 +14,26 @@ public class Writer<T extends Message> implements StreamObserver<T> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Writer.class);
 
-    private final JsonFormat.Printer jsonPrinter;
+    private JsonFormat.Printer jsonPrinter;
     private final GrpcResponse grpcResponse;
+    // Grows with the Any values of responses, null if the printer's registry is fixed
+    private final MethodTypeRegistry typeRegistry;
+    private JsonFormat.TypeRegistry registry;
 
     Writer(JsonFormat.Printer jsonPrinter, GrpcResponse grpcResponse) {
+        this(jsonPrinter, grpcResponse, null, null);
+    }
+
+    private Writer(
+            JsonFormat.Printer jsonPrinter,
+            GrpcResponse grpcResponse,
+            MethodTypeRegistry typeRegistry,
+            JsonFormat.TypeRegistry registry) {
         this.jsonPrinter = jsonPrinter.preservingProtoFieldNames().includingDefaultValueFields();
         this.grpcResponse = grpcResponse;
+        this.grpcResponse.setJsonPrinter(this.jsonPrinter);
+        this.typeRegistry = typeRegistry;
+        this.registry = registry;
     }
 
     /** Creates a new Writer which writes the messages it sees to the supplied Output. */
@@ -29,9 +42,25 @@ public class Writer<T extends Message> implements StreamObserver<T> {
         return new Writer<>(JsonFormat.printer().usingTypeRegistry(registry), grpcResponse);
     }
 
+    /**
+     * Creates a new Writer which writes the messages it sees to the supplied Output, registering
+     * the targets of the Any values they hold so that they can be printed.
+     */
+    public static <T extends Message> Writer<T> create(
+            GrpcResponse grpcResponse, MethodTypeRegistry typeRegistry) {
+        JsonFormat.TypeRegistry registry = typeRegistry.get();
+        return new Writer<>(
+                JsonFormat.printer().usingTypeRegistry(registry),
+                grpcResponse,
+                typeRegistry.isResponseScanned() ? typeRegistry : null,
+                registry);
+    }
+
     @Override
     public void onCompleted() {
-        LOGGER.debug("On completed gRPC message: {}", grpcResponse.getGrpcMessageString());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("On completed gRPC message: {}", grpcResponse.getGrpcMessageString());
+        }
     }
 
     @Override
@@ -42,11 +71,16 @@ public class Writer<T extends Message> implements StreamObserver<T> {
 
     @Override
     public void onNext(T message) {
-        try {
-            grpcResponse.setSuccess(true);
-            grpcResponse.storeGrpcMessage(jsonPrinter.print(message));
-        } catch (InvalidProtocolBufferException e) {
-            LOGGER.warn(e.getMessage());
+        // Messages are kept as they are and only printed as JSON if the response is read.
+        grpcResponse.setSuccess(true);
+        grpcResponse.storeGrpcMessage(message);
+        if (typeRegistry != null) {
+            JsonFormat.TypeRegistry grown = typeRegistry.registerTypesOf(message);
+            if (grown != registry) {
+                registry = grown;
+                jsonPrinter = jsonPrinter.usingTypeRegistry(grown);
+                grpcResponse.setJsonPrinter(jsonPrinter);
+            }
         }
     }
 }
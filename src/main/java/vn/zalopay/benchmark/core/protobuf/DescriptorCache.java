@@ -0,0 +1,158 @@
+package vn.zalopay.benchmark.core.protobuf;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps compiled {@link FileDescriptorSet}s on disk so that an unchanged proto tree doesn't have to
+ * go through protoc again.
+ *
+ * <p>Entries are keyed by a hash of everything protoc sees: the protoc version, the compiled files,
+ * the include paths and the content of every .proto file under them. Any change in the tree
+ * therefore misses the cache instead of returning stale descriptors. Old entries are never removed,
+ * the cache folder can be deleted at any time.
+ */
+public class DescriptorCache {
+    private static final Logger logger = LoggerFactory.getLogger(DescriptorCache.class);
+    private static final String CACHE_ENABLED_PROPERTY = "grpc.request.descriptor.cache.enabled";
+    private static final String CACHE_DIR_PROPERTY = "grpc.request.descriptor.cache.dir";
+    // Changes whenever the key or the entry layout changes, so old entries are left alone
+    private static final String CACHE_FORMAT = "1";
+
+    private final Path cacheDir;
+
+    public DescriptorCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /** Returns the cache configured by the JMeter properties, if it is enabled. */
+    public static Optional<DescriptorCache> fromProperties() {
+        if (!JMeterUtils.getPropDefault(CACHE_ENABLED_PROPERTY, false)) {
+            return Optional.empty();
+        }
+        String defaultDir =
+                Paths.get(System.getProperty("user.home"), ".jmeter-grpc", "cache").toString();
+        return Optional.of(
+                new DescriptorCache(
+                        Paths.get(JMeterUtils.getPropDefault(CACHE_DIR_PROPERTY, defaultDir))));
+    }
+
+    /**
+     * Computes the key of the descriptors compiled from the given .proto files, which may import
+     * any .proto file under the given roots. The roots must be listed in include order.
+     */
+    public static String keyOf(
+            String protocVersion, List<Path> protoRoots, Collection<String> protoFiles)
+            throws IOException {
+        Hasher hasher = Hashing.sha256().newHasher();
+        putString(hasher, CACHE_FORMAT);
+        putString(hasher, protocVersion);
+        for (String file : WellKnownTypes.fileNames()) {
+            try (InputStream inputStream =
+                    DescriptorCache.class.getResourceAsStream("/google/protobuf/" + file)) {
+                putBytes(hasher, ByteStreams.toByteArray(inputStream));
+            }
+        }
+        for (String protoFile : new TreeSet<>(protoFiles)) {
+            putString(hasher, protoFile);
+        }
+        for (Path protoRoot : protoRoots) {
+            putString(hasher, protoRoot.toAbsolutePath().toString());
+            for (Path protoFile : listProtoFiles(protoRoot)) {
+                putString(hasher, protoRoot.relativize(protoFile).toString());
+                putBytes(hasher, Files.readAllBytes(protoFile));
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    /** Returns the cached descriptors for the key, or nothing if there are none usable. */
+    public Optional<FileDescriptorSet> get(String key) {
+        Path entry = entryPath(key);
+        if (!Files.isRegularFile(entry)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(FileDescriptorSet.parseFrom(Files.readAllBytes(entry)));
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable descriptor cache entry {}", entry, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores the descriptors for the key. Failures are only logged since the descriptors can always
+     * be compiled again.
+     */
+    public void put(String key, FileDescriptorSet fileDescriptorSet) {
+        Path entry = entryPath(key);
+        try {
+            Files.createDirectories(cacheDir);
+            // Written aside and moved in place so that concurrent readers never see half an entry
+            Path tempEntry = Files.createTempFile(cacheDir, key, ".tmp");
+            try {
+                Files.write(tempEntry, fileDescriptorSet.toByteArray());
+                moveInPlace(tempEntry, entry);
+            } finally {
+                Files.deleteIfExists(tempEntry);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to write descriptor cache entry {}", entry, e);
+        }
+    }
+
+    Path entryPath(String key) {
+        return cacheDir.resolve(key + ProtocInvoker.DESCRIPTOR_EXTENSION);
+    }
+
+    private static void moveInPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(
+                    source,
+                    target,
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static List<Path> listProtoFiles(Path protoRoot) throws IOException {
+        try (Stream<Path> paths = Files.walk(protoRoot)) {
+            return paths.filter(path -> path.toString().endsWith(".proto"))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    // Lengths are hashed along with the values so that concatenations can't collide
+    private static void putString(Hasher hasher, String value) {
+        putBytes(hasher, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void putBytes(Hasher hasher, byte[] value) {
+        hasher.putInt(value.length).putBytes(value);
+    }
+}
@@ -0,0 +1,988 @@
+package vn.zalopay.benchmark.core.protobuf;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumDescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumValueDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.DescriptorProtos.MethodDescriptorProto;
+import com.google.protobuf.DescriptorProtos.OneofDescriptorProto;
+import com.google.protobuf.DescriptorProtos.ServiceDescriptorProto;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+
+import vn.zalopay.benchmark.exception.ProtocInvocationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Builds the same {@link FileDescriptorSet} as {@code protoc --include_imports} without leaving the
+ * JVM, so no native binary has to be extracted and concurrent invocations are safe.
+ *
+ * <p>Imports are looked up like protoc does with the include paths of {@link ProtocInvoker}: the
+ * library folders first, then the bundled well-known types, then the discovery root. Only the
+ * syntax used by proto2 and proto3 service definitions is supported, groups are rejected. Custom
+ * options are skipped since their definitions aren't needed to call a service.
+ */
+public class ProtoParser {
+    private static final String WELL_KNOWN_TYPES_PREFIX = "google/protobuf/";
+    // Exclusive upper bound of the field numbers, which "max" stands for in ranges
+    private static final int MAX_FIELD_NUMBER_BOUND = 536870912;
+    private static final Map<String, FieldDescriptorProto.Type> SCALAR_TYPES = new HashMap<>();
+
+    static {
+        for (FieldDescriptorProto.Type type : FieldDescriptorProto.Type.values()) {
+            if (type != FieldDescriptorProto.Type.TYPE_GROUP
+                    && type != FieldDescriptorProto.Type.TYPE_MESSAGE
+                    && type != FieldDescriptorProto.Type.TYPE_ENUM) {
+                SCALAR_TYPES.put(type.name().substring(5).toLowerCase(), type);
+            }
+        }
+    }
+
+    private enum SymbolKind {
+        PACKAGE,
+        MESSAGE,
+        ENUM,
+        SERVICE,
+        OTHER
+    }
+
+    private final List<Path> includePaths;
+    private final Path discoveryRoot;
+    private final Map<String, FileDescriptorProto.Builder> files = new LinkedHashMap<>();
+    private final Set<String> loading = new HashSet<>();
+    private final Map<String, SymbolKind> symbols = new HashMap<>();
+    private final Map<String, String> symbolFiles = new HashMap<>();
+
+    /** Takes the library folders in include order and the root the proto files are found in. */
+    public ProtoParser(List<Path> includePaths, Path discoveryRoot) {
+        this.includePaths = includePaths;
+        this.discoveryRoot = discoveryRoot.toAbsolutePath();
+    }
+
+    /**
+     * Parses the given .proto files and everything they import, returning them in dependency order
+     * like protoc does.
+     */
+    public FileDescriptorSet parse(Collection<String> protoFilePaths)
+            throws ProtocInvocationException {
+        List<String> fileNames = new ArrayList<>();
+        for (String protoFilePath : protoFilePaths) {
+            Path path = Paths.get(protoFilePath).toAbsolutePath();
+            String fileName = fileNameOf(path);
+            fileNames.add(fileName);
+            if (!files.containsKey(fileName)) {
+                loadFile(fileName, readFile(path));
+            }
+        }
+        for (FileDescriptorProto.Builder file : files.values()) {
+            addSymbols(file);
+        }
+        for (FileDescriptorProto.Builder file : files.values()) {
+            link(file);
+        }
+        FileDescriptorSet.Builder fileDescriptorSet = FileDescriptorSet.newBuilder();
+        Set<String> added = new HashSet<>();
+        for (String fileName : fileNames) {
+            addWithDependencies(fileName, fileDescriptorSet, added);
+        }
+        return fileDescriptorSet.build();
+    }
+
+    private void addWithDependencies(
+            String fileName, FileDescriptorSet.Builder fileDescriptorSet, Set<String> added) {
+        if (!added.add(fileName)) {
+            return;
+        }
+        FileDescriptorProto.Builder file = files.get(fileName);
+        for (String dependency : file.getDependencyList()) {
+            addWithDependencies(dependency, fileDescriptorSet, added);
+        }
+        fileDescriptorSet.addFile(file);
+    }
+
+    /** Names a file given by path after the first include path containing it, as protoc does. */
+    private String fileNameOf(Path path) {
+        List<Path> roots = new ArrayList<>(includePaths);
+        roots.add(discoveryRoot);
+        for (Path root : roots) {
+            Path absoluteRoot = root.toAbsolutePath();
+            if (path.startsWith(absoluteRoot)) {
+                return absoluteRoot.relativize(path).toString().replace('\\', '/');
+            }
+        }
+        throw new ProtocInvocationException(
+                path + ": File does not reside within any path specified using --proto_path");
+    }
+
+    private void loadFile(String fileName, String content) {
+        loading.add(fileName);
+        FileDescriptorProto.Builder file =
+                new FileParser(new ProtoTokenizer(fileName, content)).parseFile(fileName);
+        for (String dependency : file.getDependencyList()) {
+            if (loading.contains(dependency)) {
+                throw new ProtocInvocationException(
+                        fileName + ": File recursively imports itself: " + dependency);
+            }
+            if (!files.containsKey(dependency)) {
+                loadFile(dependency, findImport(fileName, dependency));
+            }
+        }
+        loading.remove(fileName);
+        files.put(fileName, file);
+    }
+
+    private String findImport(String importingFile, String fileName) {
+        for (Path includePath : includePaths) {
+            Path path = includePath.resolve(fileName);
+            if (Files.isRegularFile(path)) {
+                return readFile(path);
+            }
+        }
+        if (fileName.startsWith(WELL_KNOWN_TYPES_PREFIX)
+                && WellKnownTypes.fileNames()
+                        .contains(fileName.substring(WELL_KNOWN_TYPES_PREFIX.length()))) {
+            try (InputStream inputStream = ProtoParser.class.getResourceAsStream("/" + fileName)) {
+                return new String(ByteStreams.toByteArray(inputStream), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new ProtocInvocationException(
+                        "Unable to read well known type " + fileName, e);
+            }
+        }
+        Path path = discoveryRoot.resolve(fileName);
+        if (Files.isRegularFile(path)) {
+            return readFile(path);
+        }
+        throw new ProtocInvocationException(
+                importingFile + ": Import \"" + fileName + "\" was not found.");
+    }
+
+    private static String readFile(Path path) {
+        try {
+            return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new ProtocInvocationException("Unable to read proto file " + path, e);
+        }
+    }
+
+    private void addSymbols(FileDescriptorProto.Builder file) {
+        String packageName = file.getPackage();
+        if (!packageName.isEmpty()) {
+            String prefix = "";
+            for (String part : packageName.split("\\.")) {
+                prefix = prefix.isEmpty() ? part : prefix + "." + part;
+                SymbolKind kind = symbols.putIfAbsent(prefix, SymbolKind.PACKAGE);
+                if (kind != null && kind != SymbolKind.PACKAGE) {
+                    throw duplicateSymbol(file.getName(), prefix);
+                }
+            }
+        }
+        for (DescriptorProto message : file.getMessageTypeList()) {
+            addMessageSymbols(file.getName(), packageName, message);
+        }
+        for (EnumDescriptorProto enumType : file.getEnumTypeList()) {
+            addEnumSymbols(file.getName(), packageName, enumType);
+        }
+        for (FieldDescriptorProto extension : file.getExtensionList()) {
+            addSymbol(file.getName(), qualify(packageName, extension.getName()), SymbolKind.OTHER);
+        }
+        for (ServiceDescriptorProto service : file.getServiceList()) {
+            String serviceName = qualify(packageName, service.getName());
+            addSymbol(file.getName(), serviceName, SymbolKind.SERVICE);
+            for (MethodDescriptorProto method : service.getMethodList()) {
+                addSymbol(file.getName(), qualify(serviceName, method.getName()), SymbolKind.OTHER);
+            }
+        }
+    }
+
+    private void addMessageSymbols(String fileName, String scope, DescriptorProto message) {
+        String messageName = qualify(scope, message.getName());
+        addSymbol(fileName, messageName, SymbolKind.MESSAGE);
+        for (FieldDescriptorProto field : message.getFieldList()) {
+            addSymbol(fileName, qualify(messageName, field.getName()), SymbolKind.OTHER);
+        }
+        for (FieldDescriptorProto extension : message.getExtensionList()) {
+            addSymbol(fileName, qualify(messageName, extension.getName()), SymbolKind.OTHER);
+        }
+        for (OneofDescriptorProto oneof : message.getOneofDeclList()) {
+            addSymbol(fileName, qualify(messageName, oneof.getName()), SymbolKind.OTHER);
+        }
+        for (DescriptorProto nestedType : message.getNestedTypeList()) {
+            addMessageSymbols(fileName, messageName, nestedType);
+        }
+        for (EnumDescriptorProto enumType : message.getEnumTypeList()) {
+            addEnumSymbols(fileName, messageName, enumType);
+        }
+    }
+
+    private void addEnumSymbols(String fileName, String scope, EnumDescriptorProto enumType) {
+        addSymbol(fileName, qualify(scope, enumType.getName()), SymbolKind.ENUM);
+        // Enum values are siblings of their enum type, like in C++
+        for (EnumValueDescriptorProto value : enumType.getValueList()) {
+            addSymbol(fileName, qualify(scope, value.getName()), SymbolKind.OTHER);
+        }
+    }
+
+    private void addSymbol(String fileName, String fullName, SymbolKind kind) {
+        if (symbols.putIfAbsent(fullName, kind) != null) {
+            throw duplicateSymbol(fileName, fullName);
+        }
+        symbolFiles.put(fullName, fileName);
+    }
+
+    private ProtocInvocationException duplicateSymbol(String fileName, String fullName) {
+        String definingFile = symbolFiles.get(fullName);
+        return new ProtocInvocationException(
+                fileName
+                        + ": \""
+                        + fullName
+                        + "\" is already defined"
+                        + (definingFile == null ? "." : " in file \"" + definingFile + "\"."));
+    }
+
+    private void link(FileDescriptorProto.Builder file) {
+        String packageName = file.getPackage();
+        for (DescriptorProto.Builder message : file.getMessageTypeBuilderList()) {
+            linkMessage(file.getName(), packageName, message);
+        }
+        for (FieldDescriptorProto.Builder extension : file.getExtensionBuilderList()) {
+            linkField(file.getName(), packageName, extension);
+        }
+        for (ServiceDescriptorProto.Builder service : file.getServiceBuilderList()) {
+            String serviceName = qualify(packageName, service.getName());
+            for (MethodDescriptorProto.Builder method : service.getMethodBuilderList()) {
+                String methodName = qualify(serviceName, method.getName());
+                method.setInputType(
+                        "." + resolveType(file.getName(), methodName, method.getInputType(), true));
+                method.setOutputType(
+                        "."
+                                + resolveType(
+                                        file.getName(), methodName, method.getOutputType(), true));
+            }
+        }
+    }
+
+    private void linkMessage(String fileName, String scope, DescriptorProto.Builder message) {
+        String messageName = qualify(scope, message.getName());
+        for (FieldDescriptorProto.Builder field : message.getFieldBuilderList()) {
+            linkField(fileName, messageName, field);
+        }
+        for (FieldDescriptorProto.Builder extension : message.getExtensionBuilderList()) {
+            linkField(fileName, messageName, extension);
+        }
+        for (DescriptorProto.Builder nestedType : message.getNestedTypeBuilderList()) {
+            linkMessage(fileName, messageName, nestedType);
+        }
+    }
+
+    private void linkField(String fileName, String scope, FieldDescriptorProto.Builder field) {
+        String fieldName = qualify(scope, field.getName());
+        if (field.hasExtendee()) {
+            field.setExtendee("." + resolveType(fileName, fieldName, field.getExtendee(), false));
+        }
+        if (field.hasType()) {
+            return;
+        }
+        String typeName = resolveType(fileName, fieldName, field.getTypeName(), true);
+        field.setTypeName("." + typeName);
+        field.setType(
+                symbols.get(typeName) == SymbolKind.ENUM
+                        ? FieldDescriptorProto.Type.TYPE_ENUM
+                        : FieldDescriptorProto.Type.TYPE_MESSAGE);
+    }
+
+    /**
+     * Resolves a type reference made by the element with the given full name, following the C++
+     * scoping rules protoc applies: the first part of the name is looked up from the innermost
+     * scope outwards, the rest of the name must then be found inside it.
+     */
+    private String resolveType(
+            String fileName, String relativeTo, String typeName, boolean allowEnum) {
+        String resolved = lookupSymbol(relativeTo, typeName);
+        SymbolKind kind = resolved == null ? null : symbols.get(resolved);
+        if (kind != SymbolKind.MESSAGE && (kind != SymbolKind.ENUM || !allowEnum)) {
+            throw new ProtocInvocationException(
+                    fileName
+                            + ": \""
+                            + typeName
+                            + (kind == null ? "\" is not defined." : "\" is not a message type."));
+        }
+        return resolved;
+    }
+
+    private String lookupSymbol(String relativeTo, String name) {
+        if (name.startsWith(".")) {
+            return symbols.containsKey(name.substring(1)) ? name.substring(1) : null;
+        }
+        int firstDot = name.indexOf('.');
+        String firstPart = firstDot < 0 ? name : name.substring(0, firstDot);
+        String scope = relativeTo;
+        while (true) {
+            int lastDot = scope.lastIndexOf('.');
+            if (lastDot < 0) {
+                return symbols.containsKey(name) ? name : null;
+            }
+            scope = scope.substring(0, lastDot);
+            String candidate = scope + "." + firstPart;
+            SymbolKind kind = symbols.get(candidate);
+            if (kind == null) {
+                continue;
+            }
+            if (firstDot >= 0) {
+                if (kind != SymbolKind.OTHER) {
+                    // The rest of the name must be found in the first aggregate that matched
+                    String fullName = scope + "." + name;
+                    return symbols.containsKey(fullName) ? fullName : null;
+                }
+            } else if (kind == SymbolKind.MESSAGE || kind == SymbolKind.ENUM) {
+                return candidate;
+            }
+        }
+    }
+
+    private static String qualify(String scope, String name) {
+        return scope.isEmpty() ? name : scope + "." + name;
+    }
+
+    /** Parses the content of a single file, type references are left to the linking step. */
+    private static class FileParser {
+        private final ProtoTokenizer tokenizer;
+        private boolean proto3;
+
+        FileParser(ProtoTokenizer tokenizer) {
+            this.tokenizer = tokenizer;
+        }
+
+        FileDescriptorProto.Builder parseFile(String fileName) {
+            FileDescriptorProto.Builder file = FileDescriptorProto.newBuilder().setName(fileName);
+            if (tokenizer.tryConsume("syntax")) {
+                tokenizer.expect("=");
+                String syntax = new String(tokenizer.expectString(), StandardCharsets.UTF_8);
+                if (!syntax.equals("proto2") && !syntax.equals("proto3")) {
+                    throw tokenizer.error("Unrecognized syntax identifier \"" + syntax + "\"");
+                }
+                proto3 = syntax.equals("proto3");
+                tokenizer.expect(";");
+            }
+            if (proto3) {
+                file.setSyntax("proto3");
+            }
+            while (tokenizer.peek().kind != ProtoTokenizer.Kind.END) {
+                if (tokenizer.tryConsume(";")) {
+                    continue;
+                }
+                if (tokenizer.tryConsume("package")) {
+                    if (file.hasPackage()) {
+                        throw tokenizer.error("Multiple package definitions.");
+                    }
+                    file.setPackage(tokenizer.expectFullIdentifier());
+                    tokenizer.expect(";");
+                } else if (tokenizer.tryConsume("import")) {
+                    parseImport(file);
+                } else if (tokenizer.tryConsume("option")) {
+                    parseOption(file.getOptionsBuilder());
+                    tokenizer.expect(";");
+                } else if (tokenizer.tryConsume("message")) {
+                    file.addMessageType(parseMessage());
+                } else if (tokenizer.tryConsume("enum")) {
+                    file.addEnumType(parseEnum());
+                } else if (tokenizer.tryConsume("service")) {
+                    file.addService(parseService());
+                } else if (tokenizer.tryConsume("extend")) {
+                    parseExtend(file::addExtension);
+                } else {
+                    throw tokenizer.error(
+                            "Expected top-level statement, found \""
+                                    + tokenizer.peek().text
+                                    + "\"");
+                }
+            }
+            return file;
+        }
+
+        private void parseImport(FileDescriptorProto.Builder file) {
+            if (tokenizer.tryConsume("public")) {
+                file.addPublicDependency(file.getDependencyCount());
+            } else if (tokenizer.tryConsume("weak")) {
+                file.addWeakDependency(file.getDependencyCount());
+            }
+            file.addDependency(new String(tokenizer.expectString(), StandardCharsets.UTF_8));
+            tokenizer.expect(";");
+        }
+
+        private DescriptorProto parseMessage() {
+            DescriptorProto.Builder message =
+                    DescriptorProto.newBuilder().setName(tokenizer.expectIdentifier());
+            tokenizer.expect("{");
+            while (!tokenizer.tryConsume("}")) {
+                if (tokenizer.tryConsume(";")) {
+                    continue;
+                }
+                if (tokenizer.tryConsume("message")) {
+                    message.addNestedType(parseMessage());
+                } else if (tokenizer.tryConsume("enum")) {
+                    message.addEnumType(parseEnum());
+                } else if (tokenizer.tryConsume("oneof")) {
+                    parseOneof(message);
+                } else if (tokenizer.tryConsume("extend")) {
+                    parseExtend(message::addExtension);
+                } else if (tokenizer.tryConsume("extensions")) {
+                    parseExtensions(message);
+                } else if (tokenizer.tryConsume("reserved")) {
+                    parseMessageReserved(message);
+                } else if (tokenizer.tryConsume("option")) {
+                    parseOption(message.getOptionsBuilder());
+                    tokenizer.expect(";");
+                } else {
+                    message.addField(parseField(parseLabel(), message));
+                }
+            }
+            addSyntheticOneofs(message);
+            return message.build();
+        }
+
+        private FieldDescriptorProto.Label parseLabel() {
+            if (tokenizer.tryConsume("repeated")) {
+                return FieldDescriptorProto.Label.LABEL_REPEATED;
+            }
+            if (tokenizer.tryConsume("required")) {
+                return FieldDescriptorProto.Label.LABEL_REQUIRED;
+            }
+            if (tokenizer.tryConsume("optional")) {
+                return FieldDescriptorProto.Label.LABEL_OPTIONAL;
+            }
+            return null;
+        }
+
+        /**
+         * Parses a field after its label, which is null if there is none. Map fields add their
+         * entry type to the given message.
+         */
+        private FieldDescriptorProto parseField(
+                FieldDescriptorProto.Label label, DescriptorProto.Builder message) {
+            FieldDescriptorProto.Builder field = FieldDescriptorProto.newBuilder();
+            if (label == FieldDescriptorProto.Label.LABEL_OPTIONAL && proto3) {
+                field.setProto3Optional(true);
+            }
+            field.setLabel(label == null ? FieldDescriptorProto.Label.LABEL_OPTIONAL : label);
+            if (tokenizer.peek().is("group")) {
+                throw tokenizer.error("Groups are not supported, use a nested message instead.");
+            }
+            String typeName = tokenizer.expectFullIdentifier();
+            DescriptorProto.Builder mapEntry = null;
+            if (typeName.equals("map") && tokenizer.tryConsume("<")) {
+                if (label != null) {
+                    throw tokenizer.error("Field labels are not allowed on map fields.");
+                }
+                mapEntry = DescriptorProto.newBuilder();
+                mapEntry.addField(entryField("key", 1, tokenizer.expectFullIdentifier()));
+                tokenizer.expect(",");
+                mapEntry.addField(entryField("value", 2, tokenizer.expectFullIdentifier()));
+                tokenizer.expect(">");
+                mapEntry.getOptionsBuilder().setMapEntry(true);
+                field.setLabel(FieldDescriptorProto.Label.LABEL_REPEATED);
+            } else {
+                setType(field, typeName);
+            }
+            field.setName(tokenizer.expectIdentifier());
+            tokenizer.expect("=");
+            field.setNumber(tokenizer.expectInteger());
+            if (tokenizer.tryConsume("[")) {
+                parseFieldOptions(field);
+            }
+            tokenizer.expect(";");
+            if (!field.hasJsonName()) {
+                field.setJsonName(toJsonName(field.getName()));
+            }
+            if (mapEntry != null) {
+                if (message == null) {
+                    throw tokenizer.error("Map fields are not allowed in extensions.");
+                }
+                mapEntry.setName(mapEntryName(field.getName()));
+                field.setTypeName(mapEntry.getName());
+                message.addNestedType(mapEntry);
+            }
+            return field.build();
+        }
+
+        private FieldDescriptorProto entryField(String name, int number, String typeName) {
+            FieldDescriptorProto.Builder field =
+                    FieldDescriptorProto.newBuilder()
+                            .setName(name)
+                            .setNumber(number)
+                            .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL)
+                            .setJsonName(name);
+            setType(field, typeName);
+            return field.build();
+        }
+
+        private static void setType(FieldDescriptorProto.Builder field, String typeName) {
+            FieldDescriptorProto.Type type = SCALAR_TYPES.get(typeName);
+            if (type != null) {
+                field.setType(type);
+            } else {
+                // Resolved once all files are parsed
+                field.setTypeName(typeName);
+            }
+        }
+
+        private void parseFieldOptions(FieldDescriptorProto.Builder field) {
+            do {
+                if (tokenizer.tryConsume("default")) {
+                    tokenizer.expect("=");
+                    field.setDefaultValue(parseDefaultValue(field));
+                } else if (tokenizer.tryConsume("json_name")) {
+                    tokenizer.expect("=");
+                    field.setJsonName(new String(tokenizer.expectString(), StandardCharsets.UTF_8));
+                } else {
+                    parseOption(field.getOptionsBuilder());
+                }
+            } while (tokenizer.tryConsume(","));
+            tokenizer.expect("]");
+        }
+
+        /** Formats a default value the way protoc stores it in the descriptor. */
+        private String parseDefaultValue(FieldDescriptorProto.Builder field) {
+            if (!field.hasType()) {
+                // Enum value, the type isn't known before linking
+                return tokenizer.expectIdentifier();
+            }
+            switch (field.getType()) {
+                case TYPE_STRING:
+                    return new String(tokenizer.expectString(), StandardCharsets.UTF_8);
+                case TYPE_BYTES:
+                    return escapeBytes(tokenizer.expectString());
+                case TYPE_BOOL:
+                    String value = tokenizer.expectIdentifier();
+                    if (!value.equals("true") && !value.equals("false")) {
+                        throw tokenizer.error("Expected \"true\" or \"false\".");
+                    }
+                    return value;
+                case TYPE_FLOAT:
+                case TYPE_DOUBLE:
+                    return formatFloat(
+                            parseFloat(), field.getType() == FieldDescriptorProto.Type.TYPE_FLOAT);
+                case TYPE_UINT64:
+                case TYPE_FIXED64:
+                    return Long.toUnsignedString(parseLong());
+                default:
+                    return Long.toString(parseLong());
+            }
+        }
+
+        private void parseOneof(DescriptorProto.Builder message) {
+            int oneofIndex = message.getOneofDeclCount();
+            OneofDescriptorProto.Builder oneof =
+                    message.addOneofDeclBuilder().setName(tokenizer.expectIdentifier());
+            tokenizer.expect("{");
+            while (!tokenizer.tryConsume("}")) {
+                if (tokenizer.tryConsume(";")) {
+                    continue;
+                }
+                if (tokenizer.tryConsume("option")) {
+                    parseOption(oneof.getOptionsBuilder());
+                    tokenizer.expect(";");
+                    continue;
+                }
+                if (parseLabel() != null) {
+                    throw tokenizer.error("Fields in oneofs must not have labels.");
+                }
+                message.addField(
+                        parseField(null, message).toBuilder().setOneofIndex(oneofIndex).build());
+            }
+        }
+
+        /** Adds the oneofs protoc generates for proto3 optional fields, after the declared ones. */
+        private static void addSyntheticOneofs(DescriptorProto.Builder message) {
+            Set<String> names = new HashSet<>();
+            for (FieldDescriptorProto field : message.getFieldList()) {
+                names.add(field.getName());
+            }
+            for (OneofDescriptorProto oneof : message.getOneofDeclList()) {
+                names.add(oneof.getName());
+            }
+            for (FieldDescriptorProto.Builder field : message.getFieldBuilderList()) {
+                if (!field.getProto3Optional()) {
+                    continue;
+                }
+                String oneofName =
+                        field.getName().startsWith("_") ? field.getName() : "_" + field.getName();
+                while (names.contains(oneofName)) {
+                    oneofName = "X" + oneofName;
+                }
+                names.add(oneofName);
+                field.setOneofIndex(message.getOneofDeclCount());
+                message.addOneofDecl(OneofDescriptorProto.newBuilder().setName(oneofName));
+            }
+        }
+
+        private void parseExtend(Consumer<FieldDescriptorProto> sink) {
+            String extendee = tokenizer.expectFullIdentifier();
+            tokenizer.expect("{");
+            while (!tokenizer.tryConsume("}")) {
+                if (tokenizer.tryConsume(";")) {
+                    continue;
+                }
+                FieldDescriptorProto.Label label = parseLabel();
+                FieldDescriptorProto extension = parseField(label, null);
+                sink.accept(
+                        extension.toBuilder().clearProto3Optional().setExtendee(extendee).build());
+            }
+        }
+
+        private void parseExtensions(DescriptorProto.Builder message) {
+            do {
+                int start = tokenizer.expectInteger();
+                int end = start + 1;
+                if (tokenizer.tryConsume("to")) {
+                    end =
+                            tokenizer.tryConsume("max")
+                                    ? MAX_FIELD_NUMBER_BOUND
+                                    : tokenizer.expectInteger() + 1;
+                }
+                message.addExtensionRangeBuilder().setStart(start).setEnd(end);
+            } while (tokenizer.tryConsume(","));
+            if (tokenizer.tryConsume("[")) {
+                // Extension range options only hold custom options
+                do {
+                    parseOption(null);
+                } while (tokenizer.tryConsume(","));
+                tokenizer.expect("]");
+            }
+            tokenizer.expect(";");
+        }
+
+        private void parseMessageReserved(DescriptorProto.Builder message) {
+            if (tokenizer.peek().kind == ProtoTokenizer.Kind.STRING) {
+                do {
+                    message.addReservedName(
+                            new String(tokenizer.expectString(), StandardCharsets.UTF_8));
+                } while (tokenizer.tryConsume(","));
+            } else {
+                do {
+                    int start = tokenizer.expectInteger();
+                    int end = start + 1;
+                    if (tokenizer.tryConsume("to")) {
+                        end =
+                                tokenizer.tryConsume("max")
+                                        ? MAX_FIELD_NUMBER_BOUND
+                                        : tokenizer.expectInteger() + 1;
+                    }
+                    message.addReservedRangeBuilder().setStart(start).setEnd(end);
+                } while (tokenizer.tryConsume(","));
+            }
+            tokenizer.expect(";");
+        }
+
+        private EnumDescriptorProto parseEnum() {
+            EnumDescriptorProto.Builder enumType =
+                    EnumDescriptorProto.newBuilder().setName(tokenizer.expectIdentifier());
+            tokenizer.expect("{");
+            while (!tokenizer.tryConsume("}")) {
+                if (tokenizer.tryConsume(";")) {
+                    continue;
+                }
+                if (tokenizer.tryConsume("option")) {
+                    parseOption(enumType.getOptionsBuilder());
+                    tokenizer.expect(";");
+                } else if (tokenizer.tryConsume("reserved")) {
+                    parseEnumReserved(enumType);
+                } else {
+                    EnumValueDescriptorProto.Builder value =
+                            enumType.addValueBuilder().setName(tokenizer.expectIdentifier());
+                    tokenizer.expect("=");
+                    value.setNumber(tokenizer.expectInteger());
+                    if (tokenizer.tryConsume("[")) {
+                        do {
+                            parseOption(value.getOptionsBuilder());
+                        } while (tokenizer.tryConsume(","));
+                        tokenizer.expect("]");
+                    }
+                    tokenizer.expect(";");
+                }
+            }
+            return enumType.build();
+        }
+
+        // Unlike for messages, the end of reserved enum ranges is inclusive
+        private void parseEnumReserved(EnumDescriptorProto.Builder enumType) {
+            if (tokenizer.peek().kind == ProtoTokenizer.Kind.STRING) {
+                do {
+                    enumType.addReservedName(
+                            new String(tokenizer.expectString(), StandardCharsets.UTF_8));
+                } while (tokenizer.tryConsume(","));
+            } else {
+                do {
+                    int start = tokenizer.expectInteger();
+                    int end = start;
+                    if (tokenizer.tryConsume("to")) {
+                        end =
+                                tokenizer.tryConsume("max")
+                                        ? Integer.MAX_VALUE
+                                        : tokenizer.expectInteger();
+                    }
+                    enumType.addReservedRangeBuilder().setStart(start).setEnd(end);
+                } while (tokenizer.tryConsume(","));
+            }
+            tokenizer.expect(";");
+        }
+
+        private ServiceDescriptorProto parseService() {
+            ServiceDescriptorProto.Builder service =
+                    ServiceDescriptorProto.newBuilder().setName(tokenizer.expectIdentifier());
+            tokenizer.expect("{");
+            while (!tokenizer.tryConsume("}")) {
+                if (tokenizer.tryConsume(";")) {
+                    continue;
+                }
+                if (tokenizer.tryConsume("option")) {
+                    parseOption(service.getOptionsBuilder());
+                    tokenizer.expect(";");
+                    continue;
+                }
+                tokenizer.expect("rpc");
+                MethodDescriptorProto.Builder method =
+                        service.addMethodBuilder().setName(tokenizer.expectIdentifier());
+                tokenizer.expect("(");
+                if (tokenizer.tryConsume("stream")) {
+                    method.setClientStreaming(true);
+                }
+                method.setInputType(tokenizer.expectFullIdentifier());
+                tokenizer.expect(")");
+                tokenizer.expect("returns");
+                tokenizer.expect("(");
+                if (tokenizer.tryConsume("stream")) {
+                    method.setServerStreaming(true);
+                }
+                method.setOutputType(tokenizer.expectFullIdentifier());
+                tokenizer.expect(")");
+                if (tokenizer.tryConsume("{")) {
+                    // protoc keeps an empty options message for methods with a body
+                    method.getOptionsBuilder();
+                    while (!tokenizer.tryConsume("}")) {
+                        if (!tokenizer.tryConsume(";")) {
+                            tokenizer.expect("option");
+                            parseOption(method.getOptionsBuilder());
+                            tokenizer.expect(";");
+                        }
+                    }
+                } else {
+                    tokenizer.expect(";");
+                }
+            }
+            return service.build();
+        }
+
+        /**
+         * Parses "name = value" and sets the option on the given options builder by reflection.
+         * Custom options, whose names are in parentheses, are skipped.
+         */
+        private void parseOption(Message.Builder options) {
+            if (tokenizer.peek().is("(") || options == null) {
+                skipOption();
+                return;
+            }
+            String name = tokenizer.expectIdentifier();
+            FieldDescriptor field = options.getDescriptorForType().findFieldByName(name);
+            if (field == null || tokenizer.peek().is(".")) {
+                throw tokenizer.error("Option \"" + name + "\" unknown.");
+            }
+            tokenizer.expect("=");
+            options.setField(field, parseOptionValue(field));
+        }
+
+        private Object parseOptionValue(FieldDescriptor field) {
+            switch (field.getJavaType()) {
+                case BOOLEAN:
+                    String value = tokenizer.expectIdentifier();
+                    if (!value.equals("true") && !value.equals("false")) {
+                        throw tokenizer.error("Value must be \"true\" or \"false\".");
+                    }
+                    return Boolean.valueOf(value);
+                case ENUM:
+                    String valueName = tokenizer.expectIdentifier();
+                    Object enumValue = field.getEnumType().findValueByName(valueName);
+                    if (enumValue == null) {
+                        throw tokenizer.error("Unknown enum value \"" + valueName + "\".");
+                    }
+                    return enumValue;
+                case STRING:
+                    return new String(tokenizer.expectString(), StandardCharsets.UTF_8);
+                case BYTE_STRING:
+                    return ByteString.copyFrom(tokenizer.expectString());
+                case INT:
+                    return tokenizer.expectInteger();
+                case LONG:
+                    return parseLong();
+                case FLOAT:
+                    return (float) parseFloat();
+                case DOUBLE:
+                    return parseFloat();
+                default:
+                    throw tokenizer.error("Aggregate values of option \"" + field.getName() + "\"");
+            }
+        }
+
+        private void skipOption() {
+            do {
+                if (tokenizer.tryConsume("(")) {
+                    tokenizer.expectFullIdentifier();
+                    tokenizer.expect(")");
+                } else {
+                    tokenizer.expectIdentifier();
+                }
+            } while (tokenizer.tryConsume("."));
+            tokenizer.expect("=");
+            if (tokenizer.tryConsume("{")) {
+                int depth = 1;
+                while (depth > 0) {
+                    ProtoTokenizer.Token token = tokenizer.next();
+                    if (token.kind == ProtoTokenizer.Kind.END) {
+                        throw tokenizer.error("Unexpected end of aggregate value");
+                    }
+                    depth += token.is("{") ? 1 : token.is("}") ? -1 : 0;
+                }
+            } else if (tokenizer.peek().kind == ProtoTokenizer.Kind.STRING) {
+                tokenizer.expectString();
+            } else {
+                tokenizer.tryConsume("-");
+                tokenizer.next();
+            }
+        }
+
+        private long parseLong() {
+            boolean negative = tokenizer.tryConsume("-");
+            ProtoTokenizer.Token token = tokenizer.next();
+            if (token.kind != ProtoTokenizer.Kind.INTEGER) {
+                throw tokenizer.error("Expected integer, found \"" + token.text + "\"");
+            }
+            long value = ProtoTokenizer.parseInteger(token.text);
+            return negative ? -value : value;
+        }
+
+        private double parseFloat() {
+            boolean negative = tokenizer.tryConsume("-");
+            ProtoTokenizer.Token token = tokenizer.next();
+            double value;
+            if (token.is("inf")) {
+                value = Double.POSITIVE_INFINITY;
+            } else if (token.is("nan")) {
+                value = Double.NaN;
+            } else if (token.kind == ProtoTokenizer.Kind.INTEGER) {
+                value = ProtoTokenizer.parseInteger(token.text);
+            } else if (token.kind == ProtoTokenizer.Kind.FLOAT) {
+                value = Double.parseDouble(token.text);
+            } else {
+                throw tokenizer.error("Expected number, found \"" + token.text + "\"");
+            }
+            return negative ? -value : value;
+        }
+    }
+
+    /** Same as protoc's ToJsonName: underscores are removed and capitalize the next letter. */
+    static String toJsonName(String fieldName) {
+        StringBuilder jsonName = new StringBuilder(fieldName.length());
+        boolean capitalizeNext = false;
+        for (char c : fieldName.toCharArray()) {
+            if (c == '_') {
+                capitalizeNext = true;
+            } else if (capitalizeNext) {
+                jsonName.append(Character.toUpperCase(c));
+                capitalizeNext = false;
+            } else {
+                jsonName.append(c);
+            }
+        }
+        return jsonName.toString();
+    }
+
+    /** Names the entry type of a map field, e.g. "MyMapEntry" for "my_map". */
+    static String mapEntryName(String fieldName) {
+        StringBuilder entryName = new StringBuilder(fieldName.length() + 5);
+        boolean capitalizeNext = true;
+        for (char c : fieldName.toCharArray()) {
+            if (c == '_') {
+                capitalizeNext = true;
+            } else if (capitalizeNext) {
+                entryName.append(Character.toUpperCase(c));
+                capitalizeNext = false;
+            } else {
+                entryName.append(c);
+            }
+        }
+        return entryName.append("Entry").toString();
+    }
+
+    private static String formatFloat(double value, boolean isFloat) {
+        if (Double.isNaN(value)) {
+            return "nan";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        }
+        BigDecimal decimal =
+                new BigDecimal(isFloat ? Float.toString((float) value) : Double.toString(value))
+                        .stripTrailingZeros();
+        int exponent = decimal.precision() - decimal.scale() - 1;
+        if (decimal.signum() == 0 || (exponent >= -5 && exponent < 15)) {
+            return decimal.toPlainString();
+        }
+        // Scientific notation the way printf's %g writes it
+        String mantissa = decimal.movePointLeft(exponent).toPlainString();
+        return String.format("%se%s%02d", mantissa, exponent < 0 ? "-" : "+", Math.abs(exponent));
+    }
+
+    /** Escapes bytes the way protoc's CEscape does. */
+    private static String escapeBytes(byte[] bytes) {
+        StringBuilder escaped = new StringBuilder(bytes.length);
+        for (byte b : bytes) {
+            int c = b & 0xff;
+            switch (c) {
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '"':
+                    escaped.append("\\\"");
+                    break;
+                case '\'':
+                    escaped.append("\\'");
+                    break;
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                default:
+                    if (c < 0x20 || c >= 0x7f) {
+                        escaped.append(String.format("\\%03o", c));
+                    } else {
+                        escaped.append((char) c);
+                    }
+            }
+        }
+        return escaped.toString();
+    }
+}
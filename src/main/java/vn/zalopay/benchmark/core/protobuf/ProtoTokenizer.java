@@ -0,0 +1,325 @@
+package vn.zalopay.benchmark.core.protobuf;
+
+import vn.zalopay.benchmark.exception.ProtocInvocationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/** Splits the content of a .proto file into tokens, skipping whitespace and comments. */
+class ProtoTokenizer {
+    enum Kind {
+        IDENTIFIER,
+        INTEGER,
+        FLOAT,
+        STRING,
+        SYMBOL,
+        END
+    }
+
+    static class Token {
+        final Kind kind;
+        final String text;
+        // Decoded value of string tokens, which may hold arbitrary bytes
+        final byte[] bytes;
+        final int line;
+        final int column;
+
+        Token(Kind kind, String text, byte[] bytes, int line, int column) {
+            this.kind = kind;
+            this.text = text;
+            this.bytes = bytes;
+            this.line = line;
+            this.column = column;
+        }
+
+        boolean is(String symbolOrWord) {
+            return (kind == Kind.SYMBOL || kind == Kind.IDENTIFIER) && text.equals(symbolOrWord);
+        }
+    }
+
+    private final String fileName;
+    private final String content;
+    private int position;
+    private int line = 1;
+    private int lineStart;
+    private Token current;
+
+    ProtoTokenizer(String fileName, String content) {
+        this.fileName = fileName;
+        this.content = content;
+        this.current = readToken();
+    }
+
+    Token peek() {
+        return current;
+    }
+
+    Token next() {
+        Token token = current;
+        current = readToken();
+        return token;
+    }
+
+    /** Consumes the next token if it is the given symbol or word. */
+    boolean tryConsume(String symbolOrWord) {
+        if (current.is(symbolOrWord)) {
+            next();
+            return true;
+        }
+        return false;
+    }
+
+    void expect(String symbolOrWord) {
+        if (!tryConsume(symbolOrWord)) {
+            throw error("Expected \"" + symbolOrWord + "\", found \"" + current.text + "\"");
+        }
+    }
+
+    String expectIdentifier() {
+        if (current.kind != Kind.IDENTIFIER) {
+            throw error("Expected identifier, found \"" + current.text + "\"");
+        }
+        return next().text;
+    }
+
+    /** Reads a dotted name, e.g. a package or a type reference with an optional leading dot. */
+    String expectFullIdentifier() {
+        StringBuilder name = new StringBuilder();
+        if (tryConsume(".")) {
+            name.append('.');
+        }
+        name.append(expectIdentifier());
+        while (tryConsume(".")) {
+            name.append('.').append(expectIdentifier());
+        }
+        return name.toString();
+    }
+
+    int expectInteger() {
+        boolean negative = tryConsume("-");
+        if (current.kind != Kind.INTEGER) {
+            throw error("Expected integer, found \"" + current.text + "\"");
+        }
+        long value = parseInteger(next().text);
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("Integer out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /** Reads one or more adjacent string literals, which are concatenated. */
+    byte[] expectString() {
+        if (current.kind != Kind.STRING) {
+            throw error("Expected string, found \"" + current.text + "\"");
+        }
+        ByteArrayOutputStream value = new ByteArrayOutputStream();
+        while (current.kind == Kind.STRING) {
+            byte[] bytes = next().bytes;
+            value.write(bytes, 0, bytes.length);
+        }
+        return value.toByteArray();
+    }
+
+    ProtocInvocationException error(String message) {
+        return new ProtocInvocationException(
+                String.format("%s:%d:%d: %s", fileName, current.line, current.column, message));
+    }
+
+    /** Parses decimal, hexadecimal and octal literals. Values above Long.MAX_VALUE wrap around. */
+    static long parseInteger(String text) {
+        if (text.startsWith("0x") || text.startsWith("0X")) {
+            return Long.parseUnsignedLong(text.substring(2), 16);
+        }
+        if (text.length() > 1 && text.startsWith("0")) {
+            return Long.parseUnsignedLong(text.substring(1), 8);
+        }
+        return Long.parseUnsignedLong(text);
+    }
+
+    private Token readToken() {
+        skipWhitespaceAndComments();
+        int column = position - lineStart + 1;
+        if (position >= content.length()) {
+            return new Token(Kind.END, "<end of file>", null, line, column);
+        }
+        char c = content.charAt(position);
+        int start = position;
+        if (Character.isLetter(c) || c == '_') {
+            while (position < content.length() && isIdentifierPart(content.charAt(position))) {
+                position++;
+            }
+            return new Token(
+                    Kind.IDENTIFIER, content.substring(start, position), null, line, column);
+        }
+        if (Character.isDigit(c)
+                || (c == '.'
+                        && position + 1 < content.length()
+                        && Character.isDigit(content.charAt(position + 1)))) {
+            return readNumber(line, column);
+        }
+        if (c == '"' || c == '\'') {
+            return readString(c, line, column);
+        }
+        position++;
+        return new Token(Kind.SYMBOL, String.valueOf(c), null, line, column);
+    }
+
+    private Token readNumber(int tokenLine, int column) {
+        int start = position;
+        boolean hex = content.startsWith("0x", position) || content.startsWith("0X", position);
+        boolean isFloat = false;
+        if (hex) {
+            position += 2;
+        }
+        while (position < content.length()) {
+            char c = content.charAt(position);
+            if (!hex && (c == 'e' || c == 'E')) {
+                isFloat = true;
+                position++;
+                if (position < content.length()
+                        && (content.charAt(position) == '+' || content.charAt(position) == '-')) {
+                    position++;
+                }
+            } else if (c == '.') {
+                isFloat = true;
+                position++;
+            } else if (isIdentifierPart(c)) {
+                position++;
+            } else {
+                break;
+            }
+        }
+        String text = content.substring(start, position);
+        if (!hex && (text.endsWith("f") || text.endsWith("F"))) {
+            isFloat = true;
+        }
+        return new Token(isFloat ? Kind.FLOAT : Kind.INTEGER, text, null, tokenLine, column);
+    }
+
+    private Token readString(char quote, int tokenLine, int column) {
+        int start = position++;
+        ByteArrayOutputStream value = new ByteArrayOutputStream();
+        while (true) {
+            if (position >= content.length() || content.charAt(position) == '\n') {
+                throw new ProtocInvocationException(
+                        String.format(
+                                "%s:%d:%d: Unterminated string literal", fileName, line, column));
+            }
+            char c = content.charAt(position++);
+            if (c == quote) {
+                break;
+            }
+            if (c == '\\') {
+                readEscape(value);
+                continue;
+            }
+            int charStart = position - 1;
+            if (Character.isHighSurrogate(c) && position < content.length()) {
+                position++;
+            }
+            byte[] utf8 = content.substring(charStart, position).getBytes(StandardCharsets.UTF_8);
+            value.write(utf8, 0, utf8.length);
+        }
+        return new Token(
+                Kind.STRING,
+                content.substring(start, position),
+                value.toByteArray(),
+                tokenLine,
+                column);
+    }
+
+    private void readEscape(ByteArrayOutputStream value) {
+        char c = content.charAt(position++);
+        switch (c) {
+            case 'a':
+                value.write(7);
+                return;
+            case 'b':
+                value.write('\b');
+                return;
+            case 'f':
+                value.write('\f');
+                return;
+            case 'n':
+                value.write('\n');
+                return;
+            case 'r':
+                value.write('\r');
+                return;
+            case 't':
+                value.write('\t');
+                return;
+            case 'v':
+                value.write(11);
+                return;
+            case 'x':
+            case 'X':
+                value.write(readDigits(16, 2));
+                return;
+            case 'u':
+                writeCodePoint(value, readDigits(16, 4));
+                return;
+            case 'U':
+                writeCodePoint(value, readDigits(16, 8));
+                return;
+            default:
+                if (c >= '0' && c <= '7') {
+                    position--;
+                    value.write(readDigits(8, 3));
+                } else {
+                    value.write(c);
+                }
+        }
+    }
+
+    private int readDigits(int radix, int maxDigits) {
+        int start = position;
+        while (position < content.length()
+                && position - start < maxDigits
+                && Character.digit(content.charAt(position), radix) >= 0) {
+            position++;
+        }
+        if (start == position) {
+            throw error("Invalid escape sequence");
+        }
+        return Integer.parseInt(content.substring(start, position), radix);
+    }
+
+    private static void writeCodePoint(ByteArrayOutputStream value, int codePoint) {
+        byte[] utf8 = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+        value.write(utf8, 0, utf8.length);
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (position < content.length()) {
+            char c = content.charAt(position);
+            if (c == '\n') {
+                position++;
+                line++;
+                lineStart = position;
+            } else if (Character.isWhitespace(c)) {
+                position++;
+            } else if (content.startsWith("//", position)) {
+                while (position < content.length() && content.charAt(position) != '\n') {
+                    position++;
+                }
+            } else if (content.startsWith("/*", position)) {
+                int end = content.indexOf("*/", position + 2);
+                end = end < 0 ? content.length() : end + 2;
+                while (position < end) {
+                    if (content.charAt(position++) == '\n') {
+                        line++;
+                        lineStart = position;
+                    }
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
@@ -3,8 +3,12 @@ package vn.zalopay.benchmark.core.protobuf;
 import com.github.os72.protocjar.Protoc;
 import com.github.os72.protocjar.ProtocVersion;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
 import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
 
 import org.apache.commons.io.FileUtils;
@@ -16,8 +20,15 @@ import org.slf4j.LoggerFactory;
 import vn.zalopay.benchmark.exception.ProtocInvocationException;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -31,26 +42,48 @@ public class ProtocInvoker {
             FileSystems.getDefault().getPathMatcher("glob:**/*.proto");
     private static final List<Path> PROTO_TEMP_FOLDER_PATHS = new ArrayList<>();
     private static final int LARGE_FOLDER_LIMIT = 100;
+    private static final String COMPILE_CLOSURE_PROPERTY = "grpc.request.protoc.closure.enabled";
+    private static final String DESCRIPTOR_SOURCE_PROPERTY = "grpc.request.descriptor.source";
+    private static final String PARSER_DESCRIPTOR_SOURCE = "parser";
+    private static final String PROTOC_PARALLELISM_PROPERTY = "grpc.request.protoc.parallelism";
+    private static final Pattern COMMENT_PATTERN =
+            Pattern.compile("/\\*.*?\\*/|//[^\\n]*", Pattern.DOTALL);
+    private static final Pattern PACKAGE_PATTERN =
+            Pattern.compile("\\bpackage\\s+([\\w.]+)\\s*;");
     public static final String DESCRIPTOR_EXTENSION = ".bin";
     private final ImmutableList<Path> protocIncludePaths;
     private final Path discoveryRoot;
+    private final ProtoMethodName targetMethod;
 
     /**
      * Takes an optional path to pass to protoc as --proto_path. Uses the invocation-time proto root
      * if none is passed.
      */
-    private ProtocInvoker(Path discoveryRoot, ImmutableList<Path> protocIncludePaths) {
+    private ProtocInvoker(
+            Path discoveryRoot,
+            ImmutableList<Path> protocIncludePaths,
+            ProtoMethodName targetMethod) {
         this.protocIncludePaths = protocIncludePaths;
         this.discoveryRoot = discoveryRoot;
+        this.targetMethod = targetMethod;
     }
 
     /** Creates a new {@link ProtocInvoker} with the supplied configuration. */
     public static ProtocInvoker forConfig(String protoDiscoveryRoot, String libFolder) {
+        return forConfig(protoDiscoveryRoot, libFolder, null);
+    }
+
+    /**
+     * Creates a new {@link ProtocInvoker} which only needs to describe the service of the target
+     * method, see {@link #selectProtoFiles()}.
+     */
+    public static ProtocInvoker forConfig(
+            String protoDiscoveryRoot, String libFolder, ProtoMethodName targetMethod) {
 
         Path discoveryRootPath = Paths.get(protoDiscoveryRoot);
 
         if (isBinDescriptor(discoveryRootPath)) { // no other config needed
-            return new ProtocInvoker(discoveryRootPath, ImmutableList.of());
+            return new ProtocInvoker(discoveryRootPath, ImmutableList.of(), null);
         }
 
         if (!discoveryRootPath.isAbsolute()) {
@@ -71,7 +104,15 @@ public class ProtocInvoker {
             includePaths.add(path.toAbsolutePath());
         }
 
-        return new ProtocInvoker(discoveryRootPath, includePaths.build());
+        return new ProtocInvoker(discoveryRootPath, includePaths.build(), targetMethod);
+    }
+
+    /**
+     * Returns whether invokers created for a target method only compile the file declaring its
+     * service, so their descriptors differ from the ones of the whole proto tree.
+     */
+    public static boolean isServiceClosureEnabled() {
+        return JMeterUtils.getPropDefault(COMPILE_CLOSURE_PROPERTY, false);
     }
 
     private static boolean isBinDescriptor(Path path) {
@@ -91,7 +132,10 @@ public class ProtocInvoker {
 
     /**
      * Executes protoc on all .proto files in the subtree rooted at the supplied path and returns a
-     * {@link FileDescriptorSet} which describes all the protos.
+     * {@link FileDescriptorSet} which describes all the protos. With the
+     * grpc.request.descriptor.source property set to "parser", the files are parsed in process by
+     * {@link ProtoParser} instead. Trees above {@link #LARGE_FOLDER_LIMIT} files are split over
+     * several protoc processes when the grpc.request.protoc.parallelism property is above 1.
      */
     public FileDescriptorSet invoke() throws ProtocInvocationException {
 
@@ -103,22 +147,211 @@ public class ProtocInvoker {
             }
         }
 
-        Path wellKnownTypesInclude = generateWellKnownTypesInclude();
+        final ImmutableSet<String> protoFilePaths = selectProtoFiles();
 
-        Path descriptorPath = generateDescriptorPath();
+        Optional<DescriptorCache> descriptorCache = DescriptorCache.fromProperties();
+        String cacheKey = null;
+        if (descriptorCache.isPresent()) {
+            cacheKey = generateCacheKey(protoFilePaths);
+            Optional<FileDescriptorSet> cached = descriptorCache.get().get(cacheKey);
+            if (cached.isPresent()) {
+                logger.info("Loaded descriptors of {} from the descriptor cache", discoveryRoot);
+                return cached.get();
+            }
+        }
 
-        PROTO_TEMP_FOLDER_PATHS.addAll(Arrays.asList(descriptorPath, wellKnownTypesInclude));
+        FileDescriptorSet fileDescriptorSet;
+        int protocParallelism = JMeterUtils.getPropDefault(PROTOC_PARALLELISM_PROPERTY, 1);
+        if (isParserDescriptorSource()) {
+            fileDescriptorSet =
+                    new ProtoParser(protocIncludePaths, discoveryRoot).parse(protoFilePaths);
+        } else if (protoFilePaths.size() > LARGE_FOLDER_LIMIT && protocParallelism > 1) {
+            fileDescriptorSet = invokeInParallel(protoFilePaths, protocParallelism);
+        } else {
+            Path wellKnownTypesInclude = generateWellKnownTypesInclude();
 
-        final ImmutableSet<String> protoFilePaths = scanProtoFiles(discoveryRoot);
+            Path descriptorPath = generateDescriptorPath();
+
+            PROTO_TEMP_FOLDER_PATHS.addAll(Arrays.asList(descriptorPath, wellKnownTypesInclude));
 
-        ImmutableList<String> protocArgs =
-                generateProtocArgs(protoFilePaths, descriptorPath, wellKnownTypesInclude);
-        //System.out.println(protocArgs);
-        invokeBinary(protocArgs);
+            ImmutableList<String> protocArgs =
+                    generateProtocArgs(protoFilePaths, descriptorPath, wellKnownTypesInclude);
+            //System.out.println(protocArgs);
+            invokeBinary(protocArgs);
+
+            fileDescriptorSet = generateFileDescriptorSet(descriptorPath);
+        }
+        if (descriptorCache.isPresent()) {
+            descriptorCache.get().put(cacheKey, fileDescriptorSet);
+        }
+        return fileDescriptorSet;
+    }
 
+    /**
+     * Compiles the files in chunks, one protoc process per chunk, and merges the results. The files
+     * are sorted by path before being cut into chunks so that files of the same subtree, which
+     * tend to import each other, mostly end up in the same chunk. Imports shared between chunks
+     * are compiled by each of them and only kept once.
+     */
+    private FileDescriptorSet invokeInParallel(ImmutableSet<String> protoFilePaths, int workers) {
+        List<String> sortedPaths = new ArrayList<>(protoFilePaths);
+        Collections.sort(sortedPaths);
+        List<List<String>> chunks =
+                Lists.partition(sortedPaths, (sortedPaths.size() + workers - 1) / workers);
+        logger.info(
+                "Compiling {} proto files with {} protoc processes",
+                sortedPaths.size(),
+                chunks.size());
+
+        Path wellKnownTypesInclude = generateWellKnownTypesInclude();
+        PROTO_TEMP_FOLDER_PATHS.add(wellKnownTypesInclude);
+        ExecutorService executor =
+                Executors.newFixedThreadPool(
+                        chunks.size(),
+                        new ThreadFactoryBuilder()
+                                .setNameFormat("protoc-%d")
+                                .setDaemon(true)
+                                .build());
+        try {
+            List<Future<FileDescriptorSet>> results = new ArrayList<>();
+            for (List<String> chunk : chunks) {
+                Path descriptorPath = generateDescriptorPath();
+                PROTO_TEMP_FOLDER_PATHS.add(descriptorPath);
+                ImmutableList<String> protocArgs =
+                        generateProtocArgs(
+                                ImmutableSet.copyOf(chunk), descriptorPath, wellKnownTypesInclude);
+                results.add(executor.submit(() -> invokeChunk(protocArgs, descriptorPath)));
+            }
+            // Chunks list their imports first, so the first copy of each file keeps that order
+            Map<String, FileDescriptorProto> files = new LinkedHashMap<>();
+            for (Future<FileDescriptorSet> result : results) {
+                for (FileDescriptorProto file : result.get().getFileList()) {
+                    files.putIfAbsent(file.getName(), file);
+                }
+            }
+            return FileDescriptorSet.newBuilder().addAllFile(files.values()).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProtocInvocationException("Interrupted while running protoc", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ProtocInvocationException) {
+                throw (ProtocInvocationException) e.getCause();
+            }
+            throw new ProtocInvocationException("Unable to execute protoc binary", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs protoc with its own output streams, unlike {@link #invokeBinary} which swaps the global
+     * ones and therefore can't run concurrently.
+     */
+    private FileDescriptorSet invokeChunk(ImmutableList<String> protocArgs, Path descriptorPath) {
+        ByteArrayOutputStream protocStdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream protocStderr = new ByteArrayOutputStream();
+        int status;
+        try {
+            status =
+                    Protoc.runProtoc(
+                            protocArgs.toArray(new String[0]), protocStdout, protocStderr);
+        } catch (IOException e) {
+            throw new ProtocInvocationException("Unable to execute protoc binary", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProtocInvocationException("Interrupted while running protoc", e);
+        }
+        if (status != 0) {
+            protocInvokerErrorHandler(
+                    protocArgs,
+                    status,
+                    protocStdout.toString().split("\n"),
+                    protocStderr.toString().split("\n"));
+        }
         return generateFileDescriptorSet(descriptorPath);
     }
 
+    /**
+     * Picks the files to hand to protoc. With a target method and the
+     * grpc.request.protoc.closure.enabled property, that is only the file declaring the service,
+     * protoc then compiles the files it imports because of --include_imports. Types that are only
+     * reachable through {@code Any} fields and not imported are missing in that case.
+     */
+    private ImmutableSet<String> selectProtoFiles() {
+        final ImmutableSet<String> protoFilePaths = scanProtoFiles(discoveryRoot);
+        if (targetMethod == null || !isServiceClosureEnabled()) {
+            return protoFilePaths;
+        }
+        List<String> serviceFilePaths = findServiceFiles(protoFilePaths, targetMethod);
+        if (serviceFilePaths.size() != 1) {
+            logger.warn(
+                    "Found {} files declaring service {}.{}, compiling all proto files instead",
+                    serviceFilePaths.size(),
+                    targetMethod.getPackageName(),
+                    targetMethod.getServiceName());
+            return protoFilePaths;
+        }
+        return ImmutableSet.of(serviceFilePaths.get(0));
+    }
+
+    private String generateCacheKey(ImmutableSet<String> protoFilePaths) {
+        try {
+            // Same order as the include path arguments
+            List<Path> protoRoots = new ArrayList<>(protocIncludePaths);
+            protoRoots.add(discoveryRoot.toAbsolutePath());
+            String source =
+                    isParserDescriptorSource() ? PARSER_DESCRIPTOR_SOURCE : getProtocVersion();
+            return DescriptorCache.keyOf(source, protoRoots, protoFilePaths);
+        } catch (IOException e) {
+            throw new ProtocInvocationException("Unable to scan proto tree for files", e);
+        }
+    }
+
+    /**
+     * Finds the files declaring the service of the method with a text scan, which is far cheaper
+     * than compiling them. Comments are skipped so that commented out services don't match.
+     */
+    private static List<String> findServiceFiles(
+            ImmutableSet<String> protoFilePaths, ProtoMethodName methodName) {
+        Pattern servicePattern =
+                Pattern.compile(
+                        "\\bservice\\s+" + Pattern.quote(methodName.getServiceName()) + "\\s*\\{");
+        String packageName = Strings.nullToEmpty(methodName.getPackageName());
+        List<String> serviceFilePaths = new ArrayList<>();
+        for (String protoFilePath : protoFilePaths) {
+            String content;
+            try {
+                content =
+                        new String(
+                                Files.readAllBytes(Paths.get(protoFilePath)),
+                                StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new ProtocInvocationException(
+                        "Unable to read proto file " + protoFilePath, e);
+            }
+            if (!content.contains(methodName.getServiceName())) {
+                continue;
+            }
+            content = COMMENT_PATTERN.matcher(content).replaceAll(" ");
+            Matcher packageMatcher = PACKAGE_PATTERN.matcher(content);
+            String filePackageName = packageMatcher.find() ? packageMatcher.group(1) : "";
+            if (filePackageName.equals(packageName) && servicePattern.matcher(content).find()) {
+                serviceFilePaths.add(protoFilePath);
+            }
+        }
+        return serviceFilePaths;
+    }
+
+    private static boolean isParserDescriptorSource() {
+        return PARSER_DESCRIPTOR_SOURCE.equals(
+                JMeterUtils.getPropDefault(DESCRIPTOR_SOURCE_PROPERTY, "protoc"));
+    }
+
+    private static String getProtocVersion() {
+        return JMeterUtils.getPropDefault(
+                "grpc.request.protoc.version", ProtocVersion.PROTOC_VERSION.mVersion);
+    }
+
     private Path generateWellKnownTypesInclude() {
         try {
             return setupWellKnownTypes();
@@ -143,9 +376,7 @@ public class ProtocInvoker {
 
     private ImmutableList<String> generateProtocArgs(
             ImmutableSet<String> protoFilePaths, Path descriptorPath, Path wellKnownTypesInclude) {
-        String protocVersion =
-                JMeterUtils.getPropDefault(
-                        "grpc.request.protoc.version", ProtocVersion.PROTOC_VERSION.mVersion);
+        String protocVersion = getProtocVersion();
         ImmutableList<String> protocArgs = ImmutableList.<String>builder().build();
 
         // Large folder processing, solve CreateProcess error=206
@@ -0,0 +1,225 @@
+package vn.zalopay.benchmark.core.protobuf;
+
+import com.google.common.base.Strings;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import io.grpc.ManagedChannel;
+import io.grpc.reflection.v1alpha.ErrorResponse;
+import io.grpc.reflection.v1alpha.ServerReflectionGrpc;
+import io.grpc.reflection.v1alpha.ServerReflectionRequest;
+import io.grpc.reflection.v1alpha.ServerReflectionResponse;
+import io.grpc.stub.StreamObserver;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import vn.zalopay.benchmark.exception.ProtocInvocationException;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Fetches the descriptors of a service from the server itself, through the {@code
+ * grpc.reflection.v1alpha.ServerReflection} service, so that no proto files are needed.
+ *
+ * <p>Only the file declaring the service and the files it imports are fetched. Results are kept per
+ * endpoint and service until the test ends, so threads and samplers calling the same service only
+ * ask the server once per test.
+ */
+public class ServerReflectionClient {
+    private static final Logger logger = LoggerFactory.getLogger(ServerReflectionClient.class);
+    private static final String REFLECTION_TIMEOUT_PROPERTY = "grpc.request.reflection.timeout";
+    private static final long DEFAULT_REFLECTION_TIMEOUT_MS = 10000;
+    private static final Map<String, FileDescriptorSet> FETCHED_SERVICES =
+            new ConcurrentHashMap<>();
+
+    private final BlockingQueue<Object> responses = new LinkedBlockingQueue<>();
+    private final long timeoutMs;
+
+    private ServerReflectionClient(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Returns the descriptors of the service of the given method, asking the server at the endpoint
+     * unless they were fetched before. The channel is only created, and shut down afterwards, when
+     * the server has to be asked.
+     */
+    public static FileDescriptorSet fetchServiceFiles(
+            String endpoint, Supplier<ManagedChannel> channelSupplier, ProtoMethodName methodName) {
+        String serviceName = fullServiceName(methodName);
+        String key = endpoint + "/" + serviceName;
+        FileDescriptorSet cached = FETCHED_SERVICES.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        ManagedChannel channel = channelSupplier.get();
+        try {
+            long timeoutMs =
+                    JMeterUtils.getPropDefault(
+                            REFLECTION_TIMEOUT_PROPERTY, DEFAULT_REFLECTION_TIMEOUT_MS);
+            FileDescriptorSet fileDescriptorSet =
+                    new ServerReflectionClient(timeoutMs).fetch(channel, serviceName);
+            logger.info(
+                    "Fetched {} files describing {} from {} by server reflection",
+                    fileDescriptorSet.getFileCount(),
+                    serviceName,
+                    endpoint);
+            FETCHED_SERVICES.put(key, fileDescriptorSet);
+            return fileDescriptorSet;
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    /** Forgets the fetched descriptors, e.g. because the servers were redeployed. */
+    public static void clearCache() {
+        FETCHED_SERVICES.clear();
+    }
+
+    private static String fullServiceName(ProtoMethodName methodName) {
+        String packageName = Strings.nullToEmpty(methodName.getPackageName());
+        return packageName.isEmpty()
+                ? methodName.getServiceName()
+                : packageName + "." + methodName.getServiceName();
+    }
+
+    /**
+     * Asks for the file containing the service, then for every imported file the server didn't send
+     * along, one request at a time over a single stream.
+     */
+    private FileDescriptorSet fetch(ManagedChannel channel, String serviceName) {
+        StreamObserver<ServerReflectionRequest> requests =
+                ServerReflectionGrpc.newStub(channel)
+                        .withDeadlineAfter(timeoutMs, TimeUnit.MILLISECONDS)
+                        .serverReflectionInfo(
+                                new StreamObserver<ServerReflectionResponse>() {
+                                    @Override
+                                    public void onNext(ServerReflectionResponse response) {
+                                        responses.add(response);
+                                    }
+
+                                    @Override
+                                    public void onError(Throwable t) {
+                                        responses.add(t);
+                                    }
+
+                                    @Override
+                                    public void onCompleted() {}
+                                });
+        Map<String, FileDescriptorProto> files = new LinkedHashMap<>();
+        Set<String> requested = new HashSet<>();
+        try {
+            ServerReflectionRequest request =
+                    ServerReflectionRequest.newBuilder()
+                            .setFileContainingSymbol(serviceName)
+                            .build();
+            while (request != null) {
+                requests.onNext(request);
+                addFiles(files, awaitResponse(request));
+                request = nextMissingFileRequest(files, requested);
+            }
+            requests.onCompleted();
+        } catch (RuntimeException e) {
+            requests.onError(e);
+            throw e;
+        }
+
+        FileDescriptorSet.Builder fileDescriptorSet = FileDescriptorSet.newBuilder();
+        Set<String> added = new HashSet<>();
+        for (String fileName : files.keySet()) {
+            addWithDependencies(fileName, files, fileDescriptorSet, added);
+        }
+        return fileDescriptorSet.build();
+    }
+
+    private ServerReflectionResponse awaitResponse(ServerReflectionRequest request) {
+        Object response;
+        try {
+            response = responses.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProtocInvocationException("Interrupted during server reflection", e);
+        }
+        if (response == null) {
+            throw new ProtocInvocationException(
+                    "Server reflection timed out after " + timeoutMs + " ms");
+        }
+        if (response instanceof Throwable) {
+            throw new ProtocInvocationException(
+                    "Server reflection failed: " + ((Throwable) response).getMessage(),
+                    (Throwable) response);
+        }
+        ServerReflectionResponse reflectionResponse = (ServerReflectionResponse) response;
+        if (reflectionResponse.hasErrorResponse()) {
+            ErrorResponse error = reflectionResponse.getErrorResponse();
+            String subject =
+                    request.getFileByFilename().isEmpty()
+                            ? "symbol " + request.getFileContainingSymbol()
+                            : "file " + request.getFileByFilename();
+            throw new ProtocInvocationException(
+                    String.format(
+                            "Server reflection failed for %s: %s (code %d)",
+                            subject, error.getErrorMessage(), error.getErrorCode()));
+        }
+        return reflectionResponse;
+    }
+
+    private static void addFiles(
+            Map<String, FileDescriptorProto> files, ServerReflectionResponse response) {
+        for (ByteString serializedFile :
+                response.getFileDescriptorResponse().getFileDescriptorProtoList()) {
+            try {
+                FileDescriptorProto file = FileDescriptorProto.parseFrom(serializedFile);
+                files.putIfAbsent(file.getName(), file);
+            } catch (InvalidProtocolBufferException e) {
+                throw new ProtocInvocationException(
+                        "Unable to parse a descriptor sent by server reflection", e);
+            }
+        }
+    }
+
+    private static ServerReflectionRequest nextMissingFileRequest(
+            Map<String, FileDescriptorProto> files, Set<String> requested) {
+        for (FileDescriptorProto file : files.values()) {
+            for (String dependency : file.getDependencyList()) {
+                if (!files.containsKey(dependency) && requested.add(dependency)) {
+                    return ServerReflectionRequest.newBuilder()
+                            .setFileByFilename(dependency)
+                            .build();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void addWithDependencies(
+            String fileName,
+            Map<String, FileDescriptorProto> files,
+            FileDescriptorSet.Builder fileDescriptorSet,
+            Set<String> added) {
+        FileDescriptorProto file = files.get(fileName);
+        if (file == null) {
+            throw new ProtocInvocationException(
+                    "Server reflection didn't provide imported file " + fileName);
+        }
+        if (!added.add(fileName)) {
+            return;
+        }
+        for (String dependency : file.getDependencyList()) {
+            addWithDependencies(dependency, files, fileDescriptorSet, added);
+        }
+        fileDescriptorSet.addFile(file);
+    }
+}
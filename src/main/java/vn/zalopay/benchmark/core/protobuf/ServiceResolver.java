@@ -7,13 +7,23 @@ import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
 import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
 import com.google.protobuf.Descriptors.*;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
-/** A locator used to read proto file descriptors and extract method definitions. */
+/**
+ * A locator used to read proto file descriptors and extract method definitions. Services, methods
+ * and message types (nested ones included) are indexed by name once, when the resolver is created.
+ */
 public class ServiceResolver {
-    private final ImmutableList<FileDescriptor> fileDescriptors;
+    private final ImmutableList<ServiceDescriptor> services;
+    private final ImmutableMap<String, ServiceDescriptor> servicesByFullName;
+    // Services of any package by unqualified name, for method names without a package
+    private final ImmutableMap<String, ServiceDescriptor> servicesByName;
+    private final ImmutableMap<String, MethodDescriptor> methodsByFullName;
+    private final ImmutableMap<String, Descriptor> messageTypesByFullName;
+    private final ImmutableSet<Descriptor> messageTypes;
 
     /** Creates a resolver which searches the supplied {@link FileDescriptorSet}. */
     public static ServiceResolver fromFileDescriptorSet(FileDescriptorSet descriptorSet) {
@@ -35,22 +45,50 @@ public class ServiceResolver {
     }
 
     public Iterable<ServiceDescriptor> listServices() {
-        ArrayList<ServiceDescriptor> serviceDescriptors = new ArrayList<ServiceDescriptor>();
-        for (FileDescriptor fileDescriptor : fileDescriptors) {
-            serviceDescriptors.addAll(fileDescriptor.getServices());
-        }
-        return serviceDescriptors;
+        return services;
     }
 
-    /** Lists all the known message types. */
+    /** Lists all the known message types, including nested ones. */
     public ImmutableSet<Descriptor> listMessageTypes() {
-        ImmutableSet.Builder<Descriptor> resultBuilder = ImmutableSet.builder();
-        fileDescriptors.forEach(d -> resultBuilder.addAll(d.getMessageTypes()));
-        return resultBuilder.build();
+        return messageTypes;
+    }
+
+    /** Returns the message type with the supplied full name, or null if it is unknown. */
+    public Descriptor findMessageType(String fullName) {
+        return messageTypesByFullName.get(fullName);
     }
 
     private ServiceResolver(Iterable<FileDescriptor> fileDescriptors) {
-        this.fileDescriptors = ImmutableList.copyOf(fileDescriptors);
+        ImmutableList.Builder<ServiceDescriptor> serviceList = ImmutableList.builder();
+        Map<String, ServiceDescriptor> serviceIndex = new LinkedHashMap<>();
+        Map<String, ServiceDescriptor> serviceNameIndex = new LinkedHashMap<>();
+        Map<String, MethodDescriptor> methodIndex = new LinkedHashMap<>();
+        Map<String, Descriptor> messageTypeIndex = new LinkedHashMap<>();
+        for (FileDescriptor fileDescriptor : fileDescriptors) {
+            for (ServiceDescriptor service : fileDescriptor.getServices()) {
+                serviceList.add(service);
+                serviceIndex.putIfAbsent(service.getFullName(), service);
+                serviceNameIndex.putIfAbsent(service.getName(), service);
+                for (MethodDescriptor method : service.getMethods()) {
+                    methodIndex.putIfAbsent(method.getFullName(), method);
+                }
+            }
+            indexMessageTypes(fileDescriptor.getMessageTypes(), messageTypeIndex);
+        }
+        this.services = serviceList.build();
+        this.servicesByFullName = ImmutableMap.copyOf(serviceIndex);
+        this.servicesByName = ImmutableMap.copyOf(serviceNameIndex);
+        this.methodsByFullName = ImmutableMap.copyOf(methodIndex);
+        this.messageTypesByFullName = ImmutableMap.copyOf(messageTypeIndex);
+        this.messageTypes = ImmutableSet.copyOf(messageTypesByFullName.values());
+    }
+
+    private static void indexMessageTypes(
+            List<Descriptor> messageTypes, Map<String, Descriptor> messageTypeIndex) {
+        for (Descriptor messageType : messageTypes) {
+            messageTypeIndex.putIfAbsent(messageType.getFullName(), messageType);
+            indexMessageTypes(messageType.getNestedTypes(), messageTypeIndex);
+        }
     }
 
     /**
@@ -65,7 +103,7 @@ public class ServiceResolver {
     private MethodDescriptor resolveServiceMethod(
             String serviceName, String methodName, String packageName) {
         ServiceDescriptor service = findService(serviceName, packageName);
-        MethodDescriptor method = service.findMethodByName(methodName);
+        MethodDescriptor method = methodsByFullName.get(service.getFullName() + "." + methodName);
         if (method == null) {
             throw new IllegalArgumentException(
                     "Unable to find method " + methodName + " in service " + serviceName);
@@ -74,19 +112,14 @@ public class ServiceResolver {
     }
 
     private ServiceDescriptor findService(String serviceName, String packageName) {
-        // TODO(dino): Consider creating an index.
-        for (FileDescriptor fileDescriptor : fileDescriptors) {
-            if (packageName != null && !fileDescriptor.getPackage().equals(packageName)) {
-                // Package does not match this file, ignore.
-                continue;
-            }
-
-            ServiceDescriptor serviceDescriptor = fileDescriptor.findServiceByName(serviceName);
-            if (serviceDescriptor != null) {
-                return serviceDescriptor;
-            }
+        ServiceDescriptor serviceDescriptor =
+                packageName == null
+                        ? servicesByName.get(serviceName)
+                        : servicesByFullName.get(packageName + "." + serviceName);
+        if (serviceDescriptor == null) {
+            throw new IllegalArgumentException("Unable to find service with name: " + serviceName);
         }
-        throw new IllegalArgumentException("Unable to find service with name: " + serviceName);
+        return serviceDescriptor;
     }
 
     /** Returns a map from descriptor proto name as found inside the descriptors to protos. */
@@ -1,13 +1,28 @@
 package vn.zalopay.benchmark.core.specification;
 
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class GrpcResponse {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrpcResponse.class);
 
     private boolean success;
     private Throwable throwable;
     private final List<Object> output;
+    private JsonFormat.Printer jsonPrinter;
+    private long callStartNanos;
+    private long[] messageArrivalNanos;
+    private int messageArrivals;
 
     public GrpcResponse() {
         output = new ArrayList<>();
@@ -29,15 +44,109 @@ public class GrpcResponse {
         this.throwable = throwable;
     }
 
+    /** Sets the printer used to render stored protobuf messages as JSON. */
+    public void setJsonPrinter(JsonFormat.Printer jsonPrinter) {
+        this.jsonPrinter = jsonPrinter;
+    }
+
     public void storeGrpcMessage(Object message) {
         output.add(message);
+        if (messageArrivalNanos != null) {
+            if (messageArrivals == messageArrivalNanos.length) {
+                messageArrivalNanos =
+                        Arrays.copyOf(messageArrivalNanos, messageArrivalNanos.length * 2);
+            }
+            messageArrivalNanos[messageArrivals++] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Starts recording when each message arrives, relative to now. Meant for streaming calls; unary
+     * calls don't record anything.
+     */
+    public void recordMessageArrivals() {
+        callStartNanos = System.nanoTime();
+        messageArrivalNanos = new long[8];
+        messageArrivals = 0;
+    }
+
+    public boolean isMessageArrivalsRecorded() {
+        return messageArrivalNanos != null;
+    }
+
+    public int getMessageCount() {
+        return output.size();
+    }
+
+    /**
+     * Returns the time between the start of the call and the arrival of each recorded message. The
+     * first value is the time to the first message.
+     */
+    public long[] getMessageArrivalNanos() {
+        if (messageArrivalNanos == null) {
+            return new long[0];
+        }
+        long[] arrivals = new long[messageArrivals];
+        for (int i = 0; i < messageArrivals; i++) {
+            arrivals[i] = messageArrivalNanos[i] - callStartNanos;
+        }
+        return arrivals;
     }
 
+    /** Returns the wire size of the stored message at the given index, or 0 for non-messages. */
+    public int getGrpcMessageSize(int index) {
+        Object message = output.get(index);
+        return message instanceof Message ? ((Message) message).getSerializedSize() : 0;
+    }
+
+    /**
+     * Renders the stored messages, printing protobuf messages as JSON. Rendering is deferred to
+     * this call so that samples whose response body is never read don't pay for it.
+     */
     public String getGrpcMessageString() {
-        if (output.size() == 1) {
-            return output.get(0).toString();
+        List<String> messages = new ArrayList<>(output.size());
+        for (Object message : output) {
+            if (message instanceof Message && jsonPrinter != null) {
+                try {
+                    messages.add(jsonPrinter.print((Message) message));
+                } catch (InvalidProtocolBufferException e) {
+                    LOGGER.warn(e.getMessage());
+                }
+            } else {
+                messages.add(String.valueOf(message));
+            }
+        }
+        if (messages.size() == 1) {
+            return messages.get(0);
         }
 
-        return output.toString();
+        return messages.toString();
+    }
+
+    /** Returns the stored protobuf messages concatenated in wire format. */
+    public byte[] getGrpcMessageBytes() {
+        byte[] bytes = new byte[getGrpcMessageSize()];
+        CodedOutputStream codedOutput = CodedOutputStream.newInstance(bytes);
+        try {
+            for (Object message : output) {
+                if (message instanceof Message) {
+                    ((Message) message).writeTo(codedOutput);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize gRPC response", e);
+        }
+        return bytes;
+    }
+
+    /** Returns the total wire size of the stored protobuf messages. */
+    public int getGrpcMessageSize() {
+        int size = 0;
+        for (Object message : output) {
+            if (message instanceof Message) {
+                size += ((Message) message).getSerializedSize();
+            }
+        }
+        return size;
     }
 }
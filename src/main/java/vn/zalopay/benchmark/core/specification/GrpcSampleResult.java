@@ -0,0 +1,66 @@
+package vn.zalopay.benchmark.core.specification;
+
+import org.apache.jmeter.samplers.SampleResult;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link SampleResult} that renders its response data from a {@link GrpcResponse} the first time
+ * the data is read, e.g. by View Results Tree, an assertion or an extractor. Samples nobody looks
+ * at never pay for printing the response as JSON.
+ */
+public class GrpcSampleResult extends SampleResult {
+    private static final long serialVersionUID = 240L;
+
+    private transient GrpcResponse pendingResponse;
+
+    /** Renders the messages of the response as JSON when the response data is first read. */
+    public synchronized void setResponseDataLazily(GrpcResponse grpcResponse) {
+        pendingResponse = grpcResponse;
+    }
+
+    @Override
+    public byte[] getResponseData() {
+        renderPendingResponse();
+        return super.getResponseData();
+    }
+
+    @Override
+    public String getResponseDataAsString() {
+        renderPendingResponse();
+        return super.getResponseDataAsString();
+    }
+
+    @Override
+    public synchronized void setResponseData(byte[] response) {
+        pendingResponse = null;
+        super.setResponseData(response);
+    }
+
+    @Override
+    public synchronized void setResponseData(String response) {
+        pendingResponse = null;
+        super.setResponseData(response);
+    }
+
+    @Override
+    public synchronized void setResponseData(String response, String encoding) {
+        pendingResponse = null;
+        super.setResponseData(response, encoding);
+    }
+
+    private synchronized void renderPendingResponse() {
+        if (pendingResponse != null) {
+            GrpcResponse grpcResponse = pendingResponse;
+            pendingResponse = null;
+            super.setResponseData(
+                    grpcResponse.getGrpcMessageString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // Results sent to a remote controller must carry the rendered data.
+    private Object writeReplace() {
+        renderPendingResponse();
+        return this;
+    }
+}
@@ -18,7 +18,7 @@ import java.nio.file.Paths;
 public class BaseTest {
     private static final String GRPC_DUMMY_SERVER_JAR = "gprc-server-1.0-SNAPSHOT.jar";
     private static final Path GRPC_DUMMY_SERVER_FOLDER =
-            Paths.get(System.getProperty("user.dir"), "/dist/benchmark/grpc-server/dist");
+            Paths.get(System.getProperty("user.dir"), "/dist/benchmark/grpc-server/target");
     protected static int DEFAULT_CHANNEL_SHUTDOWN_TIME = 5000;
     protected static final Path TEMP_JMETER_HOME =
             Paths.get(System.getProperty("user.dir"), "src", "test", "resources");
@@ -114,6 +114,12 @@ public class BaseTest {
     }
 
     private void startDummyGrpcServer() throws IOException {
+        if (!GRPC_DUMMY_SERVER_FOLDER.resolve(GRPC_DUMMY_SERVER_JAR).toFile().exists()) {
+            throw new IllegalStateException(
+                    "Dummy gRPC server jar not found in "
+                            + GRPC_DUMMY_SERVER_FOLDER
+                            + ", run `mvn -f dist/benchmark/grpc-server/pom.xml package` first");
+        }
         File javaHome = new File(System.getProperty("java.home"), "bin");
         String javaPath = javaHome + File.separator + "java";
         String startClassPathCommand =
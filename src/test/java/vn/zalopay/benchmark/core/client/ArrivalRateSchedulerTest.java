@@ -0,0 +1,62 @@
+package vn.zalopay.benchmark.core.client;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import vn.zalopay.benchmark.core.ArrivalRateScheduler;
+
+import java.util.concurrent.TimeUnit;
+
+public class ArrivalRateSchedulerTest {
+
+    @Test
+    public void testCanPaceSendsAtArrivalRate() throws InterruptedException {
+        ArrivalRateScheduler scheduler = new ArrivalRateScheduler(10, 100);
+
+        Assert.assertEquals(scheduler.nextDueSend(), 0);
+        Assert.assertEquals(scheduler.nextDueSend(), -1);
+        Assert.assertNull(scheduler.awaitCompletion(TimeUnit.SECONDS.toNanos(1)));
+        Assert.assertEquals(scheduler.nextDueSend(), TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertEquals(scheduler.getInFlight(), 2);
+    }
+
+    @Test
+    public void testCanMeasureFromIntendedSendTime() throws InterruptedException {
+        ArrivalRateScheduler scheduler = new ArrivalRateScheduler(1000, 100);
+        long startMillis = System.currentTimeMillis();
+        Thread.sleep(50);
+
+        // Sends that fell behind keep their intended time
+        long firstSend = scheduler.nextDueSend();
+        long lastSend = firstSend;
+        while (scheduler.nextDueSend() >= 0) {
+            lastSend += TimeUnit.MILLISECONDS.toNanos(1);
+        }
+        Assert.assertTrue(lastSend >= TimeUnit.MILLISECONDS.toNanos(49));
+
+        SampleResult sampleResult = new SampleResult();
+        scheduler.complete(sampleResult, firstSend);
+
+        Assert.assertSame(scheduler.awaitCompletion(0), sampleResult);
+        Assert.assertTrue(sampleResult.getTime() >= 50, "Time: " + sampleResult.getTime());
+        Assert.assertTrue(sampleResult.getStartTime() - startMillis <= 1);
+    }
+
+    @Test
+    public void testCanLimitCallsInFlight() throws InterruptedException {
+        ArrivalRateScheduler scheduler = new ArrivalRateScheduler(1000, 1);
+        Thread.sleep(10);
+
+        long intendedNanos = scheduler.nextDueSend();
+        Assert.assertEquals(scheduler.nextDueSend(), -1);
+        scheduler.complete(new SampleResult(), intendedNanos);
+
+        Assert.assertEquals(scheduler.nextDueSend(), TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCannotCreateSchedulerWithoutRate() {
+        new ArrivalRateScheduler(0, 1);
+    }
+}
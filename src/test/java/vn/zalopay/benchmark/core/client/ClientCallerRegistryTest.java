@@ -0,0 +1,86 @@
+package vn.zalopay.benchmark.core.client;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import vn.zalopay.benchmark.core.BaseTest;
+import vn.zalopay.benchmark.core.ClientCaller;
+import vn.zalopay.benchmark.core.ClientCallerRegistry;
+import vn.zalopay.benchmark.core.config.GrpcRequestConfig;
+
+public class ClientCallerRegistryTest extends BaseTest {
+
+    @AfterMethod
+    public void shutdownRegistry() {
+        ClientCallerRegistry.shutdownAll();
+    }
+
+    @Test
+    public void testCanShareClientCallerForSameConfig() {
+        ClientCaller first = ClientCallerRegistry.getClientCaller(newConfig(FULL_METHOD));
+        ClientCaller second = ClientCallerRegistry.getClientCaller(newConfig(FULL_METHOD));
+        Assert.assertSame(first, second);
+        Assert.assertEquals(ClientCallerRegistry.size(), 1);
+    }
+
+    @Test
+    public void testCanKeepSeparateClientCallerForDifferentConfig() {
+        ClientCaller createShelf = ClientCallerRegistry.getClientCaller(newConfig(FULL_METHOD));
+        ClientCaller listShelves =
+                ClientCallerRegistry.getClientCaller(newConfig("bookstore.Bookstore/ListShelves"));
+        Assert.assertNotSame(createShelf, listShelves);
+        Assert.assertEquals(ClientCallerRegistry.size(), 2);
+    }
+
+    @Test
+    public void testCanShutdownAllClientCaller() {
+        ClientCaller caller = ClientCallerRegistry.getClientCaller(newConfig(FULL_METHOD));
+        ClientCallerRegistry.shutdownAll();
+        Assert.assertTrue(caller.isShutdown());
+        Assert.assertEquals(ClientCallerRegistry.size(), 0);
+        Assert.assertNotSame(ClientCallerRegistry.getClientCaller(newConfig(FULL_METHOD)), caller);
+    }
+
+    @Test(
+            expectedExceptions = RuntimeException.class,
+            expectedExceptionsMessageRegExp = "Unable to find method Invalid in service Bookstore")
+    public void testDoNotRegisterClientCallerWhenCreationFailed() {
+        try {
+            ClientCallerRegistry.getClientCaller(newConfig(FULL_METHOD_INVALID));
+        } finally {
+            Assert.assertEquals(ClientCallerRegistry.size(), 0);
+        }
+    }
+
+    @Test
+    public void testCanKeepFailureOfClientCallerCreation() {
+        RuntimeException first = getClientCallerFailure(newConfig(FULL_METHOD_INVALID));
+        RuntimeException second = getClientCallerFailure(newConfig(FULL_METHOD_INVALID));
+        ClientCallerRegistry.shutdownAll();
+        RuntimeException afterShutdown = getClientCallerFailure(newConfig(FULL_METHOD_INVALID));
+        Assert.assertSame(second, first);
+        Assert.assertNotSame(afterShutdown, first);
+        Assert.assertEquals(ClientCallerRegistry.size(), 0);
+    }
+
+    private RuntimeException getClientCallerFailure(GrpcRequestConfig requestConfig) {
+        try {
+            ClientCallerRegistry.getClientCaller(requestConfig);
+        } catch (RuntimeException e) {
+            return e;
+        }
+        throw new AssertionError("Client caller created for " + requestConfig);
+    }
+
+    private GrpcRequestConfig newConfig(String fullMethod) {
+        return new GrpcRequestConfig(
+                HOST_PORT,
+                PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString(),
+                LIB_FOLDER.toString(),
+                fullMethod,
+                false,
+                false,
+                DEFAULT_CHANNEL_SHUTDOWN_TIME);
+    }
+}
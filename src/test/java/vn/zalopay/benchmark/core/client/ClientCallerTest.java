@@ -15,6 +15,7 @@ import io.netty.handler.ssl.ApplicationProtocolConfig;
 import io.netty.handler.ssl.ApplicationProtocolNames;
 import io.netty.handler.ssl.SslContextBuilder;
 
+import org.apache.jmeter.util.JMeterUtils;
 import org.mockito.MockedConstruction;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
@@ -23,6 +24,8 @@ import org.testng.annotations.Test;
 
 import vn.zalopay.benchmark.core.BaseTest;
 import vn.zalopay.benchmark.core.ClientCaller;
+import vn.zalopay.benchmark.core.ClientList;
+import vn.zalopay.benchmark.core.config.ChannelStrategy;
 import vn.zalopay.benchmark.core.config.GrpcRequestConfig;
 import vn.zalopay.benchmark.core.protobuf.ProtocInvoker;
 import vn.zalopay.benchmark.core.specification.GrpcResponse;
@@ -47,6 +50,272 @@ public class ClientCallerTest extends BaseTest {
         Assert.assertTrue(resp.getGrpcMessageString().contains("\"theme\": \"Hello server"));
     }
 
+    @Test
+    public void testCanSendGrpcUnaryRequestOnSharedEpollEventLoops() {
+        JMeterUtils.setProperty("grpc.request.epoll.enabled", "true");
+        JMeterUtils.setProperty("grpc.request.eventloop.threads", "2");
+        try {
+            clientCaller = new ClientCaller(DEFAULT_GRPC_REQUEST_CONFIG);
+            ImmutableList<DynamicMessage> req =
+                    clientCaller.buildRequestAndMetadata(REQUEST_JSON, METADATA);
+            GrpcResponse resp = clientCaller.call("5000", req);
+            clientCaller.shutdownNettyChannel();
+            Assert.assertTrue(resp.getGrpcMessageString().contains("\"theme\": \"Hello server"));
+        } finally {
+            JMeterUtils.getJMeterProperties().remove("grpc.request.epoll.enabled");
+            JMeterUtils.getJMeterProperties().remove("grpc.request.eventloop.threads");
+        }
+    }
+
+    @Test
+    public void testCanSendGrpcRequestsWithTransportSettings() {
+        GrpcRequestConfig grpcRequestConfig =
+                new GrpcRequestConfig(
+                        HOST_PORT,
+                        PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString(),
+                        LIB_FOLDER.toString(),
+                        FULL_METHOD,
+                        false,
+                        false,
+                        DEFAULT_CHANNEL_SHUTDOWN_TIME);
+        grpcRequestConfig.setFlowControlWindow(8388608);
+        grpcRequestConfig.setKeepAliveTime(30000);
+        grpcRequestConfig.setKeepAliveTimeout(5000);
+        grpcRequestConfig.setKeepAliveWithoutCalls(true);
+        grpcRequestConfig.setIdleTimeout(600000);
+        clientCaller = new ClientCaller(grpcRequestConfig);
+        ImmutableList<DynamicMessage> req =
+                clientCaller.buildRequestAndMetadata(REQUEST_JSON, METADATA);
+        GrpcResponse resp = clientCaller.call("5000", req);
+        grpcRequestConfig.setFlowControlAutoTuningDisabled(true);
+        ClientCaller fixedWindowCaller = new ClientCaller(grpcRequestConfig);
+        GrpcResponse fixedWindowResp = fixedWindowCaller.call("5000", req);
+        clientCaller.shutdownNettyChannel();
+        fixedWindowCaller.shutdownNettyChannel();
+        Assert.assertTrue(resp.getGrpcMessageString().contains("\"theme\": \"Hello server"));
+        Assert.assertTrue(
+                fixedWindowResp.getGrpcMessageString().contains("\"theme\": \"Hello server"));
+    }
+
+    @Test
+    public void testCanAwaitChannelsReady() {
+        GrpcRequestConfig grpcRequestConfig =
+                new GrpcRequestConfig(
+                        HOST_PORT,
+                        PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString(),
+                        LIB_FOLDER.toString(),
+                        FULL_METHOD,
+                        false,
+                        false,
+                        DEFAULT_CHANNEL_SHUTDOWN_TIME);
+        grpcRequestConfig.setChannelStrategy(ChannelStrategy.POOL);
+        grpcRequestConfig.setChannelPoolSize(3);
+        clientCaller = new ClientCaller(grpcRequestConfig);
+        int ready = clientCaller.awaitChannelsReady(5000);
+        grpcRequestConfig.setHostPort("localhost:1");
+        grpcRequestConfig.setChannelPoolSize(1);
+        ClientCaller unreachableCaller = new ClientCaller(grpcRequestConfig);
+        int unreachableReady = unreachableCaller.awaitChannelsReady(200);
+        clientCaller.shutdownNettyChannel();
+        unreachableCaller.shutdownNettyChannel();
+        Assert.assertEquals(ready, 3);
+        Assert.assertEquals(unreachableReady, 0);
+    }
+
+    @Test
+    public void testCanAwaitOwnChannelOfThread() throws Exception {
+        GrpcRequestConfig grpcRequestConfig =
+                new GrpcRequestConfig(
+                        HOST_PORT,
+                        PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString(),
+                        LIB_FOLDER.toString(),
+                        FULL_METHOD,
+                        false,
+                        false,
+                        DEFAULT_CHANNEL_SHUTDOWN_TIME);
+        grpcRequestConfig.setChannelStrategy(ChannelStrategy.PER_THREAD);
+        clientCaller = new ClientCaller(grpcRequestConfig);
+        ImmutableList<DynamicMessage> req =
+                clientCaller.buildRequestAndMetadata(REQUEST_JSON, METADATA);
+        int[] otherThreadReady = new int[1];
+        GrpcResponse[] otherThreadResp = new GrpcResponse[1];
+        Thread otherThread =
+                new Thread(
+                        () -> {
+                            otherThreadReady[0] = clientCaller.awaitChannelsReady(5000);
+                            otherThreadResp[0] = clientCaller.call("5000", req);
+                        });
+        otherThread.start();
+        otherThread.join();
+        clientCaller.shutdownNettyChannel();
+        Assert.assertEquals(otherThreadReady[0], 1);
+        Assert.assertTrue(
+                otherThreadResp[0].getGrpcMessageString().contains("\"theme\": \"Hello server"));
+    }
+
+    @Test
+    public void testCanSendGrpcRequestsOnDirectExecutor() throws Exception {
+        GrpcRequestConfig grpcRequestConfig =
+                new GrpcRequestConfig(
+                        HOST_PORT,
+                        PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString(),
+                        LIB_FOLDER.toString(),
+                        FULL_METHOD,
+                        false,
+                        false,
+                        DEFAULT_CHANNEL_SHUTDOWN_TIME);
+        grpcRequestConfig.setDirectExecutor(true);
+        clientCaller = new ClientCaller(grpcRequestConfig);
+        ImmutableList<DynamicMessage> req =
+                clientCaller.buildRequestAndMetadata(REQUEST_JSON, METADATA);
+        GrpcResponse resp = clientCaller.call("5000", req);
+        GrpcResponse asyncResp = clientCaller.callAsync("5000", req).get();
+        clientCaller.shutdownNettyChannel();
+        Assert.assertTrue(resp.getGrpcMessageString().contains("\"theme\": \"Hello server"));
+        Assert.assertTrue(asyncResp.getGrpcMessageString().contains("\"theme\": \"Hello server"));
+    }
+
+    @Test
+    public void testCanSendGrpcUnaryRequestWithServerReflection() {
+        clientCaller =
+                new ClientCaller(
+                        new GrpcRequestConfig(
+                                HOST_PORT,
+                                "",
+                                "",
+                                FULL_METHOD,
+                                false,
+                                false,
+                                DEFAULT_CHANNEL_SHUTDOWN_TIME));
+        ImmutableList<DynamicMessage> req =
+                clientCaller.buildRequestAndMetadata(REQUEST_JSON, METADATA);
+        GrpcResponse resp = clientCaller.call("5000", req);
+        clientCaller.shutdownNettyChannel();
+        Assert.assertTrue(resp.getGrpcMessageString().contains("\"theme\": \"Hello server"));
+    }
+
+    @Test
+    public void testCanSendGrpcUnaryRequestWithChannelPool() {
+        GrpcRequestConfig grpcRequestConfig =
+                new GrpcRequestConfig(
+                        HOST_PORT,
+                        PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString(),
+                        LIB_FOLDER.toString(),
+                        FULL_METHOD,
+                        false,
+                        false,
+                        DEFAULT_CHANNEL_SHUTDOWN_TIME);
+        grpcRequestConfig.setChannelStrategy(ChannelStrategy.POOL);
+        grpcRequestConfig.setChannelPoolSize(3);
+        clientCaller = new ClientCaller(grpcRequestConfig);
+        ImmutableList<DynamicMessage> req =
+                clientCaller.buildRequestAndMetadata(REQUEST_JSON, METADATA);
+        for (int i = 0; i < 4; i++) {
+            GrpcResponse resp = clientCaller.call("5000", req);
+            Assert.assertTrue(resp.getGrpcMessageString().contains("\"theme\": \"Hello server"));
+        }
+        clientCaller.shutdownNettyChannel();
+        Assert.assertTrue(clientCaller.isShutdown());
+        Assert.assertTrue(clientCaller.isTerminated());
+    }
+
+    @Test
+    public void testCanSendGrpcUnaryRequestWithChannelPerThread() throws Exception {
+        GrpcRequestConfig grpcRequestConfig =
+                new GrpcRequestConfig(
+                        HOST_PORT,
+                        PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString(),
+                        LIB_FOLDER.toString(),
+                        FULL_METHOD,
+                        false,
+                        false,
+                        DEFAULT_CHANNEL_SHUTDOWN_TIME);
+        grpcRequestConfig.setChannelStrategy(ChannelStrategy.PER_THREAD);
+        clientCaller = new ClientCaller(grpcRequestConfig);
+        ImmutableList<DynamicMessage> req =
+                clientCaller.buildRequestAndMetadata(REQUEST_JSON, METADATA);
+        GrpcResponse[] otherThreadResp = new GrpcResponse[1];
+        Thread otherThread = new Thread(() -> otherThreadResp[0] = clientCaller.call("5000", req));
+        otherThread.start();
+        GrpcResponse resp = clientCaller.call("5000", req);
+        otherThread.join();
+        Assert.assertTrue(resp.getGrpcMessageString().contains("\"theme\": \"Hello server"));
+        Assert.assertTrue(
+                otherThreadResp[0].getGrpcMessageString().contains("\"theme\": \"Hello server"));
+    }
+
+    @Test
+    public void testCanShutdownChannelOfThread() throws Exception {
+        GrpcRequestConfig grpcRequestConfig =
+                new GrpcRequestConfig(
+                        HOST_PORT,
+                        PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString(),
+                        LIB_FOLDER.toString(),
+                        FULL_METHOD,
+                        false,
+                        false,
+                        DEFAULT_CHANNEL_SHUTDOWN_TIME);
+        grpcRequestConfig.setChannelStrategy(ChannelStrategy.PER_THREAD);
+        clientCaller = new ClientCaller(grpcRequestConfig);
+        ImmutableList<DynamicMessage> req =
+                clientCaller.buildRequestAndMetadata(REQUEST_JSON, METADATA);
+        Thread otherThread =
+                new Thread(
+                        () -> {
+                            clientCaller.call("5000", req);
+                            clientCaller.shutdownThreadChannel();
+                        });
+        otherThread.start();
+        clientCaller.call("5000", req);
+        otherThread.join();
+        clientCaller.shutdownThreadChannel();
+        // Both channels were forgotten, so none is left for the caller to shut down
+        Assert.assertFalse(clientCaller.isShutdown());
+        GrpcResponse resp = clientCaller.call("5000", req);
+        clientCaller.shutdownNettyChannel();
+        Assert.assertTrue(clientCaller.isShutdown());
+        Assert.assertTrue(resp.getGrpcMessageString().contains("\"theme\": \"Hello server"));
+    }
+
+    @Test
+    public void testCanReuseParsedRequestForSameJson() {
+        clientCaller = new ClientCaller(DEFAULT_GRPC_REQUEST_CONFIG);
+        ImmutableList<DynamicMessage> first =
+                clientCaller.buildRequestAndMetadata(REQUEST_JSON, METADATA);
+        ImmutableList<DynamicMessage> second =
+                clientCaller.buildRequestAndMetadata(REQUEST_JSON, METADATA);
+        ImmutableList<DynamicMessage> other =
+                clientCaller.buildRequestAndMetadata(
+                        "{\"shelf\":{\"id\":1,\"theme\":\"Other\"}}", METADATA);
+        Assert.assertSame(first, second);
+        Assert.assertNotEquals(first, other);
+    }
+
+    @Test
+    public void testCanKeepMetadataOfEachThread() throws Exception {
+        clientCaller = new ClientCaller(DEFAULT_GRPC_REQUEST_CONFIG);
+        ImmutableList<DynamicMessage> req =
+                clientCaller.buildRequestAndMetadata(REQUEST_JSON, "token:main");
+        String[] otherThreadMetadata = new String[1];
+        GrpcResponse[] otherThreadResp = new GrpcResponse[1];
+        Thread otherThread =
+                new Thread(
+                        () -> {
+                            clientCaller.buildMetadata("token:other");
+                            otherThreadResp[0] = clientCaller.call("5000", req);
+                            otherThreadMetadata[0] = clientCaller.getMetadataString();
+                        });
+        otherThread.start();
+        otherThread.join();
+        GrpcResponse resp = clientCaller.call("5000", req);
+        clientCaller.shutdownNettyChannel();
+        Assert.assertEquals(clientCaller.getMetadataString(), "token: main");
+        Assert.assertEquals(otherThreadMetadata[0], "token: other");
+        Assert.assertTrue(resp.getGrpcMessageString().contains("\"theme\": \"Hello server"));
+        Assert.assertTrue(
+                otherThreadResp[0].getGrpcMessageString().contains("\"theme\": \"Hello server"));
+    }
+
     @Test
     public void testCanGetShutDownBoolean() {
         clientCaller = new ClientCaller(DEFAULT_GRPC_REQUEST_CONFIG);
@@ -292,6 +561,8 @@ public class ClientCallerTest extends BaseTest {
             expectedExceptions = RuntimeException.class,
             expectedExceptionsMessageRegExp = "Unable to resolve service by invoking protoc.*")
     public void testThrowExceptionWithExceptionInProtocInvoke() {
+        // Resolvers compiled by earlier tests would be reused without invoking protoc
+        ClientList.clearCache();
         MockedStatic<ProtocInvoker> protocInvoker = Mockito.mockStatic(ProtocInvoker.class);
         protocInvoker
                 .when(
@@ -2,8 +2,12 @@ package vn.zalopay.benchmark.core.client;
 
 import static org.mockito.Mockito.any;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
 import com.google.protobuf.InvalidProtocolBufferException;
 
+import org.apache.jmeter.util.JMeterUtils;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.testng.Assert;
@@ -11,6 +15,9 @@ import org.testng.annotations.Test;
 
 import vn.zalopay.benchmark.core.BaseTest;
 import vn.zalopay.benchmark.core.ClientList;
+import vn.zalopay.benchmark.core.protobuf.ProtoMethodName;
+import vn.zalopay.benchmark.core.protobuf.ProtocInvoker;
+import vn.zalopay.benchmark.core.protobuf.ServiceResolver;
 
 import java.io.IOException;
 import java.nio.file.CopyOption;
@@ -87,6 +94,64 @@ public class ClientListTest extends BaseTest {
         Assert.assertEquals(list, methods);
     }
 
+    @Test
+    public void testCanShareServiceResolverWithSamplers() {
+        ServiceResolver listed =
+                ClientList.getServiceResolver(PROTO_FOLDER.toString(), LIB_FOLDER.toString());
+        ProtoMethodName targetMethod =
+                ProtoMethodName.parseFullGrpcMethodName("helloworld.Greeter/SayHello");
+
+        Assert.assertSame(
+                ClientList.getServiceResolver(
+                        PROTO_FOLDER.toString(), LIB_FOLDER.toString(), targetMethod),
+                listed);
+        ServiceResolver reloaded =
+                ClientList.getServiceResolver(PROTO_FOLDER.toString(), LIB_FOLDER.toString(), true);
+        Assert.assertNotSame(reloaded, listed);
+        Assert.assertSame(
+                ClientList.getServiceResolver(PROTO_FOLDER.toString(), LIB_FOLDER.toString()),
+                reloaded);
+
+        // Samplers only get the descriptors of their service when protoc compiles its file alone
+        JMeterUtils.setProperty("grpc.request.protoc.closure.enabled", "true");
+        try {
+            ServiceResolver scoped =
+                    ClientList.getServiceResolver(
+                            PROTO_FOLDER.toString(), LIB_FOLDER.toString(), targetMethod);
+            Assert.assertNotSame(scoped, reloaded);
+            Assert.assertEquals(ClientList.listServices(scoped).size(), 2);
+        } finally {
+            JMeterUtils.getJMeterProperties().remove("grpc.request.protoc.closure.enabled");
+        }
+    }
+
+    @Test
+    public void testCanKeepServiceResolverOfLargeProtoTree() throws Exception {
+        // Heavier than a quarter of the default cache weight, which Guava gives each of its
+        // default four segments
+        ServiceResolver largeResolver = resolverWithMessageTypes(300000);
+        ServiceResolver smallResolver = resolverWithMessageTypes(10);
+        ProtocInvoker protocInvoker = Mockito.mock(ProtocInvoker.class);
+        Mockito.when(protocInvoker.invoke()).thenReturn(FileDescriptorSet.getDefaultInstance());
+        ClientList.clearCache();
+        try (MockedStatic<ProtocInvoker> protoc = Mockito.mockStatic(ProtocInvoker.class);
+                MockedStatic<ServiceResolver> resolvers =
+                        Mockito.mockStatic(ServiceResolver.class)) {
+            protoc.when(() -> ProtocInvoker.forConfig(any(), any(), any()))
+                    .thenReturn(protocInvoker);
+            resolvers
+                    .when(() -> ServiceResolver.fromFileDescriptorSet(any()))
+                    .thenReturn(largeResolver, smallResolver);
+
+            Assert.assertSame(ClientList.getServiceResolver("large", null), largeResolver);
+            Assert.assertSame(ClientList.getServiceResolver("small", null), smallResolver);
+            Assert.assertSame(ClientList.getServiceResolver("large", null), largeResolver);
+            Assert.assertSame(ClientList.getServiceResolver("small", null), smallResolver);
+        } finally {
+            ClientList.clearCache();
+        }
+    }
+
     @Test(
             expectedExceptions = RuntimeException.class,
             expectedExceptionsMessageRegExp =
@@ -159,4 +224,13 @@ public class ClientListTest extends BaseTest {
                 .thenReturn(10000L);
         ClientList.listServices(PROTO_FOLDER.toString(), LIB_FOLDER.toString());
     }
+
+    @SuppressWarnings("unchecked")
+    private static ServiceResolver resolverWithMessageTypes(int count) {
+        ImmutableSet<Descriptor> messageTypes = Mockito.mock(ImmutableSet.class);
+        Mockito.when(messageTypes.size()).thenReturn(count);
+        ServiceResolver serviceResolver = Mockito.mock(ServiceResolver.class);
+        Mockito.when(serviceResolver.listMessageTypes()).thenReturn(messageTypes);
+        return serviceResolver;
+    }
 }
@@ -16,7 +16,10 @@ public class GrpcRequestConfigTest {
                 grpcRequestConfigString,
                 "GrpcRequestConfig{maxInboundMessageSize=4194304, maxInboundMetadataSize=8192,"
                     + " hostPort='a', testProtoFile='b', libFolder='c', fullMethod='d', tls=true,"
-                    + " tlsDisableVerification=true, awaitTerminationTimeout=1000}");
+                    + " tlsDisableVerification=true, awaitTerminationTimeout=1000,"
+                    + " channelStrategy=SHARED, channelPoolSize=1, directExecutor=false,"
+                    + " flowControlWindow=0, flowControlAutoTuningDisabled=false, keepAliveTime=0,"
+                    + " keepAliveTimeout=0, keepAliveWithoutCalls=false, idleTimeout=0}");
     }
 
     @Test
@@ -59,6 +62,44 @@ public class GrpcRequestConfigTest {
         softAssert.assertEquals(grpcRequestConfig.getAwaitTerminationTimeout(), 5000);
         softAssert.assertEquals(grpcRequestConfig.getMaxInboundMetadataSize(), 8192);
         softAssert.assertEquals(grpcRequestConfig.getMaxInboundMessageSize(), 4194304);
+        softAssert.assertEquals(grpcRequestConfig.getChannelStrategy(), ChannelStrategy.SHARED);
+        softAssert.assertEquals(grpcRequestConfig.getChannelPoolSize(), 1);
+        softAssert.assertAll();
+    }
+
+    @Test
+    public void canBuildTransportSettings() {
+        SoftAssert softAssert = new SoftAssert();
+        GrpcRequestConfig grpcRequestConfig =
+                GrpcRequestConfig.builder()
+                        .flowControlWindow(8388608)
+                        .flowControlAutoTuningDisabled(true)
+                        .keepAliveTime(30000)
+                        .keepAliveTimeout(5000)
+                        .keepAliveWithoutCalls(true)
+                        .idleTimeout(600000)
+                        .build();
+        softAssert.assertEquals(grpcRequestConfig.getFlowControlWindow(), 8388608);
+        softAssert.assertTrue(grpcRequestConfig.isFlowControlAutoTuningDisabled());
+        softAssert.assertEquals(grpcRequestConfig.getKeepAliveTime(), 30000);
+        softAssert.assertEquals(grpcRequestConfig.getKeepAliveTimeout(), 5000);
+        softAssert.assertTrue(grpcRequestConfig.isKeepAliveWithoutCalls());
+        softAssert.assertEquals(grpcRequestConfig.getIdleTimeout(), 600000);
+        softAssert.assertNotEquals(grpcRequestConfig, GrpcRequestConfig.builder().build());
+        softAssert.assertAll();
+    }
+
+    @Test
+    public void canFallbackToSharedChannelStrategy() {
+        SoftAssert softAssert = new SoftAssert();
+        GrpcRequestConfig grpcRequestConfig = GrpcRequestConfig.builder().build();
+        softAssert.assertEquals(grpcRequestConfig.getChannelStrategy(), ChannelStrategy.SHARED);
+        softAssert.assertEquals(grpcRequestConfig.getChannelPoolSize(), 1);
+        softAssert.assertEquals(ChannelStrategy.fromString("pool"), ChannelStrategy.POOL);
+        softAssert.assertEquals(
+                ChannelStrategy.fromString(" PER_THREAD "), ChannelStrategy.PER_THREAD);
+        softAssert.assertEquals(ChannelStrategy.fromString("unknown"), ChannelStrategy.SHARED);
+        softAssert.assertEquals(ChannelStrategy.fromString(null), ChannelStrategy.SHARED);
         softAssert.assertAll();
     }
 
@@ -107,12 +148,18 @@ public class GrpcRequestConfigTest {
                 "GrpcRequestConfig.GrpcRequestConfigBuilder(maxInboundMessageSize=0,"
                     + " maxInboundMetadataSize=0, hostPort=null, protoFolder=null, libFolder=null,"
                     + " fullMethod=null, tls=false, tlsDisableVerification=false,"
-                    + " awaitTerminationTimeout=0)");
+                    + " awaitTerminationTimeout=0, channelStrategy=null, channelPoolSize=0,"
+                    + " directExecutor=false, flowControlWindow=0,"
+                    + " flowControlAutoTuningDisabled=false, keepAliveTime=0, keepAliveTimeout=0,"
+                    + " keepAliveWithoutCalls=false, idleTimeout=0)");
         Assert.assertEquals(
                 grpcRequestConfigString,
                 "GrpcRequestConfig{maxInboundMessageSize=1000, maxInboundMetadataSize=1000,"
                     + " hostPort='a', testProtoFile='b', libFolder='c', fullMethod='d', tls=true,"
-                    + " tlsDisableVerification=true, awaitTerminationTimeout=1000}");
+                    + " tlsDisableVerification=true, awaitTerminationTimeout=1000,"
+                    + " channelStrategy=SHARED, channelPoolSize=1, directExecutor=false,"
+                    + " flowControlWindow=0, flowControlAutoTuningDisabled=false, keepAliveTime=0,"
+                    + " keepAliveTimeout=0, keepAliveWithoutCalls=false, idleTimeout=0}");
     }
 
     @Test
@@ -124,7 +171,10 @@ public class GrpcRequestConfigTest {
                 grpcRequestConfigString,
                 "GrpcRequestConfig{maxInboundMessageSize=4194304, maxInboundMetadataSize=8192,"
                     + " hostPort='null', testProtoFile='null', libFolder='null', fullMethod='null',"
-                    + " tls=false, tlsDisableVerification=false, awaitTerminationTimeout=5000}");
+                    + " tls=false, tlsDisableVerification=false, awaitTerminationTimeout=5000,"
+                    + " channelStrategy=SHARED, channelPoolSize=1, directExecutor=false,"
+                    + " flowControlWindow=0, flowControlAutoTuningDisabled=false, keepAliveTime=0,"
+                    + " keepAliveTimeout=0, keepAliveWithoutCalls=false, idleTimeout=0}");
     }
 
     @Test
@@ -152,7 +202,10 @@ public class GrpcRequestConfigTest {
                 grpcRequestConfigString,
                 "GrpcRequestConfig{maxInboundMessageSize=1000, maxInboundMetadataSize=1000,"
                     + " hostPort='a', testProtoFile='b', libFolder='c', fullMethod='d', tls=true,"
-                    + " tlsDisableVerification=true, awaitTerminationTimeout=1000}");
+                    + " tlsDisableVerification=true, awaitTerminationTimeout=1000,"
+                    + " channelStrategy=SHARED, channelPoolSize=1, directExecutor=false,"
+                    + " flowControlWindow=0, flowControlAutoTuningDisabled=false, keepAliveTime=0,"
+                    + " keepAliveTimeout=0, keepAliveWithoutCalls=false, idleTimeout=0}");
         Assert.assertTrue(grpcRequestConfig.hashCode() != 0);
         Assert.assertTrue(
                 GrpcRequestConfig.builder()
@@ -259,9 +312,12 @@ public class GrpcRequestConfigTest {
                         .maxInboundMetadataSize(1000)
                         .toString(),
                 "GrpcRequestConfig.GrpcRequestConfigBuilder(maxInboundMessageSize=1000,"
-                        + " maxInboundMetadataSize=1000, hostPort=a, protoFolder=b, libFolder=c,"
-                        + " fullMethod=d, tls=true, tlsDisableVerification=true,"
-                        + " awaitTerminationTimeout=1000)");
+                    + " maxInboundMetadataSize=1000, hostPort=a, protoFolder=b, libFolder=c,"
+                    + " fullMethod=d, tls=true, tlsDisableVerification=true,"
+                    + " awaitTerminationTimeout=1000, channelStrategy=null, channelPoolSize=0,"
+                    + " directExecutor=false, flowControlWindow=0,"
+                    + " flowControlAutoTuningDisabled=false, keepAliveTime=0, keepAliveTimeout=0,"
+                    + " keepAliveWithoutCalls=false, idleTimeout=0)");
     }
 
     @Test
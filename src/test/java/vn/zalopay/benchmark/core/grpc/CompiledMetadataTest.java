@@ -0,0 +1,58 @@
+package vn.zalopay.benchmark.core.grpc;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.grpc.Metadata;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+public class CompiledMetadataTest {
+    private static final Metadata.Key<String> TOKEN_KEY =
+            Metadata.Key.of("token", Metadata.ASCII_STRING_MARSHALLER);
+    private static final Metadata.Key<String> TRACE_KEY =
+            Metadata.Key.of("trace-id", Metadata.ASCII_STRING_MARSHALLER);
+
+    @Test
+    public void testCanMergeCompiledHeaders() {
+        CompiledMetadata compiled =
+                CompiledMetadata.compile(
+                        "token:abc,trace-id:1",
+                        ImmutableMap.of("token", "abc", "trace-id", "1"),
+                        CompiledMetadata.EMPTY);
+
+        Metadata first = new Metadata();
+        first.merge(compiled.getHeaders());
+        Metadata second = new Metadata();
+        second.merge(compiled.getHeaders());
+        Assert.assertEquals(first.get(TOKEN_KEY), "abc");
+        Assert.assertEquals(second.get(TRACE_KEY), "1");
+        Assert.assertEquals(compiled.getHeadersString(), "token: abc\ntrace-id: 1");
+        Assert.assertTrue(compiled.isCompiledFrom("token:abc,trace-id:1"));
+        Assert.assertFalse(compiled.isCompiledFrom("token:abc,trace-id:2"));
+    }
+
+    @Test
+    public void testCanRecompileChangedValues() {
+        CompiledMetadata previous =
+                CompiledMetadata.compile(
+                        "token:abc", ImmutableMap.of("token", "abc"), CompiledMetadata.EMPTY);
+        CompiledMetadata compiled =
+                CompiledMetadata.compile("token:def", ImmutableMap.of("token", "def"), previous);
+
+        Metadata headers = new Metadata();
+        headers.merge(compiled.getHeaders());
+        Assert.assertEquals(headers.getAll(TOKEN_KEY), Collections.singletonList("def"));
+        Assert.assertEquals(previous.getHeaders().get(TOKEN_KEY), "abc");
+        Assert.assertTrue(CompiledMetadata.EMPTY.isCompiledFrom(""));
+        Assert.assertTrue(CompiledMetadata.EMPTY.getEntries().isEmpty());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCannotCompileInvalidHeaderName() {
+        CompiledMetadata.compile(
+                "bad key:value", ImmutableMap.of("bad key", "value"), CompiledMetadata.EMPTY);
+    }
+}
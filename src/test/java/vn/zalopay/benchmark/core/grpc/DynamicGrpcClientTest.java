@@ -0,0 +1,155 @@
+package vn.zalopay.benchmark.core.grpc;
+
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.util.JsonFormat;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import vn.zalopay.benchmark.core.BaseTest;
+import vn.zalopay.benchmark.core.channel.DoneObserver;
+import vn.zalopay.benchmark.core.protobuf.ProtoMethodName;
+import vn.zalopay.benchmark.core.protobuf.ProtocInvoker;
+import vn.zalopay.benchmark.core.protobuf.ServiceResolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class DynamicGrpcClientTest extends BaseTest {
+
+    @Test
+    public void testCanBuildMethodDescriptorOnce() {
+        DynamicGrpcClient client = createClient(FULL_METHOD);
+        MethodDescriptor<DynamicMessage, DynamicMessage> methodDescriptor =
+                client.getGrpcMethodDescriptor();
+
+        Assert.assertSame(client.getGrpcMethodDescriptor(), methodDescriptor);
+        Assert.assertEquals(methodDescriptor.getFullMethodName(), FULL_METHOD);
+        Assert.assertEquals(methodDescriptor.getType(), MethodDescriptor.MethodType.UNARY);
+    }
+
+    @Test
+    public void testCanMapStreamingMethodTypes() {
+        Assert.assertEquals(
+                createClient("bookstore.Bookstore/GetShelfStreamClient")
+                        .getGrpcMethodDescriptor()
+                        .getType(),
+                MethodDescriptor.MethodType.CLIENT_STREAMING);
+        Assert.assertEquals(
+                createClient("bookstore.Bookstore/GetShelfStreamServer")
+                        .getGrpcMethodDescriptor()
+                        .getType(),
+                MethodDescriptor.MethodType.SERVER_STREAMING);
+        Assert.assertEquals(
+                createClient("bookstore.Bookstore/GetShelfStreamBidi")
+                        .getGrpcMethodDescriptor()
+                        .getType(),
+                MethodDescriptor.MethodType.BIDI_STREAMING);
+    }
+
+    @Test
+    public void testCanRunUnaryCallbacksOnCallingThread() throws Exception {
+        // Listener callbacks, including parsing the response, run on the call's executor
+        List<Thread> listenerThreads = new CopyOnWriteArrayList<>();
+        ManagedChannel channel =
+                ManagedChannelBuilder.forTarget(HOST_PORT)
+                        .usePlaintext()
+                        .intercept(new ListenerThreadRecorder(listenerThreads))
+                        .build();
+        try {
+            Descriptors.MethodDescriptor method = resolveMethod(FULL_METHOD);
+            DynamicGrpcClient client = new DynamicGrpcClient(method, channel);
+            DynamicMessage.Builder request = DynamicMessage.newBuilder(method.getInputType());
+            JsonFormat.parser().merge(REQUEST_JSON, request);
+
+            client.unaryCall(
+                    ImmutableList.of(request.build()), new DoneObserver<>(), CallOptions.DEFAULT);
+            List<Thread> unaryThreads = new ArrayList<>(listenerThreads);
+            listenerThreads.clear();
+            client.asyncUnaryCall(
+                            ImmutableList.of(request.build()),
+                            new DoneObserver<>(),
+                            CallOptions.DEFAULT)
+                    .get(5, TimeUnit.SECONDS);
+
+            Assert.assertEquals(
+                    unaryThreads, Arrays.asList(Thread.currentThread(), Thread.currentThread()));
+            Assert.assertEquals(listenerThreads.size(), 2);
+            Assert.assertFalse(listenerThreads.contains(Thread.currentThread()));
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /** Records the threads running the response callbacks of every call. */
+    private static class ListenerThreadRecorder implements ClientInterceptor {
+        private final List<Thread> threads;
+
+        ListenerThreadRecorder(List<Thread> threads) {
+            this.threads = threads;
+        }
+
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+                MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+            return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(
+                    next.newCall(method, callOptions)) {
+                @Override
+                public void start(Listener<RespT> responseListener, Metadata headers) {
+                    super.start(new RecordingListener<>(responseListener), headers);
+                }
+            };
+        }
+
+        private class RecordingListener<RespT>
+                extends ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT> {
+            RecordingListener(ClientCall.Listener<RespT> delegate) {
+                super(delegate);
+            }
+
+            @Override
+            public void onMessage(RespT message) {
+                threads.add(Thread.currentThread());
+                super.onMessage(message);
+            }
+
+            @Override
+            public void onClose(Status status, Metadata trailers) {
+                threads.add(Thread.currentThread());
+                super.onClose(status, trailers);
+            }
+        }
+    }
+
+    private static DynamicGrpcClient createClient(String fullMethod) {
+        return new DynamicGrpcClient(resolveMethod(fullMethod), null);
+    }
+
+    private static Descriptors.MethodDescriptor resolveMethod(String fullMethod) {
+        ServiceResolver serviceResolver =
+                ServiceResolver.fromFileDescriptorSet(
+                        ProtocInvoker.forConfig(
+                                        PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString(),
+                                        LIB_FOLDER.toString())
+                                .invoke());
+        return serviceResolver.resolveServiceMethod(
+                ProtoMethodName.parseFullGrpcMethodName(fullMethod));
+    }
+}
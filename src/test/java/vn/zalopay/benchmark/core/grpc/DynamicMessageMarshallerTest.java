@@ -1,8 +1,16 @@
 package vn.zalopay.benchmark.core.grpc;
 
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.BytesValue;
 import com.google.protobuf.DescriptorProtos;
 import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
 
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import vn.zalopay.benchmark.core.BaseTest;
@@ -11,9 +19,13 @@ import vn.zalopay.benchmark.core.protobuf.ProtocInvoker;
 import vn.zalopay.benchmark.core.protobuf.ServiceResolver;
 import vn.zalopay.benchmark.exception.ProtocInvocationException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Random;
 
 public class DynamicMessageMarshallerTest extends BaseTest {
 
@@ -35,4 +47,69 @@ public class DynamicMessageMarshallerTest extends BaseTest {
                 new DynamicMessageMarshaller(methodDescriptor.getOutputType());
         dynamicMessageMarshaller.parse(input);
     }
+
+    @Test
+    public void testCanDrainLargeMessageIntoOutputStream() throws IOException {
+        DynamicMessage message = newBytesMessage(4 << 20);
+        DynamicMessageMarshaller marshaller =
+                new DynamicMessageMarshaller(message.getDescriptorForType());
+
+        InputStream stream = marshaller.stream(message);
+        Assert.assertTrue(stream instanceof KnownLength);
+        Assert.assertEquals(stream.available(), message.getSerializedSize());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Assert.assertEquals(((Drainable) stream).drainTo(output), message.getSerializedSize());
+        Assert.assertEquals(output.toByteArray(), message.toByteArray());
+        Assert.assertEquals(stream.available(), 0);
+
+        // Streams read as plain input streams give the same bytes
+        Assert.assertEquals(
+                ByteStreams.toByteArray(marshaller.stream(message)), message.toByteArray());
+    }
+
+    @Test
+    public void testCanDrainLargeSerializedRequestIntoOutputStream() throws IOException {
+        ByteString value = newBytesMessage(4 << 20).toByteString();
+        ByteStringMarshaller marshaller = new ByteStringMarshaller();
+
+        InputStream stream = marshaller.stream(value);
+        Assert.assertTrue(stream instanceof KnownLength);
+        Assert.assertEquals(stream.available(), value.size());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Assert.assertEquals(((Drainable) stream).drainTo(output), value.size());
+        Assert.assertEquals(output.toByteArray(), value.toByteArray());
+        Assert.assertEquals(stream.available(), 0);
+
+        // Streams read as plain input streams give the same bytes
+        Assert.assertEquals(ByteStreams.toByteArray(marshaller.stream(value)), value.toByteArray());
+        Assert.assertEquals(marshaller.parse(marshaller.stream(value)), value);
+    }
+
+    @Test
+    public void testCanParseLargeMessageOfKnownLength() {
+        DynamicMessage message = newBytesMessage(4 << 20);
+        DynamicMessageMarshaller marshaller =
+                new DynamicMessageMarshaller(message.getDescriptorForType());
+
+        Assert.assertEquals(
+                marshaller.parse(new KnownLengthInputStream(message.toByteArray())), message);
+        Assert.assertEquals(
+                marshaller.parse(new ByteArrayInputStream(message.toByteArray())), message);
+    }
+
+    private static DynamicMessage newBytesMessage(int size) {
+        byte[] payload = new byte[size];
+        new Random(size).nextBytes(payload);
+        Descriptors.Descriptor descriptor = BytesValue.getDescriptor();
+        return DynamicMessage.newBuilder(descriptor)
+                .setField(descriptor.findFieldByName("value"), ByteString.copyFrom(payload))
+                .build();
+    }
+
+    private static class KnownLengthInputStream extends ByteArrayInputStream
+            implements KnownLength {
+        KnownLengthInputStream(byte[] buffer) {
+            super(buffer);
+        }
+    }
 }
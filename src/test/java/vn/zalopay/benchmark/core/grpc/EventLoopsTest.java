@@ -0,0 +1,50 @@
+package vn.zalopay.benchmark.core.grpc;
+
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import vn.zalopay.benchmark.core.BaseTest;
+
+public class EventLoopsTest extends BaseTest {
+
+    @Test
+    public void testCanUseGrpcEventLoopsByDefault() {
+        Assert.assertNull(EventLoops.configured());
+    }
+
+    @Test
+    public void testCanShareSizedEventLoops() {
+        JMeterUtils.setProperty("grpc.request.eventloop.threads", "3");
+        try {
+            EventLoops eventLoops = EventLoops.configured();
+            Assert.assertSame(EventLoops.configured(), eventLoops);
+            Assert.assertFalse(eventLoops.isEpoll());
+            Assert.assertEquals(eventLoops.getChannelType(), NioSocketChannel.class);
+            Assert.assertEquals(
+                    ((MultithreadEventLoopGroup) eventLoops.getGroup()).executorCount(), 3);
+            Assert.assertSame(eventLoops.getGroup(), eventLoops.getGroup());
+        } finally {
+            JMeterUtils.getJMeterProperties().remove("grpc.request.eventloop.threads");
+        }
+    }
+
+    @Test
+    public void testCanUseEpollWhenAvailable() {
+        JMeterUtils.setProperty("grpc.request.epoll.enabled", "true");
+        try {
+            EventLoops eventLoops = EventLoops.configured();
+            Assert.assertEquals(eventLoops.isEpoll(), Epoll.isAvailable());
+            Assert.assertEquals(
+                    eventLoops.getChannelType(),
+                    Epoll.isAvailable() ? EpollSocketChannel.class : NioSocketChannel.class);
+        } finally {
+            JMeterUtils.getJMeterProperties().remove("grpc.request.epoll.enabled");
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.google.protobuf.DescriptorProtos;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.jmeter.services.FileServer;
+import org.apache.jmeter.util.JMeterUtils;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.testng.Assert;
@@ -11,6 +12,7 @@ import org.testng.annotations.Test;
 import org.testng.asserts.SoftAssert;
 
 import vn.zalopay.benchmark.core.BaseTest;
+import vn.zalopay.benchmark.core.protobuf.ProtoMethodName;
 import vn.zalopay.benchmark.core.protobuf.ProtocInvoker;
 import vn.zalopay.benchmark.exception.ProtocInvocationException;
 
@@ -19,7 +21,10 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 public class ProtocInvokerTest extends BaseTest {
@@ -53,6 +58,42 @@ public class ProtocInvokerTest extends BaseTest {
         Assert.assertTrue(fileDescriptorSet.getFileCount() > 0);
     }
 
+    @Test
+    public void canGenerateFileDescriptorSetOfServiceFileOnly() throws ProtocInvocationException {
+        JMeterUtils.setProperty("grpc.request.protoc.closure.enabled", "true");
+        try {
+            Assert.assertEquals(
+                    fileNames(invokeForMethod("helloworld.Greeter/SayHello")),
+                    Collections.singletonList("helloworld.proto"));
+            Assert.assertEquals(
+                    fileNames(invokeForMethod("nopackageservice/NoPackageMethod")),
+                    Collections.singletonList("nopackages.proto"));
+            // Falls back to the whole tree when the service can't be found by its text
+            Assert.assertEquals(
+                    invokeForMethod("helloworld.Missing/SayHello").getFileCount(),
+                    ProtocInvoker.forConfig(PROTO_FOLDER.toAbsolutePath().toString(), "")
+                            .invoke()
+                            .getFileCount());
+        } finally {
+            JMeterUtils.getJMeterProperties().remove("grpc.request.protoc.closure.enabled");
+        }
+    }
+
+    private static DescriptorProtos.FileDescriptorSet invokeForMethod(String fullMethod) {
+        return ProtocInvoker.forConfig(
+                        PROTO_FOLDER.toAbsolutePath().toString(),
+                        "",
+                        ProtoMethodName.parseFullGrpcMethodName(fullMethod))
+                .invoke();
+    }
+
+    // Without a lib folder protoc names the files relative to the working directory
+    private static List<String> fileNames(DescriptorProtos.FileDescriptorSet fileDescriptorSet) {
+        return fileDescriptorSet.getFileList().stream()
+                .map(file -> Paths.get(file.getName()).getFileName().toString())
+                .collect(Collectors.toList());
+    }
+
     @Test(
             expectedExceptions = ProtocInvocationException.class,
             expectedExceptionsMessageRegExp = ".*[Missing input file].*")
@@ -78,6 +119,29 @@ public class ProtocInvokerTest extends BaseTest {
         }
     }
 
+    @Test
+    public void canGenerateWithProtoFolderHasMoreThan100FilesInParallel() throws IOException {
+        File folder = new File(PROTO_WITH_MORE_THAN_100_PROTO_FILES.toAbsolutePath().toString());
+        try {
+            createDummyProtoFiles();
+            ProtocInvoker protocInvoker =
+                    ProtocInvoker.forConfig(
+                            PROTO_WITH_MORE_THAN_100_PROTO_FILES.toAbsolutePath().toString(), "");
+            DescriptorProtos.FileDescriptorSet sequential = protocInvoker.invoke();
+
+            JMeterUtils.setProperty("grpc.request.protoc.parallelism", "4");
+            DescriptorProtos.FileDescriptorSet parallel = protocInvoker.invoke();
+
+            Assert.assertEquals(parallel.getFileCount(), 150);
+            Assert.assertEquals(
+                    new HashSet<>(parallel.getFileList()),
+                    new HashSet<>(sequential.getFileList()));
+        } finally {
+            JMeterUtils.getJMeterProperties().remove("grpc.request.protoc.parallelism");
+            FileUtils.deleteDirectory(folder);
+        }
+    }
+
     @Test
     public void canGenerateWithProtoWithFileServerInDistributedTest() {
         MockedStatic<FileServer> fileServerMockedStatic = Mockito.mockStatic(FileServer.class);
@@ -0,0 +1,148 @@
+package vn.zalopay.benchmark.core.message;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import vn.zalopay.benchmark.core.BaseTest;
+import vn.zalopay.benchmark.core.protobuf.ProtoMethodName;
+import vn.zalopay.benchmark.core.protobuf.ProtocInvoker;
+import vn.zalopay.benchmark.core.protobuf.ServiceResolver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MethodTypeRegistryTest extends BaseTest {
+    private static final String ENVELOPE_PROTO =
+            "syntax = \"proto3\";\n"
+                    + "package anytest;\n"
+                    + "import \"google/protobuf/any.proto\";\n"
+                    + "service Echo {\n"
+                    + "  rpc Wrap (Plain) returns (Envelope);\n"
+                    + "  rpc Echo (Plain) returns (Plain);\n"
+                    + "}\n"
+                    + "message Plain {\n"
+                    + "  string name = 1;\n"
+                    + "}\n"
+                    + "message Envelope {\n"
+                    + "  repeated google.protobuf.Any payloads = 1;\n"
+                    + "}\n";
+    private static final String TARGET_PROTO =
+            "syntax = \"proto3\";\n"
+                    + "package anytest;\n"
+                    + "import \"google/protobuf/any.proto\";\n"
+                    + "message Target {\n"
+                    + "  string name = 1;\n"
+                    + "  google.protobuf.Any nested = 2;\n"
+                    + "}\n";
+    private static final String OTHER_PROTO =
+            "syntax = \"proto3\";\n"
+                    + "package anytest;\n"
+                    + "message Other {\n"
+                    + "  int32 value = 1;\n"
+                    + "}\n";
+
+    private Path protoRoot;
+    private ServiceResolver serviceResolver;
+
+    @BeforeClass
+    public void compileProtos() throws IOException {
+        protoRoot = Files.createTempDirectory("type-registry");
+        Files.write(
+                protoRoot.resolve("envelope.proto"),
+                ENVELOPE_PROTO.getBytes(StandardCharsets.UTF_8));
+        Files.write(
+                protoRoot.resolve("target.proto"), TARGET_PROTO.getBytes(StandardCharsets.UTF_8));
+        Files.write(protoRoot.resolve("other.proto"), OTHER_PROTO.getBytes(StandardCharsets.UTF_8));
+        serviceResolver =
+                ServiceResolver.fromFileDescriptorSet(
+                        ProtocInvoker.forConfig(protoRoot.toString(), "").invoke());
+    }
+
+    @AfterClass
+    public void deleteProtos() throws IOException {
+        FileUtils.deleteDirectory(protoRoot.toFile());
+    }
+
+    @Test
+    public void testCanRegisterOnlyTypesOfMethod() {
+        MethodTypeRegistry typeRegistry = newTypeRegistry("anytest.Echo/Echo");
+
+        Assert.assertNotNull(typeRegistry.get().find("anytest.Envelope"));
+        Assert.assertNull(typeRegistry.get().find("anytest.Target"));
+        Assert.assertNull(typeRegistry.get().find("anytest.Other"));
+        Assert.assertFalse(typeRegistry.isResponseScanned());
+        Assert.assertTrue(newTypeRegistry("anytest.Echo/Wrap").isResponseScanned());
+    }
+
+    @Test
+    public void testCanRegisterAnyTypesOfJsonRequest() {
+        MethodTypeRegistry typeRegistry = newTypeRegistry("anytest.Echo/Echo");
+        JsonFormat.TypeRegistry registry = typeRegistry.get();
+
+        Assert.assertSame(typeRegistry.registerTypesOf("{\"name\": \"plain\"}"), registry);
+        JsonFormat.TypeRegistry grown =
+                typeRegistry.registerTypesOf(
+                        "{\"payloads\": [{\"@type\": \"type.googleapis.com/anytest.Target\"},"
+                                + " {\"@type\" : \"anytest.Missing\"}]}");
+
+        Assert.assertNotNull(grown.find("anytest.Target"));
+        Assert.assertNull(grown.find("anytest.Other"));
+        Assert.assertSame(typeRegistry.get(), grown);
+    }
+
+    @Test
+    public void testCanRegisterNestedAnyTypesOfResponse() throws Exception {
+        MethodTypeRegistry typeRegistry = newTypeRegistry("anytest.Echo/Wrap");
+        Descriptor targetType = serviceResolver.findMessageType("anytest.Target");
+        Descriptor otherType = serviceResolver.findMessageType("anytest.Other");
+        Message other =
+                DynamicMessage.newBuilder(otherType)
+                        .setField(otherType.findFieldByName("value"), 7)
+                        .build();
+        Message target =
+                DynamicMessage.newBuilder(targetType)
+                        .setField(targetType.findFieldByName("name"), "target")
+                        .setField(targetType.findFieldByName("nested"), pack(other))
+                        .build();
+        Descriptor envelopeType = serviceResolver.findMessageType("anytest.Envelope");
+        Message envelope =
+                DynamicMessage.newBuilder(envelopeType)
+                        .addRepeatedField(envelopeType.findFieldByName("payloads"), pack(target))
+                        .build();
+
+        JsonFormat.TypeRegistry registry = typeRegistry.registerTypesOf(envelope);
+
+        Assert.assertNotNull(registry.find("anytest.Target"));
+        Assert.assertNotNull(registry.find("anytest.Other"));
+        Assert.assertTrue(
+                JsonFormat.printer().usingTypeRegistry(registry).print(envelope).contains("7"));
+    }
+
+    private MethodTypeRegistry newTypeRegistry(String fullMethod) {
+        return new MethodTypeRegistry(
+                serviceResolver,
+                serviceResolver.resolveServiceMethod(
+                        ProtoMethodName.parseFullGrpcMethodName(fullMethod)));
+    }
+
+    private Message pack(Message message) {
+        Descriptor anyType = serviceResolver.findMessageType(Any.getDescriptor().getFullName());
+        return DynamicMessage.newBuilder(anyType)
+                .setField(
+                        anyType.findFieldByName("type_url"),
+                        "type.googleapis.com/" + message.getDescriptorForType().getFullName())
+                .setField(anyType.findFieldByName("value"), message.toByteString())
+                .build();
+    }
+}
@@ -0,0 +1,156 @@
+package vn.zalopay.benchmark.core.message;
+
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.JsonFormat;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import vn.zalopay.benchmark.core.BaseTest;
+import vn.zalopay.benchmark.core.protobuf.ProtoMethodName;
+import vn.zalopay.benchmark.core.protobuf.ProtocInvoker;
+import vn.zalopay.benchmark.core.protobuf.ServiceResolver;
+
+public class RequestTemplateTest extends BaseTest {
+
+    @Test
+    public void testCanRenderScalarFields() throws InvalidProtocolBufferException {
+        ServiceResolver serviceResolver = resolver(PROTO_FOLDER.toString(), "");
+        Descriptors.Descriptor inputType =
+                inputType(serviceResolver, "fullprototype.Greeter/SayHello");
+        JsonFormat.TypeRegistry registry = registry(serviceResolver);
+        String template =
+                "{\"name\":\"${name}\",\"number1\":${n1},\"number2\":\"${n2}\",\"number3\":${n3},"
+                        + "\"bytedata\":\"${bytes}\",\"number7\":${n7},\"check\":${check},"
+                        + "\"corpus\":\"${corpus}\",\"number11\":${n11},\"number12\":${n12},"
+                        + "\"id\":\"static\",\"map\":{\"k\":\"v\"},\"results\":[{\"id\":\"r\"}]}";
+
+        RequestTemplate requestTemplate = RequestTemplate.compile(inputType, template, registry);
+        Assert.assertEquals(
+                requestTemplate.getExpressions(),
+                ImmutableList.of(
+                        "${name}",
+                        "${n1}",
+                        "${n2}",
+                        "${n3}",
+                        "${bytes}",
+                        "${n7}",
+                        "${check}",
+                        "${corpus}",
+                        "${n11}",
+                        "${n12}"));
+
+        ByteString rendered =
+                requestTemplate.render(
+                        ImmutableList.of(
+                                "a\\\"b",
+                                "-7",
+                                "9007199254740993",
+                                "1.5",
+                                "AQID",
+                                "18446744073709551615",
+                                "true",
+                                "IMAGES",
+                                "-3",
+                                "-4"));
+        String expectedJson =
+                "{\"name\":\"a\\\"b\",\"number1\":-7,\"number2\":\"9007199254740993\","
+                        + "\"number3\":1.5,\"bytedata\":\"AQID\","
+                        + "\"number7\":\"18446744073709551615\",\"check\":true,"
+                        + "\"corpus\":\"IMAGES\",\"number11\":-3,\"number12\":-4,"
+                        + "\"id\":\"static\",\"map\":{\"k\":\"v\"},\"results\":[{\"id\":\"r\"}]}";
+        Assert.assertEquals(
+                DynamicMessage.parseFrom(inputType, rendered),
+                Reader.create(inputType, expectedJson, registry).read().get(0));
+    }
+
+    @Test
+    public void testCanRenderNestedFields() throws InvalidProtocolBufferException {
+        ServiceResolver serviceResolver =
+                resolver(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString(), LIB_FOLDER.toString());
+        Descriptors.Descriptor inputType = inputType(serviceResolver, FULL_METHOD);
+        JsonFormat.TypeRegistry registry = registry(serviceResolver);
+
+        RequestTemplate requestTemplate =
+                RequestTemplate.compile(
+                        inputType,
+                        "{\"shelf\":{\"id\":${__Random(1,9)},\"theme\":\"Hello server!!\"}}",
+                        registry);
+        ByteString rendered = requestTemplate.render(ImmutableList.of("1599156420811"));
+
+        Assert.assertEquals(requestTemplate.getExpressions(), ImmutableList.of("${__Random(1,9)}"));
+        Assert.assertEquals(
+                DynamicMessage.parseFrom(inputType, rendered),
+                Reader.create(inputType, REQUEST_JSON, registry).read().get(0));
+    }
+
+    @Test
+    public void testCanRenderTemplateWithoutExpressions() {
+        ServiceResolver serviceResolver =
+                resolver(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString(), LIB_FOLDER.toString());
+        Descriptors.Descriptor inputType = inputType(serviceResolver, FULL_METHOD);
+        JsonFormat.TypeRegistry registry = registry(serviceResolver);
+
+        RequestTemplate requestTemplate =
+                RequestTemplate.compile(inputType, REQUEST_JSON, registry);
+
+        Assert.assertTrue(requestTemplate.getExpressions().isEmpty());
+        Assert.assertEquals(
+                requestTemplate.render(ImmutableList.of()),
+                Reader.create(inputType, REQUEST_JSON, registry).read().get(0).toByteString());
+    }
+
+    @Test(
+            expectedExceptions = IllegalArgumentException.class,
+            expectedExceptionsMessageRegExp =
+                    "Expression \\$\\{name\\} must be the whole value of a JSON string")
+    public void testCannotCompileExpressionInsideString() {
+        ServiceResolver serviceResolver = resolver(PROTO_FOLDER.toString(), "");
+        RequestTemplate.compile(
+                inputType(serviceResolver, "fullprototype.Greeter/SayHello"),
+                "{\"name\":\"Hello ${name}\"}",
+                registry(serviceResolver));
+    }
+
+    @Test(
+            expectedExceptions = IllegalArgumentException.class,
+            expectedExceptionsMessageRegExp =
+                    "Field fullprototype.HelloRequest.results can't hold a template expression")
+    public void testCannotCompileExpressionInRepeatedField() {
+        ServiceResolver serviceResolver = resolver(PROTO_FOLDER.toString(), "");
+        RequestTemplate.compile(
+                inputType(serviceResolver, "fullprototype.Greeter/SayHello"),
+                "{\"results\":[{\"id\":\"${id}\"}]}",
+                registry(serviceResolver));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCannotRenderInvalidValue() {
+        ServiceResolver serviceResolver = resolver(PROTO_FOLDER.toString(), "");
+        RequestTemplate.compile(
+                        inputType(serviceResolver, "fullprototype.Greeter/SayHello"),
+                        "{\"number1\":${n1}}",
+                        registry(serviceResolver))
+                .render(ImmutableList.of("not a number"));
+    }
+
+    private static ServiceResolver resolver(String protoFolder, String libFolder) {
+        return ServiceResolver.fromFileDescriptorSet(
+                ProtocInvoker.forConfig(protoFolder, libFolder).invoke());
+    }
+
+    private static Descriptors.Descriptor inputType(
+            ServiceResolver serviceResolver, String fullMethod) {
+        return serviceResolver
+                .resolveServiceMethod(ProtoMethodName.parseFullGrpcMethodName(fullMethod))
+                .getInputType();
+    }
+
+    private static JsonFormat.TypeRegistry registry(ServiceResolver serviceResolver) {
+        return JsonFormat.TypeRegistry.newBuilder().add(serviceResolver.listMessageTypes()).build();
+    }
+}
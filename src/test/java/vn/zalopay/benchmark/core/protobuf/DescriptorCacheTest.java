@@ -0,0 +1,103 @@
+package vn.zalopay.benchmark.core.protobuf;
+
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jmeter.util.JMeterUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import vn.zalopay.benchmark.core.BaseTest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+public class DescriptorCacheTest extends BaseTest {
+
+    @Test
+    public void testCanComputeKeyFromProtoContent() throws IOException {
+        Path protoRoot = Files.createTempDirectory("descriptor-cache-protos");
+        try {
+            Path protoFile = protoRoot.resolve("hello.proto");
+            Files.write(protoFile, "syntax = \"proto3\";".getBytes(StandardCharsets.UTF_8));
+            String key =
+                    DescriptorCache.keyOf(
+                            "3.11.4", ImmutableList.of(protoRoot), ImmutableList.of("hello.proto"));
+
+            Assert.assertEquals(
+                    DescriptorCache.keyOf(
+                            "3.11.4", ImmutableList.of(protoRoot), ImmutableList.of("hello.proto")),
+                    key);
+            Assert.assertNotEquals(
+                    DescriptorCache.keyOf(
+                            "3.17.3", ImmutableList.of(protoRoot), ImmutableList.of("hello.proto")),
+                    key);
+
+            Files.write(protoFile, "syntax = \"proto2\";".getBytes(StandardCharsets.UTF_8));
+            Assert.assertNotEquals(
+                    DescriptorCache.keyOf(
+                            "3.11.4", ImmutableList.of(protoRoot), ImmutableList.of("hello.proto")),
+                    key);
+        } finally {
+            FileUtils.deleteDirectory(protoRoot.toFile());
+        }
+    }
+
+    @Test
+    public void testCanStoreAndLoadDescriptors() throws IOException {
+        Path cacheDir = Files.createTempDirectory("descriptor-cache");
+        try {
+            DescriptorCache descriptorCache = new DescriptorCache(cacheDir.resolve("nested"));
+            FileDescriptorSet fileDescriptorSet =
+                    FileDescriptorSet.newBuilder()
+                            .addFile(FileDescriptorProto.newBuilder().setName("hello.proto"))
+                            .build();
+
+            Assert.assertFalse(descriptorCache.get("key").isPresent());
+            descriptorCache.put("key", fileDescriptorSet);
+            Assert.assertEquals(descriptorCache.get("key").get(), fileDescriptorSet);
+
+            Files.write(descriptorCache.entryPath("key"), new byte[] {1, 2, 3});
+            Assert.assertFalse(descriptorCache.get("key").isPresent());
+        } finally {
+            FileUtils.deleteDirectory(cacheDir.toFile());
+        }
+    }
+
+    @Test
+    public void testCanInvokeProtocWithDescriptorCache() throws IOException {
+        Path cacheDir = Files.createTempDirectory("descriptor-cache");
+        JMeterUtils.setProperty("grpc.request.descriptor.cache.enabled", "true");
+        JMeterUtils.setProperty("grpc.request.descriptor.cache.dir", cacheDir.toString());
+        try {
+            ProtocInvoker protocInvoker =
+                    ProtocInvoker.forConfig(
+                            PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString(), LIB_FOLDER.toString());
+            FileDescriptorSet compiled = protocInvoker.invoke();
+            Path[] entries;
+            try (Stream<Path> cacheEntries = Files.list(cacheDir)) {
+                entries = cacheEntries.toArray(Path[]::new);
+            }
+            Assert.assertEquals(entries.length, 1);
+            Assert.assertEquals(
+                    FileDescriptorSet.parseFrom(Files.readAllBytes(entries[0])), compiled);
+
+            // A second invocation is answered from the cache without running protoc
+            FileDescriptorSet marker =
+                    FileDescriptorSet.newBuilder()
+                            .addFile(FileDescriptorProto.newBuilder().setName("cached.proto"))
+                            .build();
+            Files.write(entries[0], marker.toByteArray());
+            Assert.assertEquals(protocInvoker.invoke(), marker);
+        } finally {
+            JMeterUtils.getJMeterProperties().remove("grpc.request.descriptor.cache.enabled");
+            JMeterUtils.getJMeterProperties().remove("grpc.request.descriptor.cache.dir");
+            FileUtils.deleteDirectory(cacheDir.toFile());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package vn.zalopay.benchmark.core.protobuf;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.google.protobuf.UnknownFieldSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jmeter.util.JMeterUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import vn.zalopay.benchmark.core.BaseTest;
+import vn.zalopay.benchmark.exception.ProtocInvocationException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ProtoParserTest extends BaseTest {
+    private static final String PROTO2_CONTENT =
+            "syntax = \"proto2\";\n"
+                    + "package features.v1;\n"
+                    + "import public \"google/protobuf/timestamp.proto\";\n"
+                    + "option java_package = \"features\";\n"
+                    + "option optimize_for = CODE_SIZE;\n"
+                    + "message Outer {\n"
+                    + "  option deprecated = true;\n"
+                    + "  required string name = 1 [default = \"a\\tb\"];\n"
+                    + "  optional bytes data = 2 [default = \"\\001x\"];\n"
+                    + "  optional double ratio = 3 [default = -1.5e20];\n"
+                    + "  optional float scale = 4 [default = 0.25];\n"
+                    + "  optional uint64 big = 5 [default = 0xFFFFFFFFFFFFFFFF];\n"
+                    + "  optional Inner.Kind kind = 6 [default = SECOND, json_name = \"k\"];\n"
+                    + "  repeated int32 packed_values = 7 [packed = true];\n"
+                    + "  optional google.protobuf.Timestamp at = 8;\n"
+                    + "  message Inner {\n"
+                    + "    enum Kind {\n"
+                    + "      option allow_alias = true;\n"
+                    + "      FIRST = 0;\n"
+                    + "      SECOND = 1;\n"
+                    + "      ALIAS = 1 [deprecated = true];\n"
+                    + "      reserved 5 to 9, 20 to max;\n"
+                    + "      reserved \"OLD\";\n"
+                    + "    }\n"
+                    + "    optional Outer outer = 1;\n"
+                    + "  }\n"
+                    + "  oneof choice {\n"
+                    + "    string text = 10;\n"
+                    + "    Inner inner = 11;\n"
+                    + "  }\n"
+                    + "  reserved 20, 30 to 40;\n"
+                    + "  reserved \"gone\";\n"
+                    + "  extensions 100 to 199, 1000 to max;\n"
+                    + "  extend Outer {\n"
+                    + "    optional int32 nested_extension = 100;\n"
+                    + "  }\n"
+                    + "}\n"
+                    + "extend Outer {\n"
+                    + "  repeated string file_extension = 101;\n"
+                    + "}\n";
+    private static final String PROTO3_CONTENT =
+            "syntax = \"proto3\";\n"
+                    + "package features.v1;\n"
+                    + "import \"features/v1/outer.proto\";\n"
+                    + "/* Block comment with service Fake { } */\n"
+                    + "message Request {\n"
+                    + "  optional string label = 1;\n"
+                    + "  map<string, Outer.Inner> inners_by_name = 2;\n"
+                    + "  map<int32, Level> levels = 3;\n"
+                    + "  .features.v1.Outer outer = 4;\n"
+                    + "  optional int32 _count = 5;\n"
+                    + "  enum Level {\n"
+                    + "    LEVEL_UNSPECIFIED = 0;\n"
+                    + "    HIGH = 1;\n"
+                    + "  }\n"
+                    + "}\n"
+                    + "service Streams {\n"
+                    + "  option deprecated = true;\n"
+                    + "  rpc Bidi (stream Request) returns (stream Outer);\n"
+                    + "  rpc Unary (Request) returns (Outer) {\n"
+                    + "    option idempotency_level = NO_SIDE_EFFECTS;\n"
+                    + "  }\n"
+                    + "}\n";
+
+    @Test
+    public void testCanParseSameDescriptorsAsProtoc() {
+        assertSameAsProtoc(PROTO_FOLDER.toString(), "");
+        assertSameAsProtoc(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString(), LIB_FOLDER.toString());
+    }
+
+    @Test
+    public void testCanParseProto2AndProto3Features() throws IOException {
+        Path protoRoot = Files.createTempDirectory("proto-parser");
+        try {
+            Path packageFolder = Files.createDirectories(protoRoot.resolve("features/v1"));
+            Files.write(
+                    packageFolder.resolve("outer.proto"),
+                    PROTO2_CONTENT.getBytes(StandardCharsets.UTF_8));
+            Files.write(
+                    packageFolder.resolve("request.proto"),
+                    PROTO3_CONTENT.getBytes(StandardCharsets.UTF_8));
+
+            assertSameAsProtoc(protoRoot.toString(), null);
+        } finally {
+            FileUtils.deleteDirectory(protoRoot.toFile());
+        }
+    }
+
+    @Test(
+            expectedExceptions = ProtocInvocationException.class,
+            expectedExceptionsMessageRegExp = "broken.proto: \"Missing\" is not defined.")
+    public void testCannotParseUndefinedType() throws IOException {
+        Path protoRoot = Files.createTempDirectory("proto-parser");
+        try {
+            Files.write(
+                    protoRoot.resolve("broken.proto"),
+                    "syntax = \"proto3\";\nmessage Broken {\n  Missing missing = 1;\n}\n"
+                            .getBytes(StandardCharsets.UTF_8));
+            new ProtoParser(new ArrayList<>(), protoRoot)
+                    .parse(Collections.singletonList(protoRoot.resolve("broken.proto").toString()));
+        } finally {
+            FileUtils.deleteDirectory(protoRoot.toFile());
+        }
+    }
+
+    private static void assertSameAsProtoc(String protoFolder, String libFolder) {
+        FileDescriptorSet compiled = ProtocInvoker.forConfig(protoFolder, libFolder).invoke();
+        JMeterUtils.setProperty("grpc.request.descriptor.source", "parser");
+        try {
+            FileDescriptorSet parsed = ProtocInvoker.forConfig(protoFolder, libFolder).invoke();
+            Assert.assertEquals(filesByName(parsed), filesByName(compiled));
+        } finally {
+            JMeterUtils.getJMeterProperties().remove("grpc.request.descriptor.source");
+        }
+    }
+
+    private static Map<String, Message> filesByName(FileDescriptorSet fileDescriptorSet) {
+        Map<String, Message> files = new TreeMap<>();
+        for (FileDescriptorProto file : fileDescriptorSet.getFileList()) {
+            files.put(file.getName(), withoutCustomOptions(file));
+        }
+        return files;
+    }
+
+    /**
+     * Drops custom option values, which protoc keeps as unknown fields while the parser skips them,
+     * along with the options messages left empty by that.
+     */
+    private static Message withoutCustomOptions(Message message) {
+        Message.Builder builder =
+                message.toBuilder().setUnknownFields(UnknownFieldSet.getDefaultInstance());
+        for (FieldDescriptor field : message.getDescriptorForType().getFields()) {
+            if (field.getJavaType() != FieldDescriptor.JavaType.MESSAGE) {
+                continue;
+            }
+            if (field.isRepeated()) {
+                List<Message> values = new ArrayList<>();
+                for (Object value : (List<?>) message.getField(field)) {
+                    values.add(withoutCustomOptions((Message) value));
+                }
+                builder.clearField(field);
+                values.forEach(value -> builder.addRepeatedField(field, value));
+            } else if (message.hasField(field)) {
+                Message value = withoutCustomOptions((Message) message.getField(field));
+                if (field.getName().equals("options") && value.getAllFields().isEmpty()) {
+                    builder.clearField(field);
+                } else {
+                    builder.setField(field, value);
+                }
+            }
+        }
+        return builder.build();
+    }
+}
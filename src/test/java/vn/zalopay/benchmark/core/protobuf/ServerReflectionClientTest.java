@@ -0,0 +1,67 @@
+package vn.zalopay.benchmark.core.protobuf;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import vn.zalopay.benchmark.core.BaseTest;
+import vn.zalopay.benchmark.exception.ProtocInvocationException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class ServerReflectionClientTest extends BaseTest {
+
+    @Test
+    public void testCanFetchServiceFilesOnce() {
+        ServerReflectionClient.clearCache();
+        ProtoMethodName methodName = ProtoMethodName.parseFullGrpcMethodName(FULL_METHOD);
+        FileDescriptorSet fetched =
+                ServerReflectionClient.fetchServiceFiles(
+                        HOST_PORT, ServerReflectionClientTest::newChannel, methodName);
+
+        List<String> fileNames =
+                fetched.getFileList().stream()
+                        .map(FileDescriptorProto::getName)
+                        .collect(Collectors.toList());
+        Assert.assertEquals(fileNames.get(fileNames.size() - 1), "http_bookstore.proto");
+        Assert.assertTrue(fileNames.contains("shelf.proto"));
+        Assert.assertTrue(fileNames.contains("google/protobuf/empty.proto"));
+        Assert.assertEquals(
+                ServiceResolver.fromFileDescriptorSet(fetched)
+                        .resolveServiceMethod(methodName)
+                        .getInputType()
+                        .getFullName(),
+                "bookstore.CreateShelfRequest");
+
+        // Answered from the cache, without opening a channel
+        Assert.assertSame(
+                ServerReflectionClient.fetchServiceFiles(
+                        HOST_PORT,
+                        () -> {
+                            throw new AssertionError("Channel opened for a cached service");
+                        },
+                        methodName),
+                fetched);
+    }
+
+    @Test(
+            expectedExceptions = ProtocInvocationException.class,
+            expectedExceptionsMessageRegExp =
+                    "Server reflection failed for symbol bookstore.Missing: .*")
+    public void testCannotFetchUnknownService() {
+        ServerReflectionClient.fetchServiceFiles(
+                HOST_PORT,
+                ServerReflectionClientTest::newChannel,
+                ProtoMethodName.parseFullGrpcMethodName("bookstore.Missing/CreateShelf"));
+    }
+
+    private static ManagedChannel newChannel() {
+        return ManagedChannelBuilder.forTarget(HOST_PORT).usePlaintext().build();
+    }
+}
@@ -0,0 +1,60 @@
+package vn.zalopay.benchmark.core.protobuf;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.MethodDescriptor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import vn.zalopay.benchmark.core.BaseTest;
+
+public class ServiceResolverTest extends BaseTest {
+
+    @Test
+    public void testCanResolveServiceMethodByFullName() {
+        ServiceResolver serviceResolver = newServiceResolver();
+        Assert.assertEquals(
+                resolve(serviceResolver, "helloworld.Greeter/SayHello").getFile().getPackage(),
+                "helloworld");
+        Assert.assertEquals(
+                resolve(serviceResolver, "fullprototype.Greeter/SayHello").getFile().getPackage(),
+                "fullprototype");
+        Assert.assertEquals(
+                resolve(serviceResolver, "nopackageservice/NoPackageMethod").getFullName(),
+                "nopackageservice.NoPackageMethod");
+    }
+
+    @Test(
+            expectedExceptions = IllegalArgumentException.class,
+            expectedExceptionsMessageRegExp = "Unable to find service with name: Greeter")
+    public void testCannotResolveServiceOfOtherPackage() {
+        resolve(newServiceResolver(), "missing.Greeter/SayHello");
+    }
+
+    @Test(
+            expectedExceptions = IllegalArgumentException.class,
+            expectedExceptionsMessageRegExp = "Unable to find method Missing in service Greeter")
+    public void testCannotResolveMissingMethod() {
+        resolve(newServiceResolver(), "helloworld.Greeter/Missing");
+    }
+
+    @Test
+    public void testCanListNestedMessageTypes() {
+        ServiceResolver serviceResolver = newServiceResolver();
+        Descriptor result = serviceResolver.findMessageType("fullprototype.HelloRequest.Result");
+        Assert.assertNotNull(result);
+        Assert.assertTrue(serviceResolver.listMessageTypes().contains(result));
+        Assert.assertNull(serviceResolver.findMessageType("fullprototype.Missing"));
+    }
+
+    private static ServiceResolver newServiceResolver() {
+        return ServiceResolver.fromFileDescriptorSet(
+                ProtocInvoker.forConfig(PROTO_FOLDER.toString(), "").invoke());
+    }
+
+    private static MethodDescriptor resolve(
+            ServiceResolver serviceResolver, String fullMethodName) {
+        return serviceResolver.resolveServiceMethod(
+                ProtoMethodName.parseFullGrpcMethodName(fullMethodName));
+    }
+}
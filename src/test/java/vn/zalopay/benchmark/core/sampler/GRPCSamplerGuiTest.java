@@ -107,6 +107,41 @@ public class GRPCSamplerGuiTest extends BaseTest {
         frame.dispose();
     }
 
+    @Test
+    public void testCanKeepAsyncSettingsOfEachGrpcTestElement() {
+        GRPCSamplerGui grpRequestPluginGUI = new GRPCSamplerGui();
+        GRPCSampler asyncSampler = (GRPCSampler) grpRequestPluginGUI.createTestElement();
+        asyncSampler.setAsyncRate("25.5");
+        asyncSampler.setAsyncMaxInFlight("50");
+        GRPCSampler blockingSampler = (GRPCSampler) grpRequestPluginGUI.createTestElement();
+        grpRequestPluginGUI.configure(asyncSampler);
+        grpRequestPluginGUI.modifyTestElement(asyncSampler);
+        grpRequestPluginGUI.configure(blockingSampler);
+        grpRequestPluginGUI.modifyTestElement(blockingSampler);
+        grpRequestPluginGUI.configure(asyncSampler);
+        grpRequestPluginGUI.modifyTestElement(asyncSampler);
+        Assert.assertEquals(asyncSampler.getAsyncRate(), 25.5);
+        Assert.assertEquals(asyncSampler.getAsyncMaxInFlight(), 50);
+        Assert.assertEquals(blockingSampler.getAsyncRate(), 0.0);
+        Assert.assertEquals(blockingSampler.getAsyncMaxInFlight(), 1000);
+    }
+
+    @Test
+    public void testCanKeepPipelineDepthOfEachGrpcTestElement() {
+        GRPCSamplerGui grpRequestPluginGUI = new GRPCSamplerGui();
+        GRPCSampler pipelinedSampler = (GRPCSampler) grpRequestPluginGUI.createTestElement();
+        pipelinedSampler.setPipelineDepth("8");
+        GRPCSampler singleCallSampler = (GRPCSampler) grpRequestPluginGUI.createTestElement();
+        grpRequestPluginGUI.configure(pipelinedSampler);
+        grpRequestPluginGUI.modifyTestElement(pipelinedSampler);
+        grpRequestPluginGUI.configure(singleCallSampler);
+        grpRequestPluginGUI.modifyTestElement(singleCallSampler);
+        grpRequestPluginGUI.configure(pipelinedSampler);
+        grpRequestPluginGUI.modifyTestElement(pipelinedSampler);
+        Assert.assertEquals(pipelinedSampler.getPipelineDepth(), 8);
+        Assert.assertEquals(singleCallSampler.getPipelineDepth(), 1);
+    }
+
     @Test
     public void verifyCanConfigureWithNonGrpcSampler() {
         GRPCSamplerGui grpRequestPluginGUI = new GRPCSamplerGui();
@@ -3,11 +3,14 @@ package vn.zalopay.benchmark.core.sampler;
 import com.google.common.collect.ImmutableList;
 import com.google.common.net.HostAndPort;
 import com.google.protobuf.DynamicMessage;
-import com.google.protobuf.util.JsonFormat;
+
+import io.grpc.MethodDescriptor.MethodType;
 
 import static org.mockito.Mockito.when;
 
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.testng.Assert;
@@ -17,7 +20,13 @@ import vn.zalopay.benchmark.GRPCSampler;
 import vn.zalopay.benchmark.constant.GrpcSamplerConstant;
 import vn.zalopay.benchmark.core.BaseTest;
 import vn.zalopay.benchmark.core.ClientCaller;
+import vn.zalopay.benchmark.core.ClientCallerRegistry;
+import vn.zalopay.benchmark.core.config.ChannelStrategy;
+import vn.zalopay.benchmark.core.config.ResponseCaptureMode;
+import vn.zalopay.benchmark.core.config.SamplerDataMode;
+import vn.zalopay.benchmark.core.message.MethodTypeRegistry;
 import vn.zalopay.benchmark.core.message.Writer;
+import vn.zalopay.benchmark.core.protobuf.ServerReflectionClient;
 import vn.zalopay.benchmark.core.specification.GrpcResponse;
 
 public class GrpcSamplerTest extends BaseTest {
@@ -54,6 +63,76 @@ public class GrpcSamplerTest extends BaseTest {
         }
     }
 
+    @Test
+    public void testCanWarmUpBeforeSampling() {
+        HostAndPort hostAndPort = HostAndPort.fromString(HOST_PORT);
+        GRPCSampler grpcSampler = new GRPCSampler();
+        grpcSampler.setProtoFolder(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString());
+        grpcSampler.setLibFolder(LIB_FOLDER.toString());
+        grpcSampler.setMetadata(METADATA);
+        grpcSampler.setHost(hostAndPort.getHost());
+        grpcSampler.setPort(Integer.toString(hostAndPort.getPort()));
+        grpcSampler.setFullMethod(FULL_METHOD);
+        grpcSampler.setDeadline("2000");
+        grpcSampler.setChannelShutdownAwaitTime("5000");
+        grpcSampler.setRequestJson(REQUEST_JSON);
+        grpcSampler.setWarmUp(true);
+        grpcSampler.setWarmUpTimeout("5000");
+        grpcSampler.setWarmUpCalls("3");
+        grpcSampler.threadStarted();
+        try {
+                grpcSampler.testStarted();
+                SampleResult sampleResult = grpcSampler.sample(null);
+                Assert.assertEquals(sampleResult.getResponseCode(), "200");
+                Assert.assertTrue(
+                        new String(sampleResult.getResponseData())
+                                .contains("\"theme\": \"Hello server"));
+        } finally {
+                grpcSampler.testEnded();
+        }
+    }
+
+    @Test
+    public void testCanWarmUpPerThreadChannelsInTheirThread() {
+        ClientCaller clientCaller = Mockito.mock(ClientCaller.class);
+        GRPCSampler grpcSampler = new GRPCSampler();
+        grpcSampler.setChannelStrategy(ChannelStrategy.PER_THREAD.name());
+        grpcSampler.setWarmUp(true);
+        try (MockedStatic<ClientCallerRegistry> registry =
+                Mockito.mockStatic(ClientCallerRegistry.class)) {
+            registry.when(() -> ClientCallerRegistry.getClientCaller(Mockito.any()))
+                    .thenReturn(clientCaller);
+            grpcSampler.testStarted();
+            Mockito.verify(clientCaller, Mockito.never()).awaitChannelsReady(Mockito.anyLong());
+            grpcSampler.threadStarted();
+            Mockito.verify(clientCaller).awaitChannelsReady(5000);
+        }
+    }
+
+    @Test
+    public void testCanShutdownPerThreadChannelWhenThreadFinishes() {
+        ClientCaller clientCaller = Mockito.mock(ClientCaller.class);
+        GRPCSampler grpcSampler = new GRPCSampler();
+        grpcSampler.setChannelStrategy(ChannelStrategy.PER_THREAD.name());
+        try (MockedStatic<ClientCallerRegistry> registry =
+                Mockito.mockStatic(ClientCallerRegistry.class)) {
+            registry.when(() -> ClientCallerRegistry.getClientCaller(Mockito.any()))
+                    .thenReturn(clientCaller);
+            grpcSampler.testStarted();
+            grpcSampler.threadFinished();
+            Mockito.verify(clientCaller).shutdownThreadChannel();
+        }
+    }
+
+    @Test
+    public void testCanForgetReflectedServicesWhenTestEnds() {
+        try (MockedStatic<ServerReflectionClient> reflectionClient =
+                Mockito.mockStatic(ServerReflectionClient.class)) {
+            new GRPCSampler().testEnded();
+            reflectionClient.verify(ServerReflectionClient::clearCache);
+        }
+    }
+
     @Test
     public void testCanSendSampleRequest3times() {
         HostAndPort hostAndPort = HostAndPort.fromString(HOST_PORT);
@@ -181,7 +260,7 @@ public class GrpcSamplerTest extends BaseTest {
                         () ->
                                 Writer.create(
                                         Mockito.any(GrpcResponse.class),
-                                        Mockito.any(JsonFormat.TypeRegistry.class)))
+                                        Mockito.any(MethodTypeRegistry.class)))
                 .thenAnswer((i) -> writer);
         HostAndPort hostAndPort = HostAndPort.fromString(HOST_PORT);
         GRPCSampler grpcSampler = new GRPCSampler();
@@ -371,4 +450,372 @@ public class GrpcSamplerTest extends BaseTest {
                 grpcSampler.testEnded();
         }
     }
+
+    @Test
+    public void testCanSendSampleRequestWithRequestTemplate() {
+        HostAndPort hostAndPort = HostAndPort.fromString(HOST_PORT);
+        GRPCSampler grpcSampler = new GRPCSampler();
+        grpcSampler.setProtoFolder(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString());
+        grpcSampler.setLibFolder(LIB_FOLDER.toString());
+        grpcSampler.setMetadata(METADATA);
+        grpcSampler.setHost(hostAndPort.getHost());
+        grpcSampler.setPort(Integer.toString(hostAndPort.getPort()));
+        grpcSampler.setFullMethod(FULL_METHOD);
+        grpcSampler.setDeadline("2000");
+        grpcSampler.setChannelShutdownAwaitTime("5000");
+        grpcSampler.setRequestTemplate(true);
+        grpcSampler.setRequestJson("{\"shelf\":{\"id\":${shelfId},\"theme\":\"${theme}\"}}");
+        JMeterVariables variables = new JMeterVariables();
+        JMeterContextService.getContext().setVariables(variables);
+        grpcSampler.threadStarted();
+        try {
+            grpcSampler.testStarted();
+            variables.put("shelfId", "1");
+            variables.put("theme", "First theme");
+            SampleResult sampleResult1 = grpcSampler.sample(null);
+            variables.put("shelfId", "2");
+            variables.put("theme", "Second theme");
+            SampleResult sampleResult2 = grpcSampler.sample(null);
+
+            Assert.assertEquals(sampleResult1.getResponseCode(), "200");
+            Assert.assertTrue(sampleResult1.getSamplerData().contains("\"theme\": \"First theme\""));
+            Assert.assertTrue(
+                    new String(sampleResult1.getResponseData()).contains("\"theme\": \"First theme_"));
+            Assert.assertEquals(sampleResult2.getResponseCode(), "200");
+            Assert.assertTrue(sampleResult2.getSamplerData().contains("\"id\": \"2\""));
+            Assert.assertTrue(
+                    new String(sampleResult2.getResponseData()).contains("\"theme\": \"Second theme_"));
+        } finally {
+            grpcSampler.testEnded();
+        }
+    }
+
+    @Test
+    public void testCanFallbackWhenRequestTemplateIsUnusable() {
+        HostAndPort hostAndPort = HostAndPort.fromString(HOST_PORT);
+        GRPCSampler grpcSampler = new GRPCSampler();
+        grpcSampler.setProtoFolder(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString());
+        grpcSampler.setLibFolder(LIB_FOLDER.toString());
+        grpcSampler.setMetadata(METADATA);
+        grpcSampler.setHost(hostAndPort.getHost());
+        grpcSampler.setPort(Integer.toString(hostAndPort.getPort()));
+        grpcSampler.setFullMethod(FULL_METHOD);
+        grpcSampler.setDeadline("2000");
+        grpcSampler.setChannelShutdownAwaitTime("5000");
+        grpcSampler.setRequestTemplate(true);
+        grpcSampler.setRequestJson("{\"shelf\":{\"id\":1,\"theme\":\"Hello ${server}\"}}");
+        grpcSampler.threadStarted();
+        try {
+            grpcSampler.testStarted();
+            SampleResult sampleResult = grpcSampler.sample(null);
+
+            Assert.assertEquals(sampleResult.getResponseCode(), "200");
+            Assert.assertTrue(new String(sampleResult.getResponseData()).contains("\"theme\": \"Hello"));
+        } finally {
+            grpcSampler.testEnded();
+        }
+    }
+
+    @Test
+    public void testCanSendSampleRequestWithResponseCaptureModes() {
+        HostAndPort hostAndPort = HostAndPort.fromString(HOST_PORT);
+        GRPCSampler grpcSampler = new GRPCSampler();
+        grpcSampler.setProtoFolder(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString());
+        grpcSampler.setLibFolder(LIB_FOLDER.toString());
+        grpcSampler.setMetadata(METADATA);
+        grpcSampler.setHost(hostAndPort.getHost());
+        grpcSampler.setPort(Integer.toString(hostAndPort.getPort()));
+        grpcSampler.setFullMethod(FULL_METHOD);
+        grpcSampler.setDeadline("2000");
+        grpcSampler.setChannelShutdownAwaitTime("5000");
+        grpcSampler.setRequestJson(REQUEST_JSON);
+        grpcSampler.threadStarted();
+        try {
+            grpcSampler.testStarted();
+            grpcSampler.setResponseCaptureMode(ResponseCaptureMode.RAW_BYTES.name());
+            SampleResult rawBytesResult = grpcSampler.sample(null);
+            grpcSampler.setResponseCaptureMode(ResponseCaptureMode.SIZE_ONLY.name());
+            SampleResult sizeOnlyResult = grpcSampler.sample(null);
+            grpcSampler.setResponseCaptureMode(ResponseCaptureMode.NONE.name());
+            SampleResult noneResult = grpcSampler.sample(null);
+
+            Assert.assertEquals(rawBytesResult.getResponseCode(), "200");
+            Assert.assertEquals(rawBytesResult.getDataType(), SampleResult.BINARY);
+            Assert.assertEquals(
+                    rawBytesResult.getBytesAsLong(), rawBytesResult.getResponseData().length);
+            Assert.assertTrue(new String(rawBytesResult.getResponseData()).contains("Hello server"));
+            Assert.assertEquals(sizeOnlyResult.getResponseCode(), "200");
+            Assert.assertEquals(sizeOnlyResult.getResponseData().length, 0);
+            Assert.assertTrue(sizeOnlyResult.getBytesAsLong() > 0);
+            Assert.assertEquals(noneResult.getResponseCode(), "200");
+            Assert.assertEquals(noneResult.getResponseData().length, 0);
+            Assert.assertEquals(noneResult.getBytesAsLong(), 0);
+        } finally {
+            grpcSampler.testEnded();
+        }
+    }
+
+    @Test
+    public void testCanSendSampleRequestWithSamplerDataModes() {
+        HostAndPort hostAndPort = HostAndPort.fromString(HOST_PORT);
+        GRPCSampler grpcSampler = new GRPCSampler();
+        grpcSampler.setProtoFolder(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString());
+        grpcSampler.setLibFolder(LIB_FOLDER.toString());
+        grpcSampler.setMetadata(METADATA);
+        grpcSampler.setHost(hostAndPort.getHost());
+        grpcSampler.setPort(Integer.toString(hostAndPort.getPort()));
+        grpcSampler.setFullMethod(FULL_METHOD);
+        grpcSampler.setDeadline("2000");
+        grpcSampler.setChannelShutdownAwaitTime("5000");
+        grpcSampler.setRequestJson(REQUEST_JSON);
+        grpcSampler.threadStarted();
+        try {
+            grpcSampler.testStarted();
+            grpcSampler.setSamplerDataMode(SamplerDataMode.NONE.name());
+            SampleResult noneResult = grpcSampler.sample(null);
+            grpcSampler.setSamplerDataMode(SamplerDataMode.FAILED_ONLY.name());
+            SampleResult failedOnlyResult = grpcSampler.sample(null);
+            grpcSampler.setSamplerDataMode(SamplerDataMode.SAMPLED.name());
+            grpcSampler.setSamplerDataSampleRate("1");
+            SampleResult sampledResult = grpcSampler.sample(null);
+            grpcSampler.setSamplerDataSampleRate("0");
+            SampleResult notSampledResult = grpcSampler.sample(null);
+
+            Assert.assertEquals(noneResult.getResponseCode(), "200");
+            Assert.assertNull(noneResult.getSamplerData());
+            Assert.assertEquals(failedOnlyResult.getResponseCode(), "200");
+            Assert.assertNull(failedOnlyResult.getSamplerData());
+            Assert.assertTrue(sampledResult.getSamplerData().contains("Hello server"));
+            Assert.assertNull(notSampledResult.getSamplerData());
+        } finally {
+            grpcSampler.testEnded();
+        }
+    }
+
+    @Test
+    public void testCanRecordSamplerDataOfFailedSample() {
+        GRPCSampler grpcSampler = new GRPCSampler();
+        grpcSampler.setProtoFolder(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString());
+        grpcSampler.setLibFolder(LIB_FOLDER.toString());
+        grpcSampler.setMetadata(METADATA);
+        grpcSampler.setHost("localhost");
+        grpcSampler.setPort("1");
+        grpcSampler.setFullMethod(FULL_METHOD);
+        grpcSampler.setDeadline("2000");
+        grpcSampler.setChannelShutdownAwaitTime("5000");
+        grpcSampler.setRequestJson(REQUEST_JSON);
+        grpcSampler.setSamplerDataMode(SamplerDataMode.FAILED_ONLY.name());
+        grpcSampler.threadStarted();
+        try {
+            grpcSampler.testStarted();
+            SampleResult sampleResult = grpcSampler.sample(null);
+
+            Assert.assertFalse(sampleResult.isSuccessful());
+            Assert.assertTrue(sampleResult.getSamplerData().contains("Hello server"));
+        } finally {
+            grpcSampler.testEnded();
+        }
+    }
+
+    @Test
+    public void testCanSendStreamingSampleRequest() {
+        HostAndPort hostAndPort = HostAndPort.fromString(HOST_PORT);
+        GRPCSampler grpcSampler = new GRPCSampler();
+        grpcSampler.setProtoFolder(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString());
+        grpcSampler.setLibFolder(LIB_FOLDER.toString());
+        grpcSampler.setMetadata(METADATA);
+        grpcSampler.setHost(hostAndPort.getHost());
+        grpcSampler.setPort(Integer.toString(hostAndPort.getPort()));
+        grpcSampler.setFullMethod("bookstore.Bookstore/GetShelfStreamClient");
+        grpcSampler.setDeadline("2000");
+        grpcSampler.setChannelShutdownAwaitTime("5000");
+        grpcSampler.setRequestJson(REQUEST_JSON);
+        grpcSampler.setStreamMessageResults(true);
+        try {
+            // The test server doesn't implement the streaming methods
+            SampleResult sampleResult = grpcSampler.sample(null);
+            Assert.assertFalse(sampleResult.isSuccessful());
+            Assert.assertEquals(sampleResult.getResponseCode(), " 500");
+            Assert.assertTrue(sampleResult.getResponseMessage().endsWith(", 0 messages"));
+            Assert.assertEquals(sampleResult.getSubResults().length, 0);
+        } finally {
+            grpcSampler.threadFinished();
+        }
+    }
+
+    @Test
+    public void testCanTimeStreamedMessagesWithinTheSample() {
+        ClientCaller clientCaller = Mockito.mock(ClientCaller.class);
+        when(clientCaller.getMethodType()).thenReturn(MethodType.SERVER_STREAMING);
+        when(clientCaller.buildRequestAndMetadata(Mockito.any(), Mockito.any()))
+                .thenReturn(ImmutableList.of());
+        when(clientCaller.callServerStreaming(Mockito.any(), Mockito.any()))
+                .thenAnswer(
+                        invocation -> {
+                            GrpcResponse grpcResponse = new GrpcResponse();
+                            grpcResponse.recordMessageArrivals();
+                            Thread.sleep(30);
+                            grpcResponse.storeGrpcMessage("first");
+                            Thread.sleep(30);
+                            grpcResponse.storeGrpcMessage("second");
+                            grpcResponse.setSuccess(true);
+                            return grpcResponse;
+                        });
+        GRPCSampler grpcSampler = new GRPCSampler();
+        grpcSampler.setStreamMessageResults(true);
+        grpcSampler.setSamplerDataMode(SamplerDataMode.NONE.name());
+        try (MockedStatic<ClientCallerRegistry> registry =
+                Mockito.mockStatic(ClientCallerRegistry.class)) {
+            registry.when(() -> ClientCallerRegistry.getClientCaller(Mockito.any()))
+                    .thenReturn(clientCaller);
+            SampleResult sampleResult = grpcSampler.sample(null);
+            SampleResult[] messageResults = sampleResult.getSubResults();
+            Assert.assertEquals(messageResults.length, 2);
+            long previousEndTime = sampleResult.getStartTime();
+            for (SampleResult messageResult : messageResults) {
+                Assert.assertTrue(messageResult.getStartTime() >= previousEndTime);
+                Assert.assertTrue(messageResult.getEndTime() <= sampleResult.getEndTime());
+                previousEndTime = messageResult.getEndTime();
+            }
+        }
+    }
+
+    @Test
+    public void testCanSendSampleRequestAtArrivalRate() {
+        HostAndPort hostAndPort = HostAndPort.fromString(HOST_PORT);
+        GRPCSampler grpcSampler = new GRPCSampler();
+        grpcSampler.setProtoFolder(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString());
+        grpcSampler.setLibFolder(LIB_FOLDER.toString());
+        grpcSampler.setMetadata(METADATA);
+        grpcSampler.setHost(hostAndPort.getHost());
+        grpcSampler.setPort(Integer.toString(hostAndPort.getPort()));
+        grpcSampler.setFullMethod(FULL_METHOD);
+        grpcSampler.setDeadline("2000");
+        grpcSampler.setChannelShutdownAwaitTime("5000");
+        grpcSampler.setRequestJson(REQUEST_JSON);
+        grpcSampler.setAsyncRate("50");
+        grpcSampler.threadStarted();
+        try {
+            grpcSampler.testStarted();
+            long firstStartTime = Long.MAX_VALUE;
+            long lastStartTime = 0;
+            for (int i = 0; i < 10; i++) {
+                SampleResult sampleResult = grpcSampler.sample(null);
+                Assert.assertEquals(sampleResult.getResponseCode(), "200");
+                Assert.assertTrue(
+                        new String(sampleResult.getResponseData()).contains("Hello server"));
+                // Completions may come back out of order
+                firstStartTime = Math.min(firstStartTime, sampleResult.getStartTime());
+                lastStartTime = Math.max(lastStartTime, sampleResult.getStartTime());
+            }
+            // 10 calls at 50 per second are intended 20ms apart
+            Assert.assertTrue(lastStartTime - firstStartTime >= 170);
+        } finally {
+            grpcSampler.threadFinished();
+            grpcSampler.testEnded();
+        }
+    }
+
+    @Test
+    public void testCanSendPipelinedSampleRequest() {
+        HostAndPort hostAndPort = HostAndPort.fromString(HOST_PORT);
+        GRPCSampler grpcSampler = new GRPCSampler();
+        grpcSampler.setProtoFolder(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString());
+        grpcSampler.setLibFolder(LIB_FOLDER.toString());
+        grpcSampler.setMetadata(METADATA);
+        grpcSampler.setHost(hostAndPort.getHost());
+        grpcSampler.setPort(Integer.toString(hostAndPort.getPort()));
+        grpcSampler.setFullMethod(FULL_METHOD);
+        grpcSampler.setDeadline("2000");
+        grpcSampler.setChannelShutdownAwaitTime("5000");
+        grpcSampler.setRequestJson(REQUEST_JSON);
+        grpcSampler.setPipelineDepth("3");
+        try {
+            SampleResult sampleResult = grpcSampler.sample(null);
+            Assert.assertTrue(sampleResult.isSuccessful());
+            Assert.assertEquals(sampleResult.getResponseCode(), "200");
+            Assert.assertEquals(sampleResult.getSubResults().length, 3);
+            for (SampleResult subResult : sampleResult.getSubResults()) {
+                Assert.assertEquals(subResult.getResponseCode(), "200");
+                Assert.assertTrue(new String(subResult.getResponseData()).contains("Hello server"));
+            }
+        } finally {
+            grpcSampler.threadFinished();
+        }
+    }
+
+    @Test
+    public void testCanRecordSamplerDataOfFailedPipelinedCallsOnEventLoops() {
+        GRPCSampler grpcSampler = new GRPCSampler();
+        grpcSampler.setProtoFolder(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString());
+        grpcSampler.setLibFolder(LIB_FOLDER.toString());
+        grpcSampler.setMetadata(METADATA);
+        grpcSampler.setHost("localhost");
+        grpcSampler.setPort("1");
+        grpcSampler.setFullMethod(FULL_METHOD);
+        grpcSampler.setDeadline("2000");
+        grpcSampler.setChannelShutdownAwaitTime("5000");
+        grpcSampler.setChannelDirectExecutor(true);
+        grpcSampler.setRequestJson(REQUEST_JSON);
+        grpcSampler.setSamplerDataMode(SamplerDataMode.FAILED_ONLY.name());
+        grpcSampler.setPipelineDepth("2");
+        try {
+            grpcSampler.testStarted();
+            SampleResult sampleResult = grpcSampler.sample(null);
+
+            Assert.assertFalse(sampleResult.isSuccessful());
+            Assert.assertEquals(sampleResult.getSubResults().length, 2);
+            for (SampleResult subResult : sampleResult.getSubResults()) {
+                Assert.assertEquals(subResult.getResponseCode(), " 500");
+                Assert.assertTrue(subResult.getSamplerData().contains("Hello server"));
+            }
+        } finally {
+            grpcSampler.threadFinished();
+            grpcSampler.testEnded();
+        }
+    }
+
+    @Test
+    public void testCanSendSampleRequestWithSamplersOnDifferentTargets() {
+        HostAndPort bookStoreHostAndPort = HostAndPort.fromString(HOST_PORT);
+        GRPCSampler bookStoreSampler = new GRPCSampler();
+        bookStoreSampler.setProtoFolder(PROTO_WITH_EXTERNAL_IMPORT_FOLDER.toString());
+        bookStoreSampler.setLibFolder(LIB_FOLDER.toString());
+        bookStoreSampler.setMetadata(METADATA);
+        bookStoreSampler.setHost(bookStoreHostAndPort.getHost());
+        bookStoreSampler.setPort(Integer.toString(bookStoreHostAndPort.getPort()));
+        bookStoreSampler.setFullMethod(FULL_METHOD);
+        bookStoreSampler.setDeadline("2000");
+        bookStoreSampler.setRequestJson(REQUEST_JSON);
+
+        HostAndPort helloWorldHostAndPort = HostAndPort.fromString("localhost:50051");
+        GRPCSampler helloWorldSampler = new GRPCSampler();
+        helloWorldSampler.setProtoFolder(PROTO_FOLDER.toString());
+        helloWorldSampler.setLibFolder("");
+        helloWorldSampler.setMetadata(METADATA_JSON);
+        helloWorldSampler.setHost(helloWorldHostAndPort.getHost());
+        helloWorldSampler.setPort(Integer.toString(helloWorldHostAndPort.getPort()));
+        helloWorldSampler.setFullMethod(FULL_METHOD_WITH_METADATA);
+        helloWorldSampler.setDeadline("2000");
+        helloWorldSampler.setRequestJson(METADATA_REQUEST_JSON);
+        try {
+            bookStoreSampler.testStarted();
+            helloWorldSampler.testStarted();
+            Assert.assertEquals(ClientCallerRegistry.size(), 2);
+            SampleResult bookStoreResult = bookStoreSampler.sample(null);
+            SampleResult helloWorldResult = helloWorldSampler.sample(null);
+            Assert.assertEquals(bookStoreResult.getResponseCode(), "200");
+            Assert.assertTrue(
+                    new String(bookStoreResult.getResponseData())
+                            .contains("\"theme\": \"Hello server"));
+            Assert.assertEquals(helloWorldResult.getResponseCode(), "200");
+            Assert.assertTrue(
+                    new String(helloWorldResult.getResponseData())
+                            .contains(EXPECTED_RESPONSE_DATA));
+        } finally {
+            bookStoreSampler.testEnded();
+            helloWorldSampler.testEnded();
+        }
+        Assert.assertEquals(ClientCallerRegistry.size(), 0);
+    }
 }
@@ -1,5 +1,8 @@
 package vn.zalopay.benchmark.core.specification;
 
+import com.google.protobuf.StringValue;
+import com.google.protobuf.util.JsonFormat;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -18,4 +21,57 @@ public class GrpcResponseTest {
         Assert.assertEquals(
                 grpcResponse.getGrpcMessageString(), "[{data=message}, {data=message}]");
     }
+
+    @Test
+    public void testGetGrpcResponseWithProtobufMessages() {
+        GrpcResponse grpcResponse = new GrpcResponse();
+        grpcResponse.setJsonPrinter(JsonFormat.printer());
+        grpcResponse.storeGrpcMessage(StringValue.of("first"));
+        grpcResponse.storeGrpcMessage(StringValue.of("second"));
+        Assert.assertEquals(grpcResponse.getGrpcMessageString(), "[\"first\", \"second\"]");
+        Assert.assertEquals(grpcResponse.getGrpcMessageSize(), 15);
+        Assert.assertEquals(
+                grpcResponse.getGrpcMessageBytes(),
+                StringValue.of("first")
+                        .toByteString()
+                        .concat(StringValue.of("second").toByteString())
+                        .toByteArray());
+    }
+
+    @Test
+    public void testCanRenderSampleResultLazily() {
+        GrpcResponse grpcResponse = new GrpcResponse();
+        grpcResponse.setJsonPrinter(JsonFormat.printer());
+        grpcResponse.storeGrpcMessage(StringValue.of("lazy"));
+        GrpcSampleResult sampleResult = new GrpcSampleResult();
+        sampleResult.setResponseDataLazily(grpcResponse);
+        Assert.assertEquals(sampleResult.getResponseDataAsString(), "\"lazy\"");
+        Assert.assertEquals(new String(sampleResult.getResponseData()), "\"lazy\"");
+
+        sampleResult.setResponseDataLazily(grpcResponse);
+        sampleResult.setResponseData("explicit", "UTF-8");
+        Assert.assertEquals(sampleResult.getResponseDataAsString(), "explicit");
+    }
+
+    @Test
+    public void testCanRecordMessageArrivals() {
+        GrpcResponse grpcResponse = new GrpcResponse();
+        grpcResponse.storeGrpcMessage(StringValue.of("unary"));
+        Assert.assertFalse(grpcResponse.isMessageArrivalsRecorded());
+        Assert.assertEquals(grpcResponse.getMessageArrivalNanos().length, 0);
+
+        grpcResponse = new GrpcResponse();
+        grpcResponse.recordMessageArrivals();
+        for (int i = 0; i < 10; i++) {
+            grpcResponse.storeGrpcMessage(StringValue.of("message " + i));
+        }
+        long[] arrivalNanos = grpcResponse.getMessageArrivalNanos();
+        Assert.assertTrue(grpcResponse.isMessageArrivalsRecorded());
+        Assert.assertEquals(grpcResponse.getMessageCount(), 10);
+        Assert.assertEquals(arrivalNanos.length, 10);
+        for (int i = 1; i < arrivalNanos.length; i++) {
+            Assert.assertTrue(arrivalNanos[i] >= arrivalNanos[i - 1]);
+        }
+        Assert.assertEquals(grpcResponse.getGrpcMessageSize(0), 11);
+    }
 }